@@ -0,0 +1,102 @@
+ 
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Fails when a hot path starts allocating more per call than its declared 
+ * budget, for example because boxing or string concatenation crept back in. 
+ * Each path is warmed up first so only steady state allocation is measured, 
+ * then the bytes the test thread allocated over many calls are averaged.
+ */
+public class AllocationBudgetTest {
+	private static final int WARMUP_CALLS = 20000;
+	private static final int MEASURED_CALLS = 20000;
+	
+	/*
+	 * budgets in bytes per call. Converting has to build the result string, 
+	 * everything else should not allocate at all, the small allowance covers 
+	 * measurement noise
+	 */
+	private static final long CONVERT_BUDGET = 256;
+	private static final long EVALUATE_BUDGET = 16;
+	private static final long PUSH_POP_BUDGET = 16;
+	private static final long ENQUEUE_DEQUEUE_BUDGET = 16;
+	
+	public String complexInfix = "(3+(((5*7)-(((8/2)-1)*4))*6))";
+	public String complexPostfix =  "357*82/1-4*-6*+";
+	
+	private com.sun.management.ThreadMXBean threads;
+	
+	//results are accumulated here so the JIT can't throw the calls away
+	private double sink;
+
+	@Before
+	public void setUp() throws Exception {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+	
+	/**
+	 * runs the call WARMUP_CALLS times, then returns the average number of 
+	 * bytes allocated by MEASURED_CALLS more calls
+	 */
+	private long bytesPerCall(Runnable call) {
+		for(int count = 0; count < WARMUP_CALLS; count++)
+			call.run();
+		
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for(int count = 0; count < MEASURED_CALLS; count++)
+			call.run();
+		long after = threads.getThreadAllocatedBytes(threadId);
+		return (after - before) / MEASURED_CALLS;
+	}
+	
+	private void assertWithinBudget(String path, long budget, long measured) {
+		assertTrue(path + " allocated " + measured + " bytes per call, its budget is " + budget, 
+				measured <= budget);
+	}
+
+	@Test
+	public void testConvertInfixToPostfix() {
+		long measured = bytesPerCall(() -> sink += Notation.convertInfixToPostfix(complexInfix).length());
+		assertWithinBudget("convertInfixToPostfix", CONVERT_BUDGET, measured);
+	}
+
+	@Test
+	public void testEvaluatePostfixExpression() {
+		long measured = bytesPerCall(() -> sink += Notation.evaluatePostfixExpression(complexPostfix));
+		assertWithinBudget("evaluatePostfixExpression", EVALUATE_BUDGET, measured);
+	}
+
+	@Test
+	public void testPushPop() {
+		MyStack<Integer> stack = new MyStack<Integer>(64);
+		long measured = bytesPerCall(() -> {
+			for(int count = 0; count < 64; count++)
+				stack.push(count);
+			while(!stack.isEmpty())
+				sink += stack.pop();
+		});
+		assertWithinBudget("MyStack push/pop", PUSH_POP_BUDGET, measured);
+	}
+
+	@Test
+	public void testEnqueueDequeue() {
+		MyQueue<Integer> queue = new MyQueue<Integer>(64);
+		long measured = bytesPerCall(() -> {
+			for(int count = 0; count < 64; count++)
+				queue.enqueue(count);
+			while(!queue.isEmpty())
+				sink += queue.dequeue();
+		});
+		assertWithinBudget("MyQueue enqueue/dequeue", ENQUEUE_DEQUEUE_BUDGET, measured);
+	}
+}
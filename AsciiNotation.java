@@ -0,0 +1,334 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A static utility class with the Notation conversions for input that
+ * arrives as ASCII or Latin-1 bytes, without decoding it into a String.
+ *
+ * Every byte is classified with one lookup in a 256 entry table instead
+ * of Character.isDigit. Runs of digits and runs of spaces are scanned
+ * eight bytes at a time by loading them as one long and testing all
+ * eight bytes with a few arithmetic operations (SWAR, SIMD within a
+ * register), so a digit run is copied or pushed in one step and a run
+ * of padding is skipped in one step.
+ *
+ * The results, and the exceptions for invalid input, are exactly the
+ * ones Notation gives for the same text. Input with letters or commas,
+ * which only function calls use, is handed over to Notation.
+ *
+ * THIS CLASS ONLY WORKS WITH SINGLE DIGIT OPERANDS
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class AsciiNotation {
+	//byte classes, SKIP is anything Notation ignores
+	private static final byte SKIP = 0;
+	private static final byte DIGIT = 1;
+	private static final byte OPERATOR = 2;
+	private static final byte OPEN = 3;
+	private static final byte CLOSE = 4;
+	private static final byte COMMA = 5;
+	private static final byte OTHER = 6;
+
+	private static final byte[] CLASSES = new byte[256];
+
+	static {
+		for(int value = 0; value < CLASSES.length; value++) {
+			char character = (char) value;
+			if(Character.isDigit(character))
+				CLASSES[value] = DIGIT;
+			else if(Notation.STANDARD_OPERATORS.operator(character) != null)
+				CLASSES[value] = OPERATOR;
+			else if(character == '(')
+				CLASSES[value] = OPEN;
+			else if(character == ')')
+				CLASSES[value] = CLOSE;
+			else if(character == ',')
+				CLASSES[value] = COMMA;
+			else if(Character.isLetter(character))
+				CLASSES[value] = OTHER;
+			else
+				CLASSES[value] = SKIP;
+		}
+	}
+
+	//reads eight bytes of a byte[] as a long, the first byte in the lowest bits
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private static final long ALL_0F = 0x0F0F0F0F0F0F0F0FL;
+	private static final long ALL_F0 = 0xF0F0F0F0F0F0F0F0L;
+	private static final long ALL_30 = 0x3030303030303030L;
+	private static final long ALL_06 = 0x0606060606060606L;
+	private static final long ALL_10 = 0x1010101010101010L;
+	private static final long ALL_20 = 0x2020202020202020L;
+	private static final long ALL_7F = 0x7F7F7F7F7F7F7F7FL;
+	private static final long ALL_80 = 0x8080808080808080L;
+
+	private AsciiNotation() {
+	}
+
+	/**
+	 * @return how many of the eight bytes in word, starting from the lowest,
+	 * are ASCII digits before the first one that is not
+	 */
+	static int digitRun(long word) {
+		/*
+		 * a byte is a digit when its high nibble is 3 and its low nibble is
+		 * below 10. Adding 6 to a low nibble of 10 or more carries into bit 4,
+		 * and since only the low nibbles are added the carry never reaches
+		 * the next byte
+		 */
+		long wrongHigh = (word & ALL_F0) ^ ALL_30;
+		long lowTooBig = ((word & ALL_0F) + ALL_06) & ALL_10;
+		return leadingZeroBytes(wrongHigh | lowTooBig);
+	}
+
+	/**
+	 * @return how many of the eight bytes in word, starting from the lowest,
+	 * are spaces before the first one that is not
+	 */
+	static int spaceRun(long word) {
+		return leadingZeroBytes(word ^ ALL_20);
+	}
+
+	/**
+	 * @return how many bytes of word, starting from the lowest, are zero
+	 * before the first one that is not
+	 */
+	private static int leadingZeroBytes(long word) {
+		//sets the high bit of every byte that is not zero, without carrying between bytes
+		long nonZero = (((word & ALL_7F) + ALL_7F) | word) & ALL_80;
+		return Long.numberOfTrailingZeros(nonZero) >>> 3;
+	}
+
+	/**
+	 * converts an infix expression into a postfix expression
+	 * @param infix bytes holding an infix algebraic expression
+	 * @param offset the index of the expression's first byte
+	 * @param length the number of bytes in the expression
+	 * @return the postfix form, as bytes
+	 * @throws InvalidNotationFormatException if the infix expression is
+	 * invalid in anyway.
+	 */
+	public static byte[] convertInfixToPostfix(byte[] infix, int offset, int length) {
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			workspace.prepare(length);
+			return convertInfixToPostfix(infix, offset, length, workspace);
+		} finally {
+			workspace.release();
+		}
+	}
+
+	/**
+	 * converts the infix expression between the buffer's position and limit
+	 * into a postfix expression. The buffer's position is not changed
+	 * @param infix a buffer holding an infix algebraic expression
+	 * @return the postfix form, as bytes
+	 * @throws InvalidNotationFormatException if the infix expression is
+	 * invalid in anyway.
+	 */
+	public static byte[] convertInfixToPostfix(ByteBuffer infix) {
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			int length = infix.remaining();
+			workspace.prepare(length);
+			if(infix.hasArray())
+				return convertInfixToPostfix(infix.array(), infix.arrayOffset() + infix.position(), length, workspace);
+
+			//a direct or read only buffer is copied in one bulk get first
+			byte[] input = workspace.byteInput();
+			infix.get(infix.position(), input, 0, length);
+			return convertInfixToPostfix(input, 0, length, workspace);
+		} finally {
+			workspace.release();
+		}
+	}
+
+	private static byte[] convertInfixToPostfix(byte[] infix, int offset, int length, NotationWorkspace workspace) {
+		byte[] postfix = workspace.byteOutput();
+		byte[] operators = workspace.byteOperators();
+		int postfixLength = 0;
+		int operatorTop = -1;
+		int numOperands = 0;
+		int numOperators = 0;
+		int end = offset + length;
+		int index = offset;
+
+		while(index < end) {
+			byte nextByte = infix[index];
+			switch(CLASSES[nextByte & 0xFF]) {
+				case DIGIT:
+					//every digit is its own operand and goes straight to the output
+					int run = end - index >= Long.BYTES ? digitRun((long) LONGS.get(infix, index)) : 1;
+					System.arraycopy(infix, index, postfix, postfixLength, run);
+					postfixLength += run;
+					numOperands += run;
+					index += run;
+					break;
+
+				case SKIP:
+					index += nextByte == ' ' && end - index >= Long.BYTES ? spaceRun((long) LONGS.get(infix, index)) : 1;
+					break;
+
+				case OPERATOR:
+					OperatorRegistry.Operator operator = Notation.STANDARD_OPERATORS.operator((char) nextByte);
+					while(operatorTop >= 0) {
+						byte topOperator = operators[operatorTop];
+						int topPrecedence = topOperator == '(' ? 0
+								: Notation.STANDARD_OPERATORS.operator((char) topOperator).getPrecedence();
+						if(topPrecedence < operator.getPrecedence()
+								|| (topPrecedence == operator.getPrecedence() && operator.isRightAssociative()))
+							break;
+						postfix[postfixLength++] = operators[operatorTop--];
+					}
+					operators[++operatorTop] = nextByte;
+					numOperators++;
+					index++;
+					break;
+
+				case OPEN:
+					operators[++operatorTop] = nextByte;
+					index++;
+					break;
+
+				case CLOSE:
+					while(true) {
+						if(operatorTop < 0)
+							throw new InvalidNotationFormatException("ERROR: Unbalanced Parentheses");
+						byte topOperator = operators[operatorTop--];
+						if(topOperator == '(')
+							break;
+						postfix[postfixLength++] = topOperator;
+					}
+					index++;
+					break;
+
+				default:
+					//function calls are left to Notation
+					String text = new String(infix, offset, length, StandardCharsets.ISO_8859_1);
+					return Notation.convertInfixToPostfix(text, workspace).getBytes(StandardCharsets.ISO_8859_1);
+			}
+		}
+
+		while(operatorTop >= 0) {
+			byte topOperator = operators[operatorTop--];
+			if(topOperator == '(')
+				throw new InvalidNotationFormatException("ERROR: Unbalanced Parentheses");
+			postfix[postfixLength++] = topOperator;
+		}
+
+		if(numOperators > numOperands - 1)
+			throw new InvalidNotationFormatException("ERROR: Too many operators");
+
+		if(numOperators < numOperands - 1)
+			throw new InvalidNotationFormatException("ERROR: not enough operators");
+
+		return Arrays.copyOf(postfix, postfixLength);
+	}
+
+	/**
+	 * Evaluates a postfix expression and returns it's value as a double
+	 * @param postfix bytes holding a postfix expression
+	 * @param offset the index of the expression's first byte
+	 * @param length the number of bytes in the expression
+	 * @return a double representing the postfix expression's value
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public static double evaluatePostfixExpression(byte[] postfix, int offset, int length) {
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			workspace.prepare(length);
+			return evaluatePostfixExpression(postfix, offset, length, workspace);
+		} finally {
+			workspace.release();
+		}
+	}
+
+	/**
+	 * Evaluates the postfix expression between the buffer's position and
+	 * limit. The buffer's position is not changed
+	 * @param postfix a buffer holding a postfix expression
+	 * @return a double representing the postfix expression's value
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public static double evaluatePostfixExpression(ByteBuffer postfix) {
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			int length = postfix.remaining();
+			workspace.prepare(length);
+			if(postfix.hasArray())
+				return evaluatePostfixExpression(postfix.array(), postfix.arrayOffset() + postfix.position(), length, workspace);
+
+			byte[] input = workspace.byteInput();
+			postfix.get(postfix.position(), input, 0, length);
+			return evaluatePostfixExpression(input, 0, length, workspace);
+		} finally {
+			workspace.release();
+		}
+	}
+
+	private static double evaluatePostfixExpression(byte[] postfix, int offset, int length, NotationWorkspace workspace) {
+		double[] values = workspace.doubleValues();
+		int topIndex = -1;
+		int end = offset + length;
+		int index = offset;
+
+		while(index < end) {
+			byte nextByte = postfix[index];
+			switch(CLASSES[nextByte & 0xFF]) {
+				case DIGIT:
+					if(end - index >= Long.BYTES) {
+						//push the whole run of digits out of the one load
+						long word = (long) LONGS.get(postfix, index);
+						int run = digitRun(word);
+						for(int digit = 0; digit < run; digit++) {
+							values[++topIndex] = (word & 0x0F);
+							word >>>= Byte.SIZE;
+						}
+						index += run;
+					}
+					else {
+						values[++topIndex] = nextByte - '0';
+						index++;
+					}
+					break;
+
+				case SKIP: case COMMA:
+					index += nextByte == ' ' && end - index >= Long.BYTES ? spaceRun((long) LONGS.get(postfix, index)) : 1;
+					break;
+
+				case OPERATOR:
+					if(topIndex < 1)
+						throw new InvalidNotationFormatException("ERROR: too few operands");
+					topIndex--;
+					values[topIndex] = Notation.STANDARD_OPERATORS.operator((char) nextByte)
+							.apply(values[topIndex], values[topIndex + 1]);
+					index++;
+					break;
+
+				case OPEN: case CLOSE:
+					throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
+
+				default:
+					//function calls are left to Notation
+					return Notation.evaluatePostfixExpression(new String(postfix, offset, length, StandardCharsets.ISO_8859_1), workspace);
+			}
+		}
+
+		//an empty expression underflows the stack, the same as in Notation
+		if(topIndex < 0)
+			throw new StackUnderflowException();
+
+		if(topIndex > 0)
+			throw new InvalidNotationFormatException("ERROR: Too many operands");
+
+		return values[0];
+	}
+}
@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Semaphore;
+
+/**
+ * a sink that writes batch results to a file without making the thread
+ * producing them wait for the disk.
+ *
+ * Results are appended, one per line, to one of two direct ByteBuffers.
+ * When it fills up it is handed to an AsynchronousFileChannel and the
+ * other buffer takes over, so the next batch is formatted while the last
+ * one is being written. Only one buffer is ever being written, at the
+ * file position right after the one before it, so the file holds the
+ * results in exactly the order they were written. The producer only
+ * waits if it fills the second buffer before the first one is on its way
+ * to disk.
+ *
+ * flush is the completion barrier: when it returns every result written
+ * so far has been handed to the file. close flushes too, so a writer
+ * used in a try with resources always finishes cleanly. A failed write
+ * is reported by the next call that waits for one.
+ *
+ * A writer must not be used by two threads at once.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class AsyncResultWriter implements AutoCloseable {
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	private final AsynchronousFileChannel channel;
+	private ByteBuffer filling;
+	private ByteBuffer spare;
+	//the file position the next buffer will be written at
+	private long position;
+
+	//held while a buffer is being written
+	private final Semaphore writing = new Semaphore(1);
+	private final Flusher flusher = new Flusher();
+	private volatile Throwable failure;
+	private boolean closed;
+
+	/**
+	 * writes a buffer to the end, a partial write carries on from where it stopped
+	 */
+	private final class Flusher implements CompletionHandler<Integer, ByteBuffer> {
+		//only touched by the one write in progress
+		private long writePosition;
+
+		@Override
+		public void completed(Integer written, ByteBuffer buffer) {
+			writePosition += written;
+			if(buffer.hasRemaining()) {
+				try {
+					channel.write(buffer, writePosition, buffer, this);
+				} catch(RuntimeException e) {
+					failed(e, buffer);
+				}
+				return;
+			}
+			buffer.clear();
+			writing.release();
+		}
+
+		@Override
+		public void failed(Throwable e, ByteBuffer buffer) {
+			failure = e;
+			buffer.clear();
+			writing.release();
+		}
+	}
+
+	/**
+	 * opens path for writing, replacing anything already there
+	 * @param path the file the results are written to
+	 * @throws IOException if the file can't be opened
+	 */
+	public AsyncResultWriter(Path path) throws IOException {
+		this(path, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param path the file the results are written to
+	 * @param bufferSize the size of each of the two buffers
+	 * @throws IOException if the file can't be opened
+	 * @throws IllegalArgumentException if bufferSize is less than one
+	 */
+	public AsyncResultWriter(Path path, int bufferSize) throws IOException {
+		if(bufferSize < 1)
+			throw new IllegalArgumentException();
+		channel = AsynchronousFileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		filling = ByteBuffer.allocateDirect(bufferSize);
+		spare = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Writes result on a line of its own, as Latin-1
+	 * @param result the text of one result
+	 * @throws IOException if an earlier write failed
+	 * @throws IllegalStateException if the writer is closed
+	 */
+	public void write(CharSequence result) throws IOException {
+		checkOpen();
+		for(int index = 0; index < result.length(); index++) {
+			if(!filling.hasRemaining())
+				dispatch();
+			filling.put((byte) result.charAt(index));
+		}
+		if(!filling.hasRemaining())
+			dispatch();
+		filling.put((byte) '\n');
+	}
+
+	/**
+	 * Writes value on a line of its own, the way Double.toString writes it
+	 * @param value the value of one result
+	 * @throws IOException if an earlier write failed
+	 * @throws IllegalStateException if the writer is closed
+	 */
+	public void write(double value) throws IOException {
+		write(Double.toString(value));
+	}
+
+	/**
+	 * Writes the value of a successful result, or its error message for a
+	 * failed one, on a line of its own
+	 * @param result the outcome of one item
+	 * @throws IOException if an earlier write failed
+	 * @throws IllegalStateException if the writer is closed
+	 */
+	public void write(NotationResult<?> result) throws IOException {
+		write(result.isSuccess() ? String.valueOf(result.getValue()) : result.getError().getMessage());
+	}
+
+	/**
+	 * Writes bytes that are already formatted, as they are
+	 * @param bytes an array holding the bytes
+	 * @param offset the index of the first byte to write
+	 * @param length the number of bytes to write
+	 * @throws IOException if an earlier write failed
+	 * @throws IllegalStateException if the writer is closed
+	 */
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		checkOpen();
+		int end = offset + length;
+		while(offset < end) {
+			if(!filling.hasRemaining())
+				dispatch();
+			int count = Math.min(end - offset, filling.remaining());
+			filling.put(bytes, offset, count);
+			offset += count;
+		}
+	}
+
+	/**
+	 * hands the filling buffer to the channel and switches to the spare.
+	 * Waits for the write before, so the spare is free again and only
+	 * one buffer is ever being written
+	 */
+	private void dispatch() throws IOException {
+		awaitWrite();
+		ByteBuffer full = filling;
+		filling = spare;
+		spare = full;
+
+		full.flip();
+		flusher.writePosition = position;
+		position += full.remaining();
+		try {
+			channel.write(full, flusher.writePosition, full, flusher);
+		} catch(RuntimeException e) {
+			flusher.failed(e, full);
+			throw e;
+		}
+	}
+
+	/**
+	 * waits until no buffer is being written, then reports a failed write
+	 */
+	private void awaitWrite() throws IOException {
+		writing.acquireUninterruptibly();
+		Throwable failed = failure;
+		if(failed != null) {
+			//the buffer was dropped, the writer stays failed
+			writing.release();
+			throw failed instanceof IOException ? (IOException) failed : new IOException(failed);
+		}
+	}
+
+	/**
+	 * Hands everything written so far to the file and waits until it has
+	 * been written. This is the writer's completion barrier
+	 * @throws IOException if a write failed
+	 */
+	public void flush() throws IOException {
+		checkOpen();
+		if(filling.position() > 0)
+			dispatch();
+		awaitWrite();
+		writing.release();
+	}
+
+	/**
+	 * Returns the number of bytes written so far, including those still
+	 * being written or waiting in a buffer
+	 * @return the length the file will have once everything is written
+	 */
+	public long size() {
+		return position + filling.position();
+	}
+
+	private void checkOpen() {
+		if(closed)
+			throw new IllegalStateException();
+	}
+
+	/**
+	 * Flushes and closes the file. Closing a closed writer does nothing
+	 * @throws IOException if a write failed or the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		try {
+			flush();
+		} finally {
+			closed = true;
+			channel.close();
+		}
+	}
+}
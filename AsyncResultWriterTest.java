@@ -0,0 +1,69 @@
+ 
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncResultWriterTest {
+	private Path file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = Files.createTempFile("results", ".txt");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testOrderIsKept() throws Exception {
+		StringBuilder expected = new StringBuilder();
+		//buffers much smaller than the output, so most writes wait on the one before
+		try(AsyncResultWriter writer = new AsyncResultWriter(file, 7)) {
+			for(int count = 0; count < 2000; count++) {
+				String postfix = (count % 10) + "" + ((count / 10) % 10) + "*";
+				writer.write(Notation.evaluatePostfixExpression(postfix));
+				expected.append(Notation.evaluatePostfixExpression(postfix)).append('\n');
+				if(count % 500 == 0) {
+					writer.write(Notation.convertInfixToPostfix("(1+2)*3"));
+					expected.append("12+3*\n");
+				}
+			}
+			byte[] bytes = "already formatted\n".getBytes(StandardCharsets.ISO_8859_1);
+			writer.write(bytes, 0, bytes.length);
+			expected.append("already formatted\n");
+
+			writer.flush();
+			assertEquals(expected.length(), writer.size());
+			assertEquals(expected.toString(), Files.readString(file));
+
+			writer.write(NotationResult.success("12+", 3.0));
+			writer.write(NotationResult.failure("1+", new InvalidNotationFormatException("ERROR: too few operands")));
+			expected.append("3.0\nERROR: too few operands\n");
+		}
+		assertEquals(expected.toString(), Files.readString(file));
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		AsyncResultWriter writer = new AsyncResultWriter(file);
+		writer.write("only line");
+		writer.close();
+		writer.close();
+		assertEquals("only line\n", Files.readString(file));
+		try {
+			writer.write("too late");
+			assertTrue("This should have thrown an IllegalStateException", false);
+		}
+		catch (IllegalStateException e) {
+			assertTrue("This should have thrown an IllegalStateException", true);
+		}
+	}
+}
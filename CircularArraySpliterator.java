@@ -0,0 +1,121 @@
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * a Spliterator over a run of elements in a backing array that may
+ * wrap around the end of the array, like the one used by MyQueue.
+ * A run that does not wrap, like the one used by MyStack, is just
+ * the special case where head is 0.
+ *
+ * Positions are logical, position i is stored at (head + i) % length,
+ * so splitting only halves the position range and never copies.
+ * It is fail-fast, the owner's modification count is compared with
+ * the one seen when the spliterator was created.
+ * @author Christopher Perez Lebron
+ *
+ * @param <T> a generic type representing any object type
+ */
+final class CircularArraySpliterator<T> implements Spliterator<T> {
+	private final Object[] array;
+	private final int head;
+	private int origin;
+	private final int fence;
+	private final IntSupplier modCount;
+	private final int expectedModCount;
+
+	/**
+	 * @param array the backing array
+	 * @param head the index of logical position 0
+	 * @param origin the first logical position covered
+	 * @param fence one past the last logical position covered
+	 * @param modCount reads the owner's current modification count
+	 * @param expectedModCount the owner's modification count when the
+	 * spliterator was created
+	 */
+	CircularArraySpliterator(Object[] array, int head, int origin, int fence,
+			IntSupplier modCount, int expectedModCount) {
+		this.array = array;
+		this.head = head;
+		this.origin = origin;
+		this.fence = fence;
+		this.modCount = modCount;
+		this.expectedModCount = expectedModCount;
+	}
+
+	/**
+	 * translates a logical position into an index of the backing array
+	 */
+	@SuppressWarnings("unchecked")
+	private T elementAt(int position) {
+		int index = head + position;
+		if(index >= array.length)
+			index -= array.length;
+		return (T) array[index];
+	}
+
+	private void checkForComodification() {
+		if(modCount.getAsInt() != expectedModCount)
+			throw new ConcurrentModificationException();
+	}
+
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if(action == null)
+			throw new NullPointerException();
+		if(origin >= fence)
+			return false;
+
+		T element = elementAt(origin);
+		origin++;
+		action.accept(element);
+		checkForComodification();
+		return true;
+	}
+
+	public void forEachRemaining(Consumer<? super T> action) {
+		if(action == null)
+			throw new NullPointerException();
+
+		/*
+		 * the run is walked as at most two plain array ranges so the
+		 * loop body does not need the wraparound check
+		 */
+		int start = head + origin;
+		int end = head + fence;
+		int firstEnd = Math.min(end, array.length);
+		for(int index = start; index < firstEnd; index++) {
+			@SuppressWarnings("unchecked")
+			T element = (T) array[index];
+			action.accept(element);
+		}
+		for(int index = Math.max(start, array.length); index < end; index++) {
+			@SuppressWarnings("unchecked")
+			T element = (T) array[index - array.length];
+			action.accept(element);
+		}
+
+		origin = fence;
+		checkForComodification();
+	}
+
+	public Spliterator<T> trySplit() {
+		int middle = (origin + fence) >>> 1;
+		if(middle <= origin)
+			return null;
+
+		//the prefix goes to the new spliterator so encounter order is kept
+		Spliterator<T> prefix = new CircularArraySpliterator<>(array, head, origin, middle,
+				modCount, expectedModCount);
+		origin = middle;
+		return prefix;
+	}
+
+	public long estimateSize() {
+		return fence - origin;
+	}
+
+	public int characteristics() {
+		return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+	}
+}
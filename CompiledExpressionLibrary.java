@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * a library of infix formulas that have already been converted to postfix
+ * and validated, stored in a binary file so a program can load them at
+ * startup without running Notation on every one of them again.
+ *
+ * The file is laid out as
+ *
+ *   header   magic, version, formula count, data length,
+ *            CRC32 of the index and CRC32 of the data (6 ints)
+ *   index    offset, length and max stack depth of each formula (3 ints each)
+ *   data     the postfix form of every formula as ASCII bytes
+ *
+ * all in big endian. load memory maps the file and only checks the header
+ * and the checksums, the formulas themselves are read straight out of the
+ * mapping when they are evaluated. Because every formula was validated
+ * when the file was written, evaluate skips the checks
+ * Notation.evaluatePostfixExpression makes and sizes its stack from the
+ * stored depth.
+ *
+ * Operators and function calls are looked up in Notation's standard
+ * OperatorRegistry, a call is stored the way Notation writes it, as its
+ * name followed by [n] when it takes a variable number of arguments.
+ *
+ * Like Notation, THIS CLASS ONLY WORKS WITH SINGLE DIGIT OPERANDS.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class CompiledExpressionLibrary {
+	private static final int MAGIC = 0x4E544E4C; // "NTNL"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 6 * Integer.BYTES;
+	private static final int INDEX_ENTRY_BYTES = 3 * Integer.BYTES;
+	private static final OperatorRegistry REGISTRY = Notation.STANDARD_OPERATORS;
+
+	private final ByteBuffer index;
+	private final ByteBuffer data;
+	//the data as characters, so function names can be looked up in place
+	private final CharSequence text;
+	private final int count;
+
+	private CompiledExpressionLibrary(ByteBuffer index, ByteBuffer data, int count) {
+		this.index = index;
+		this.data = data;
+		this.text = new DataText(data);
+		this.count = count;
+	}
+
+	/**
+	 * the ASCII data read as characters without copying it
+	 */
+	private static final class DataText implements CharSequence {
+		private final ByteBuffer data;
+
+		private DataText(ByteBuffer data) {
+			this.data = data;
+		}
+
+		@Override
+		public int length() {
+			return data.limit();
+		}
+
+		@Override
+		public char charAt(int position) {
+			return (char) (data.get(position) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			StringBuilder characters = new StringBuilder(end - start);
+			for(int position = start; position < end; position++)
+				characters.append(charAt(position));
+			return characters.toString();
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length()).toString();
+		}
+	}
+
+	/**
+	 * converts every infix formula to postfix, validates it and writes the
+	 * library to path, replacing anything already there
+	 * @param path the file to write
+	 * @param infixFormulas the formulas, formula i is evaluated with evaluate(i)
+	 * @throws InvalidNotationFormatException if any formula is invalid, the
+	 * message says which one
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(Path path, List<String> infixFormulas) throws IOException {
+		ByteBuffer indexBuffer = ByteBuffer.allocate(infixFormulas.size() * INDEX_ENTRY_BYTES);
+		byte[][] compiled = new byte[infixFormulas.size()][];
+		int dataLength = 0;
+
+		for(int formula = 0; formula < infixFormulas.size(); formula++) {
+			byte[] postfix;
+			int depth;
+			try {
+				String converted = Notation.convertInfixToPostfix(infixFormulas.get(formula));
+				depth = maxDepth(converted);
+				postfix = compile(converted);
+			} catch(InvalidNotationFormatException e) {
+				throw new InvalidNotationFormatException("ERROR: formula " + formula + ": " + e.getMessage());
+			}
+			compiled[formula] = postfix;
+			indexBuffer.putInt(dataLength).putInt(postfix.length).putInt(depth);
+			dataLength = Math.addExact(dataLength, postfix.length);
+		}
+		indexBuffer.flip();
+
+		ByteBuffer dataBuffer = ByteBuffer.allocate(dataLength);
+		for(byte[] postfix : compiled)
+			dataBuffer.put(postfix);
+		dataBuffer.flip();
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC).putInt(VERSION).putInt(infixFormulas.size()).putInt(dataLength);
+		header.putInt(checksum(indexBuffer)).putInt(checksum(dataBuffer));
+		header.flip();
+
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer[] sections = {header, indexBuffer, dataBuffer};
+			while(header.hasRemaining() || indexBuffer.hasRemaining() || dataBuffer.hasRemaining())
+				channel.write(sections);
+		}
+	}
+
+	/**
+	 * memory maps a library written by write
+	 * @param path the file to load
+	 * @return the library, its formulas can be evaluated right away
+	 * @throws IOException if the file can't be read, is not a library, was
+	 * written by a different version or fails its checksums
+	 */
+	public static CompiledExpressionLibrary load(Path path) throws IOException {
+		MappedByteBuffer mapped;
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			//the mapping stays valid after the channel is closed
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if(mapped.capacity() < HEADER_BYTES || mapped.getInt(0) != MAGIC)
+			throw new IOException("ERROR: not an expression library");
+		if(mapped.getInt(4) != VERSION)
+			throw new IOException("ERROR: unsupported expression library version " + mapped.getInt(4));
+
+		int count = mapped.getInt(8);
+		int dataLength = mapped.getInt(12);
+		long expectedLength = HEADER_BYTES + (long) count * INDEX_ENTRY_BYTES + dataLength;
+		if(count < 0 || dataLength < 0 || expectedLength != mapped.capacity())
+			throw new IOException("ERROR: expression library is truncated");
+
+		ByteBuffer index = mapped.slice(HEADER_BYTES, count * INDEX_ENTRY_BYTES);
+		ByteBuffer data = mapped.slice(HEADER_BYTES + count * INDEX_ENTRY_BYTES, dataLength);
+		if(checksum(index) != mapped.getInt(16) || checksum(data) != mapped.getInt(20))
+			throw new IOException("ERROR: expression library checksum mismatch");
+
+		return new CompiledExpressionLibrary(index, data, count);
+	}
+
+	/**
+	 * Returns the number of formulas in the library
+	 * @return the number of formulas
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the postfix form of a formula
+	 * @param formula the position of the formula in the list it was written from
+	 * @return the postfix expression stored for it
+	 * @throws IndexOutOfBoundsException if there is no such formula
+	 */
+	public String getPostfix(int formula) {
+		int entry = entryOf(formula);
+		int offset = index.getInt(entry);
+		int length = index.getInt(entry + Integer.BYTES);
+
+		StringBuilder postfix = new StringBuilder(length);
+		for(int position = offset; position < offset + length; position++)
+			postfix.append((char) data.get(position));
+		return postfix.toString();
+	}
+
+	/**
+	 * Evaluates a formula. It was validated when the library was written,
+	 * so unlike Notation.evaluatePostfixExpression no checks are made and
+	 * the value stack is a double array of exactly the depth it needs
+	 * @param formula the position of the formula in the list it was written from
+	 * @return the value of the formula
+	 * @throws IndexOutOfBoundsException if there is no such formula
+	 */
+	public double evaluate(int formula) {
+		int entry = entryOf(formula);
+		int offset = index.getInt(entry);
+		int length = index.getInt(entry + Integer.BYTES);
+		double[] values = new double[index.getInt(entry + 2 * Integer.BYTES)];
+
+		int topIndex = -1;
+		int position = offset;
+		while(position < offset + length) {
+			byte nextByte = data.get(position);
+			if(nextByte >= '0' && nextByte <= '9')
+				values[++topIndex] = nextByte - '0';
+			else if(nextByte >= 'a' && nextByte <= 'z' || nextByte >= 'A' && nextByte <= 'Z') {
+				OperatorRegistry.Function function = Notation.functionAt(text, position, REGISTRY);
+				long call = Notation.readFunctionCall(text, position + function.getName().length(), function);
+				int arguments = (int) call;
+				//the arguments are the top of the stack, the result replaces them
+				int first = topIndex - arguments + 1;
+				values[first] = function.apply(values, first, arguments);
+				topIndex = first;
+				position = (int) (call >>> 32);
+				continue;
+			}
+			else if(REGISTRY.operator((char) nextByte) != null) {
+				topIndex--;
+				values[topIndex] = REGISTRY.operator((char) nextByte).apply(values[topIndex], values[topIndex + 1]);
+			}
+			position++;
+		}
+		return values[0];
+	}
+
+	private int entryOf(int formula) {
+		if(formula < 0 || formula >= count)
+			throw new IndexOutOfBoundsException();
+		return formula * INDEX_ENTRY_BYTES;
+	}
+
+	/**
+	 * turns a postfix string into ASCII bytes. Digits from other scripts,
+	 * which Character.isDigit also accepts, are stored as their ASCII digit
+	 */
+	private static byte[] compile(String postfix) {
+		byte[] bytes = new byte[postfix.length()];
+		for(int position = 0; position < postfix.length(); position++) {
+			char nextCharacter = postfix.charAt(position);
+			if(Character.isDigit(nextCharacter))
+				bytes[position] = (byte) ('0' + Character.digit(nextCharacter, 10));
+			else
+				bytes[position] = (byte) nextCharacter;
+		}
+		return bytes;
+	}
+
+	/**
+	 * finds the deepest the value stack gets while evaluating the postfix
+	 * expression, which also checks that every operator has two operands,
+	 * every call has its arguments and exactly one value is left at the end
+	 * @throws InvalidNotationFormatException if the expression is invalid
+	 */
+	private static int maxDepth(String postfix) {
+		int depth = 0;
+		int maxDepth = 0;
+		int position = 0;
+		while(position < postfix.length()) {
+			char nextCharacter = postfix.charAt(position);
+			if(Character.isDigit(nextCharacter))
+				maxDepth = Math.max(maxDepth, ++depth);
+			else if(Character.isLetter(nextCharacter)) {
+				OperatorRegistry.Function function = Notation.functionAt(postfix, position, REGISTRY);
+				long call = Notation.readFunctionCall(postfix, position + function.getName().length(), function);
+				if(depth < (int) call)
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+				depth = depth - (int) call + 1;
+				maxDepth = Math.max(maxDepth, depth);
+				position = (int) (call >>> 32);
+				continue;
+			}
+			else if(REGISTRY.operator(nextCharacter) != null && --depth < 1)
+				throw new InvalidNotationFormatException("ERROR: too few operands");
+			position++;
+		}
+		if(depth != 1)
+			throw new InvalidNotationFormatException("ERROR: Too many operands");
+		return maxDepth;
+	}
+
+	private static int checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		//duplicate so the caller's position is left alone
+		crc.update(buffer.duplicate());
+		return (int) crc.getValue();
+	}
+}
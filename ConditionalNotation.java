@@ -0,0 +1,824 @@
+import java.util.Arrays;
+
+/**
+ * A static utility class that extends the Notation grammar with comparison
+ * operators (&lt; &lt;= &gt; &gt;= == !=), logical &amp;&amp; and ||, and the
+ * conditional c ? a : b. For expressions made only of the arithmetic
+ * operators and function calls it produces exactly what Notation produces.
+ *
+ * The arithmetic operators and the functions come from an OperatorRegistry,
+ * Notation's standard one unless another is passed in, with the registry's
+ * precedences and associativity. They all bind tighter than the
+ * comparisons. A letter that does not start the name of a known function
+ * is an error. The characters &lt; &gt; = ! &amp; | ? and : always belong
+ * to the operators of this class, a registry operator written with one of
+ * them can't be used here.
+ *
+ * Comparisons and logical operators produce 1 for true and 0 for false,
+ * and any value other than 0 counts as true. In postfix form the
+ * conditional is the single token ? taking three operands (c a b ?).
+ *
+ * The right operand of &amp;&amp; and || and the branch of a conditional
+ * that is not taken are never evaluated. evaluatePostfixExpression does
+ * this while interpreting the postfix string, compile turns the postfix
+ * string into a Program whose jumps skip the unused code.
+ *
+ * Neither evaluator recurses, so the depth of an expression is limited
+ * only by memory.
+ *
+ * This is a class of its own rather than more operators in the registry
+ * Notation reads. Skipping an operand needs to know where it starts
+ * before it is evaluated, which Notation's one pass over the postfix
+ * string does not, and the registry's operators are single characters
+ * applied to two values that are both evaluated.
+ *
+ * THIS CLASS ONLY WORKS WITH SINGLE DIGIT OPERANDS
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class ConditionalNotation {
+
+	/*
+	 * internally every operator is a single char. The ones that are two
+	 * characters long in the text get a letter of their own
+	 */
+	private static final char LESS_EQUAL = 'L';
+	private static final char GREATER_EQUAL = 'G';
+	private static final char EQUAL = 'E';
+	private static final char NOT_EQUAL = 'N';
+	private static final char AND = 'A';
+	private static final char OR = 'O';
+	private static final char CONDITIONAL = '?';
+	//stands for a conditional on the operator stack once its ':' has been read
+	private static final char ELSE = ':';
+	//registry precedences are raised by this much so arithmetic binds tighter than comparisons
+	private static final int ARITHMETIC_LEVEL = 5;
+	private static final OperatorRegistry REGISTRY = Notation.STANDARD_OPERATORS;
+
+	private ConditionalNotation() {
+	}
+
+	/**
+	 * converts a infix expression into postfix expression
+	 * using a stack and a queue.
+	 * @param infix a string representing a infix expression
+	 * @return a string representing infix's postfix form
+	 * @throws InvalidNotationFormatException if the infix expression is
+	 * invalid in anyway.
+	 */
+	public static String convertInfixToPostfix(String infix) {
+		return convertInfixToPostfix(infix, REGISTRY);
+	}
+
+	/**
+	 * converts a infix expression into postfix expression using the
+	 * arithmetic operators and functions in registry. A function call is
+	 * written the way Notation writes it
+	 * @param infix a string representing a infix expression
+	 * @param registry the arithmetic operators and functions infix may use
+	 * @return a string representing infix's postfix form
+	 * @throws InvalidNotationFormatException if the infix expression is
+	 * invalid in anyway.
+	 */
+	public static String convertInfixToPostfix(String infix, OperatorRegistry registry) {
+		MyDeque<Character> operatorStack = new MyDeque<>();
+		StringBuilder postfix = new StringBuilder(infix.length());
+		int numOperands = 0;
+		int numOperators = 0;
+
+		/*
+		 * for every function call that is still open, the size of the
+		 * operator stack just after its ( was pushed, the number of commas
+		 * seen plus one, and numOperands - numOperators when it was opened,
+		 * the same bookkeeping Notation does
+		 */
+		int[] callStackSizes = null;
+		int[] callArguments = null;
+		int[] callValues = null;
+		int callTop = -1;
+
+		int index = 0;
+		while(index < infix.length()) {
+			char nextCharacter = infix.charAt(index);
+
+			if(Character.isDigit(nextCharacter)) {
+				emit(postfix, nextCharacter);
+				numOperands++;
+				index++;
+				continue;
+			}
+
+			if(Character.isLetter(nextCharacter)) {
+				OperatorRegistry.Function function = Notation.functionAt(infix, index, registry);
+				int nameEnd = index + function.getName().length();
+				if(nameEnd == infix.length() || infix.charAt(nameEnd) != '(')
+					throw new InvalidNotationFormatException("ERROR: " + function.getName() + " must be followed by (");
+
+				if(callStackSizes == null) {
+					callStackSizes = new int[infix.length()];
+					callArguments = new int[infix.length()];
+					callValues = new int[infix.length()];
+				}
+				operatorStack.push(function.getToken());
+				operatorStack.push('(');
+				callTop++;
+				callStackSizes[callTop] = operatorStack.size();
+				callArguments[callTop] = 1;
+				callValues[callTop] = numOperands - numOperators;
+				index = nameEnd + 1;
+				continue;
+			}
+
+			char operator = operatorAt(infix, index, registry);
+			index += textOf(operator).length();
+
+			switch(operator) {
+				case '(':
+					operatorStack.push(operator);
+					break;
+
+				case ')':
+					while(true) {
+						if(operatorStack.isEmpty())
+							throw new InvalidNotationFormatException("ERROR: Unbalanced Parentheses");
+						char topOperator = operatorStack.pop();
+						if(topOperator == '(')
+							break;
+						if(topOperator == CONDITIONAL)
+							throw new InvalidNotationFormatException("ERROR: ? without :");
+						emit(postfix, topOperator);
+					}
+
+					//the ( that was just popped may be the one of a function call
+					if(callTop >= 0 && operatorStack.size() + 1 == callStackSizes[callTop]) {
+						OperatorRegistry.Function function = registry.function(operatorStack.pop());
+						int arguments = callArguments[callTop];
+						if(numOperands - numOperators - callValues[callTop] != arguments)
+							throw new InvalidNotationFormatException("ERROR: invalid arguments to " + function.getName());
+						if(!function.accepts(arguments))
+							throw new InvalidNotationFormatException("ERROR: wrong number of arguments to " + function.getName());
+
+						emitFunction(postfix, function, arguments);
+						//n arguments become one value, the same as n - 1 binary operators
+						numOperators += arguments - 1;
+						callTop--;
+					}
+					break;
+
+				case ',':
+					while(operatorStack.isEmpty() || operatorStack.top() != '(') {
+						if(operatorStack.isEmpty())
+							throw new InvalidNotationFormatException("ERROR: , outside of a function call");
+						if(operatorStack.top() == CONDITIONAL)
+							throw new InvalidNotationFormatException("ERROR: ? without :");
+						emit(postfix, operatorStack.pop());
+					}
+					if(callTop < 0 || operatorStack.size() != callStackSizes[callTop])
+						throw new InvalidNotationFormatException("ERROR: , outside of a function call");
+					callArguments[callTop]++;
+					break;
+
+				case CONDITIONAL:
+					//only operators that bind tighter than ? are finished by it
+					popWhile(operatorStack, postfix, precedenceOf(CONDITIONAL, registry), false, registry);
+					operatorStack.push(CONDITIONAL);
+					numOperators++;
+					break;
+
+				case ELSE:
+					//everything since the matching ? is the middle operand
+					while(operatorStack.isEmpty() || operatorStack.top() != CONDITIONAL) {
+						if(operatorStack.isEmpty() || operatorStack.top() == '(')
+							throw new InvalidNotationFormatException("ERROR: : without ?");
+						emit(postfix, operatorStack.pop());
+					}
+					operatorStack.pop();
+					operatorStack.push(ELSE);
+					numOperators++;
+					break;
+
+				case 0:
+					//not an operator, ignored just like Notation ignores it
+					break;
+
+				default:
+					/*
+					 * a right associative operator such as ^ only pops operators
+					 * that bind tighter than it does. Every other operator also pops
+					 * the ones that bind as tightly, which makes it left associative
+					 */
+					popWhile(operatorStack, postfix, precedenceOf(operator, registry),
+							!isRightAssociative(operator, registry), registry);
+					operatorStack.push(operator);
+					numOperators++;
+					break;
+			}
+		}
+
+		while(!operatorStack.isEmpty()) {
+			char topOperator = operatorStack.pop();
+			if(topOperator == '(')
+				throw new InvalidNotationFormatException("ERROR: Unbalanced Parentheses");
+			if(topOperator == CONDITIONAL)
+				throw new InvalidNotationFormatException("ERROR: ? without :");
+			emit(postfix, topOperator);
+		}
+
+		//a conditional counts as two operators since it takes three operands
+		if(numOperators > numOperands - 1)
+			throw new InvalidNotationFormatException("ERROR: Too many operators");
+
+		if(numOperators < numOperands - 1)
+			throw new InvalidNotationFormatException("ERROR: not enough operators");
+
+		return postfix.toString();
+	}
+
+	/**
+	 * pops operators to the output while they bind tighter than precedence,
+	 * or as tightly when inclusive is true. Stops at a parenthesis or at an
+	 * unfinished conditional
+	 */
+	private static void popWhile(MyDeque<Character> operatorStack, StringBuilder postfix,
+			int precedence, boolean inclusive, OperatorRegistry registry) {
+		while(!operatorStack.isEmpty()) {
+			char topOperator = operatorStack.top();
+			if(topOperator == '(' || topOperator == CONDITIONAL)
+				return;
+			int topPrecedence = precedenceOf(topOperator, registry);
+			if(topPrecedence < precedence || (topPrecedence == precedence && !inclusive))
+				return;
+			emit(postfix, operatorStack.pop());
+		}
+	}
+
+	/**
+	 * appends a token to the postfix output. ELSE is written as the ?
+	 * token. A space is put between &lt; or &gt; and an operator starting
+	 * with =, otherwise &lt; followed by == would read back as &lt;= and =
+	 */
+	private static void emit(StringBuilder postfix, char token) {
+		String text = token == ELSE ? textOf(CONDITIONAL) : textOf(token);
+		int last = postfix.length() - 1;
+		if(last >= 0 && (postfix.charAt(last) == '<' || postfix.charAt(last) == '>') && text.charAt(0) == '=')
+			postfix.append(' ');
+		postfix.append(text);
+	}
+
+	/**
+	 * appends a function call to the postfix output the way Notation
+	 * writes it, with the number of arguments in brackets if the function
+	 * does not take a fixed number
+	 */
+	private static void emitFunction(StringBuilder postfix, OperatorRegistry.Function function, int arguments) {
+		//a name right after another one would read back as one name
+		if(postfix.length() > 0 && Character.isLetter(postfix.charAt(postfix.length() - 1)))
+			postfix.append(' ');
+		postfix.append(function.getName());
+		if(function.isVariadic())
+			postfix.append('[').append(arguments).append(']');
+	}
+
+	/**
+	 * reads the operator that starts at index. The characters of the
+	 * comparison, logical and conditional operators are taken before the
+	 * registry is asked, anything else is an operator if the registry has it
+	 * @return the operator, or 0 if the character is not part of one
+	 * @throws InvalidNotationFormatException if it is half of a two
+	 * character operator
+	 */
+	private static char operatorAt(String text, int index, OperatorRegistry registry) {
+		char first = text.charAt(index);
+		char second = index + 1 < text.length() ? text.charAt(index + 1) : 0;
+		switch(first) {
+			case '(': case ')': case ',': case '?': case ':':
+				return first;
+			case '<':
+				return second == '=' ? LESS_EQUAL : '<';
+			case '>':
+				return second == '=' ? GREATER_EQUAL : '>';
+			case '=':
+				if(second == '=')
+					return EQUAL;
+				break;
+			case '!':
+				if(second == '=')
+					return NOT_EQUAL;
+				break;
+			case '&':
+				if(second == '&')
+					return AND;
+				break;
+			case '|':
+				if(second == '|')
+					return OR;
+				break;
+			default:
+				return registry.operator(first) != null ? first : 0;
+		}
+		throw new InvalidNotationFormatException("ERROR: unknown operator " + first);
+	}
+
+	/**
+	 * @return how an operator is written, a single space for 0 so that
+	 * skipping it moves ahead one character
+	 */
+	private static String textOf(char operator) {
+		switch(operator) {
+			case LESS_EQUAL: return "<=";
+			case GREATER_EQUAL: return ">=";
+			case EQUAL: return "==";
+			case NOT_EQUAL: return "!=";
+			case AND: return "&&";
+			case OR: return "||";
+			case 0: return " ";
+			default: return String.valueOf(operator);
+		}
+	}
+
+	/**
+	 * @return the precedence level of an operator, higher binds tighter.
+	 * An arithmetic operator has its registry precedence raised above
+	 * every level used here, so the arithmetic levels keep Notation's order
+	 */
+	private static int precedenceOf(char operator, OperatorRegistry registry) {
+		switch(operator) {
+			case '<': case '>': case LESS_EQUAL: case GREATER_EQUAL:
+				return 5;
+			case EQUAL: case NOT_EQUAL:
+				return 4;
+			case AND:
+				return 3;
+			case OR:
+				return 2;
+			case CONDITIONAL: case ELSE:
+				return 1;
+			default:
+				OperatorRegistry.Operator arithmetic = registry.operator(operator);
+				if(arithmetic == null)
+					throw new IllegalArgumentException();
+				return arithmetic.getPrecedence() + ARITHMETIC_LEVEL;
+		}
+	}
+
+	/**
+	 * @return true for an arithmetic operator the registry makes right
+	 * associative, the operators of this class are all left associative
+	 */
+	private static boolean isRightAssociative(char operator, OperatorRegistry registry) {
+		switch(operator) {
+			case '<': case '>': case LESS_EQUAL: case GREATER_EQUAL:
+			case EQUAL: case NOT_EQUAL: case AND: case OR:
+				return false;
+			default:
+				return registry.operator(operator).isRightAssociative();
+		}
+	}
+
+	/**
+	 * applies a binary operator that always uses both of its operands
+	 */
+	private static double calculate(double operand1, char operator, double operand2, OperatorRegistry registry) {
+		switch(operator) {
+			case '<': return operand1 < operand2 ? 1 : 0;
+			case '>': return operand1 > operand2 ? 1 : 0;
+			case LESS_EQUAL: return operand1 <= operand2 ? 1 : 0;
+			case GREATER_EQUAL: return operand1 >= operand2 ? 1 : 0;
+			case EQUAL: return operand1 == operand2 ? 1 : 0;
+			case NOT_EQUAL: return operand1 != operand2 ? 1 : 0;
+			default: return registry.operator(operator).apply(operand1, operand2);
+		}
+	}
+
+	private static boolean isTrue(double value) {
+		return value != 0;
+	}
+
+	/**
+	 * a postfix expression split into single char tokens, with the index of
+	 * the first token of the subexpression that ends at each token. That is
+	 * what lets an evaluator find where an operand starts without evaluating
+	 * it, and so skip it. A function call is one token, its function's
+	 * token char, with its number of arguments kept next to it
+	 */
+	private static final class Parsed {
+		private final OperatorRegistry registry;
+		private final char[] tokens;
+		private final int[] start;
+		//the number of arguments of each function call token
+		private final int[] arguments;
+		private final int count;
+
+		private Parsed(String postfix, OperatorRegistry registry) {
+			this.registry = registry;
+			tokens = new char[postfix.length()];
+			start = new int[postfix.length()];
+			arguments = new int[postfix.length()];
+			int tokenCount = 0;
+			int depth = 0;
+			int index = 0;
+			while(index < postfix.length()) {
+				char nextCharacter = postfix.charAt(index);
+				if(Character.isDigit(nextCharacter)) {
+					tokens[tokenCount] = (char) ('0' + Character.digit(nextCharacter, 10));
+					start[tokenCount] = tokenCount;
+					tokenCount++;
+					depth++;
+					index++;
+					continue;
+				}
+
+				char operator;
+				int operands;
+				if(Character.isLetter(nextCharacter)) {
+					OperatorRegistry.Function function = Notation.functionAt(postfix, index, registry);
+					long call = Notation.readFunctionCall(postfix, index + function.getName().length(), function);
+					operator = function.getToken();
+					operands = (int) call;
+					arguments[tokenCount] = operands;
+					index = (int) (call >>> 32);
+				}
+				else {
+					operator = operatorAt(postfix, index, registry);
+					index += textOf(operator).length();
+					if(operator == 0 || operator == ',')
+						continue;
+					if(operator == '(' || operator == ')')
+						throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
+					if(operator == ELSE)
+						throw new InvalidNotationFormatException("ERROR: postfix conditional is written as ?");
+					operands = operator == CONDITIONAL ? 3 : 2;
+				}
+
+				if(depth < operands)
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+				depth -= operands - 1;
+
+				//walk back over the operands, each one starts right after the previous one
+				int first = tokenCount - 1;
+				for(int operand = 0; operand < operands; operand++)
+					first = start[first] - (operand < operands - 1 ? 1 : 0);
+				tokens[tokenCount] = operator;
+				start[tokenCount] = first;
+				tokenCount++;
+			}
+
+			if(depth == 0)
+				throw new InvalidNotationFormatException("ERROR: too few operands");
+			if(depth > 1)
+				throw new InvalidNotationFormatException("ERROR: Too many operands");
+			count = tokenCount;
+		}
+
+		/**
+		 * @return the function called by the token at index, or null if
+		 * it is not a call
+		 */
+		private OperatorRegistry.Function functionAt(int index) {
+			return registry.function(tokens[index]);
+		}
+
+		/**
+		 * @return the number of operands of the operator or call at index
+		 */
+		private int operandCount(int index) {
+			char token = tokens[index];
+			if(token == CONDITIONAL)
+				return 3;
+			return functionAt(index) != null ? arguments[index] : 2;
+		}
+
+		/**
+		 * @return the index of the last token of operand number operand
+		 * (0 is the leftmost) of the operator at index
+		 */
+		private int operandEnd(int index, int operand) {
+			int operands = operandCount(index);
+			int end = index - 1;
+			for(int skipped = operands - 1; skipped > operand; skipped--)
+				end = start[end] - 1;
+			return end;
+		}
+	}
+
+	/**
+	 * Evaluates a postfix expression, skipping the right operand of
+	 * &amp;&amp; and || when the left one decides the result and the branch
+	 * of a conditional that is not taken
+	 * @param postfix a string representing a postfix expression
+	 * @return a double representing the postfix expression's value
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public static double evaluatePostfixExpression(String postfix) {
+		return evaluatePostfixExpression(postfix, REGISTRY);
+	}
+
+	/**
+	 * Evaluates a postfix expression using the arithmetic operators and
+	 * functions in registry, skipping operands the same way
+	 * evaluatePostfixExpression(String) does
+	 * @param postfix a string representing a postfix expression
+	 * @param registry the arithmetic operators and functions postfix may use
+	 * @return a double representing the postfix expression's value
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public static double evaluatePostfixExpression(String postfix, OperatorRegistry registry) {
+		Parsed parsed = new Parsed(postfix, registry);
+
+		/*
+		 * an explicit stack of frames instead of recursion. A frame is a
+		 * token index and how far along evaluating that token is
+		 */
+		int[] frameIndex = new int[parsed.count + 1];
+		int[] frameState = new int[parsed.count + 1];
+		double[] values = new double[parsed.count + 1];
+		int frameTop = 0;
+		int valueTop = -1;
+		frameIndex[0] = parsed.count - 1;
+		frameState[0] = 0;
+
+		while(frameTop >= 0) {
+			int index = frameIndex[frameTop];
+			int state = frameState[frameTop]++;
+			char token = parsed.tokens[index];
+			int child = -1;
+
+			if(token >= '0' && token <= '9') {
+				values[++valueTop] = token - '0';
+				frameTop--;
+			}
+			else if(token == AND || token == OR) {
+				if(state == 0)
+					child = parsed.operandEnd(index, 0);
+				else if(state == 1) {
+					//the left operand alone decides the result, so the right one is skipped
+					if(isTrue(values[valueTop]) == (token == OR)) {
+						values[valueTop] = token == OR ? 1 : 0;
+						frameTop--;
+					}
+					else {
+						valueTop--;
+						child = parsed.operandEnd(index, 1);
+					}
+				}
+				else {
+					values[valueTop] = isTrue(values[valueTop]) ? 1 : 0;
+					frameTop--;
+				}
+			}
+			else if(token == CONDITIONAL) {
+				if(state == 0)
+					child = parsed.operandEnd(index, 0);
+				else if(state == 1) {
+					//only the branch that was picked is evaluated, its value is the result
+					boolean condition = isTrue(values[valueTop--]);
+					child = parsed.operandEnd(index, condition ? 1 : 2);
+				}
+				else
+					frameTop--;
+			}
+			else {
+				//a binary operator or a function call, every operand is evaluated in order
+				int operands = parsed.operandCount(index);
+				if(state < operands)
+					child = parsed.operandEnd(index, state);
+				else {
+					OperatorRegistry.Function function = parsed.functionAt(index);
+					if(function != null) {
+						valueTop -= operands - 1;
+						values[valueTop] = function.apply(values, valueTop, operands);
+					}
+					else {
+						valueTop--;
+						values[valueTop] = calculate(values[valueTop], token, values[valueTop + 1], registry);
+					}
+					frameTop--;
+				}
+			}
+
+			if(child >= 0) {
+				frameTop++;
+				frameIndex[frameTop] = child;
+				frameState[frameTop] = 0;
+			}
+		}
+
+		return values[0];
+	}
+
+	/**
+	 * Compiles a postfix expression into a Program, where &amp;&amp;, || and
+	 * the conditional become jumps over the code that does not need to run
+	 * @param postfix a string representing a postfix expression
+	 * @return the compiled expression
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public static Program compile(String postfix) {
+		return compile(postfix, REGISTRY);
+	}
+
+	/**
+	 * Compiles a postfix expression that uses the arithmetic operators and
+	 * functions in registry. The Program keeps using registry, so it should
+	 * not be changed while the Program is in use
+	 * @param postfix a string representing a postfix expression
+	 * @param registry the arithmetic operators and functions postfix may use
+	 * @return the compiled expression
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public static Program compile(String postfix, OperatorRegistry registry) {
+		Parsed parsed = new Parsed(postfix, registry);
+		//every token becomes one instruction, except a conditional which takes two
+		int[] code = new int[4 * parsed.count];
+		int pc = 0;
+		//the function and number of arguments of every CALL, indexed by its operand
+		OperatorRegistry.Function[] calls = new OperatorRegistry.Function[parsed.count];
+		int[] callArguments = new int[parsed.count];
+		int numCalls = 0;
+
+		int[] frameIndex = new int[parsed.count + 1];
+		int[] frameState = new int[parsed.count + 1];
+		int[] framePatch = new int[parsed.count + 1];
+		int frameTop = 0;
+		frameIndex[0] = parsed.count - 1;
+		frameState[0] = 0;
+
+		while(frameTop >= 0) {
+			int index = frameIndex[frameTop];
+			int state = frameState[frameTop]++;
+			char token = parsed.tokens[index];
+			int child = -1;
+
+			if(token >= '0' && token <= '9') {
+				code[pc++] = Program.PUSH;
+				code[pc++] = token - '0';
+				frameTop--;
+			}
+			else if(token == AND || token == OR) {
+				if(state == 0)
+					child = parsed.operandEnd(index, 0);
+				else if(state == 1) {
+					code[pc++] = token == AND ? Program.AND_JUMP : Program.OR_JUMP;
+					framePatch[frameTop] = pc++;
+					child = parsed.operandEnd(index, 1);
+				}
+				else {
+					code[pc++] = Program.TO_BOOLEAN;
+					code[pc++] = 0;
+					code[framePatch[frameTop]] = pc;
+					frameTop--;
+				}
+			}
+			else if(token == CONDITIONAL) {
+				if(state == 0)
+					child = parsed.operandEnd(index, 0);
+				else if(state == 1) {
+					code[pc++] = Program.JUMP_IF_FALSE;
+					framePatch[frameTop] = pc++;
+					child = parsed.operandEnd(index, 1);
+				}
+				else if(state == 2) {
+					code[pc++] = Program.JUMP;
+					int jumpToEnd = pc++;
+					//the false branch starts here
+					code[framePatch[frameTop]] = pc;
+					framePatch[frameTop] = jumpToEnd;
+					child = parsed.operandEnd(index, 2);
+				}
+				else {
+					code[framePatch[frameTop]] = pc;
+					frameTop--;
+				}
+			}
+			else {
+				int operands = parsed.operandCount(index);
+				if(state < operands)
+					child = parsed.operandEnd(index, state);
+				else {
+					OperatorRegistry.Function function = parsed.functionAt(index);
+					if(function != null) {
+						calls[numCalls] = function;
+						callArguments[numCalls] = operands;
+						code[pc++] = Program.CALL;
+						code[pc++] = numCalls++;
+					}
+					else {
+						code[pc++] = Program.BINARY;
+						code[pc++] = token;
+					}
+					frameTop--;
+				}
+			}
+
+			if(child >= 0) {
+				frameTop++;
+				frameIndex[frameTop] = child;
+				frameState[frameTop] = 0;
+			}
+		}
+
+		return new Program(Arrays.copyOf(code, pc), parsed.count, registry,
+				Arrays.copyOf(calls, numCalls), Arrays.copyOf(callArguments, numCalls));
+	}
+
+	/**
+	 * a compiled expression. Its code is a list of (opcode, operand) pairs
+	 * run on a value stack, with jumps around the code of operands that do
+	 * not have to be evaluated
+	 */
+	public static final class Program {
+		private static final int PUSH = 0;
+		private static final int BINARY = 1;
+		//if the top value is false replace it with 0 and jump, else drop it
+		private static final int AND_JUMP = 2;
+		//if the top value is true replace it with 1 and jump, else drop it
+		private static final int OR_JUMP = 3;
+		private static final int TO_BOOLEAN = 4;
+		//drops the top value and jumps if it was false
+		private static final int JUMP_IF_FALSE = 5;
+		private static final int JUMP = 6;
+		//calls the function of call site operand on the values at the top
+		private static final int CALL = 7;
+
+		private final int[] code;
+		private final int maxDepth;
+		private final OperatorRegistry registry;
+		private final OperatorRegistry.Function[] calls;
+		private final int[] callArguments;
+
+		private Program(int[] code, int maxDepth, OperatorRegistry registry,
+				OperatorRegistry.Function[] calls, int[] callArguments) {
+			this.code = code;
+			this.maxDepth = maxDepth;
+			this.registry = registry;
+			this.calls = calls;
+			this.callArguments = callArguments;
+		}
+
+		/**
+		 * Runs the program
+		 * @return the value of the expression
+		 */
+		public double evaluate() {
+			double[] values = new double[maxDepth];
+			int top = -1;
+			int pc = 0;
+			while(pc < code.length) {
+				int operand = code[pc + 1];
+				switch(code[pc]) {
+					case PUSH:
+						values[++top] = operand;
+						pc += 2;
+						break;
+					case BINARY:
+						top--;
+						values[top] = calculate(values[top], (char) operand, values[top + 1], registry);
+						pc += 2;
+						break;
+					case CALL:
+						top -= callArguments[operand] - 1;
+						values[top] = calls[operand].apply(values, top, callArguments[operand]);
+						pc += 2;
+						break;
+					case AND_JUMP:
+						if(!isTrue(values[top])) {
+							values[top] = 0;
+							pc = operand;
+						}
+						else {
+							top--;
+							pc += 2;
+						}
+						break;
+					case OR_JUMP:
+						if(isTrue(values[top])) {
+							values[top] = 1;
+							pc = operand;
+						}
+						else {
+							top--;
+							pc += 2;
+						}
+						break;
+					case TO_BOOLEAN:
+						values[top] = isTrue(values[top]) ? 1 : 0;
+						pc += 2;
+						break;
+					case JUMP_IF_FALSE:
+						pc = isTrue(values[top--]) ? pc + 2 : operand;
+						break;
+					case JUMP:
+						pc = operand;
+						break;
+					default:
+						throw new IllegalStateException();
+				}
+			}
+			return values[0];
+		}
+	}
+}
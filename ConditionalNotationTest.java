@@ -0,0 +1,154 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ConditionalNotationTest {
+
+	private static double interpret(String infix) {
+		return ConditionalNotation.evaluatePostfixExpression(ConditionalNotation.convertInfixToPostfix(infix));
+	}
+
+	private static double compiled(String infix) {
+		return ConditionalNotation.compile(ConditionalNotation.convertInfixToPostfix(infix)).evaluate();
+	}
+
+	@Test
+	public void testArithmeticMatchesNotation() {
+		String[] infixes = {"(3+(((5*7)-(((8/2)-1)*4))*6))", "((3*(5+4))+2)", "2^3^2", "8-4-2", "9%4+1", "1+2*3-4/2"};
+		for(String infix : infixes) {
+			String postfix = ConditionalNotation.convertInfixToPostfix(infix);
+			assertEquals(Notation.convertInfixToPostfix(infix), postfix);
+			assertEquals(Notation.evaluatePostfixExpression(postfix), ConditionalNotation.evaluatePostfixExpression(postfix), 0.001);
+			assertEquals(Notation.evaluatePostfixExpression(postfix), ConditionalNotation.compile(postfix).evaluate(), 0.001);
+		}
+	}
+
+	@Test
+	public void testConvertInfixToPostfix() {
+		assertEquals("12+3<", ConditionalNotation.convertInfixToPostfix("1+2<3"));
+		assertEquals("12<=34>=&&", ConditionalNotation.convertInfixToPostfix("1<=2&&3>=4"));
+		assertEquals("12==34!=||5&&", ConditionalNotation.convertInfixToPostfix("(1==2||3!=4)&&5"));
+		assertEquals("12&&3||", ConditionalNotation.convertInfixToPostfix("1&&2||3"));
+		assertEquals("123&&||", ConditionalNotation.convertInfixToPostfix("1||2&&3"));
+		assertEquals("12<34?", ConditionalNotation.convertInfixToPostfix("1<2 ? 3 : 4"));
+		//the conditional is right associative
+		assertEquals("12134??", ConditionalNotation.convertInfixToPostfix("1 ? 2 : 1 ? 3 : 4"));
+		assertEquals("1212?3?", ConditionalNotation.convertInfixToPostfix("1 ? 2 ? 1 : 2 : 3"));
+		//< followed by == is written with a space so it does not read back as <= and =
+		assertEquals("12<34< ==", ConditionalNotation.convertInfixToPostfix("(1<2)==(3<4)"));
+	}
+
+	@Test
+	public void testComparisonAndLogic() {
+		String[] infixes = {"1<2", "2<1", "2<=2", "3>=4", "4>3", "5==5", "5!=5", "1+1==2",
+				"1&&0", "0||3", "2&&3", "0||0", "(1<2)==(3<4)", "(1>2)!=(3<4)"};
+		double[] expected = {1, 0, 1, 0, 1, 1, 0, 1, 0, 1, 1, 0, 1, 1};
+		for(int index = 0; index < infixes.length; index++) {
+			assertEquals(infixes[index], expected[index], interpret(infixes[index]), 0.001);
+			assertEquals(infixes[index], expected[index], compiled(infixes[index]), 0.001);
+		}
+	}
+
+	@Test
+	public void testConditional() {
+		String[] infixes = {"1 ? 7 : 8", "0 ? 7 : 8", "3<2 ? 7 : 8*2", "1 ? 0 ? 5 : 6 : 7",
+				"0 ? 5 : 0 ? 6 : 7", "2*(1 ? 3 : 4)+1", "(1 ? 2 : 3) ? 4 : 5"};
+		double[] expected = {7, 8, 16, 6, 7, 7, 4};
+		for(int index = 0; index < infixes.length; index++) {
+			assertEquals(infixes[index], expected[index], interpret(infixes[index]), 0.001);
+			assertEquals(infixes[index], expected[index], compiled(infixes[index]), 0.001);
+		}
+	}
+
+	@Test
+	public void testSkippedBranchesAreNotEvaluated() {
+		//1/0 would make the result infinite if it was evaluated
+		String[] infixes = {"0&&1/0", "1||1/0", "1 ? 2 : 1/0", "0 ? 1/0 : 2", "0&&(0||1/0)", "1||(1 ? 1/0 : 2)"};
+		double[] expected = {0, 1, 2, 2, 0, 1};
+		for(int index = 0; index < infixes.length; index++) {
+			assertEquals(infixes[index], expected[index], interpret(infixes[index]), 0.001);
+			assertEquals(infixes[index], expected[index], compiled(infixes[index]), 0.001);
+		}
+	}
+
+	@Test
+	public void testDeepExpression() {
+		StringBuilder infix = new StringBuilder("1");
+		for(int count = 0; count < 50000; count++)
+			infix.append(count % 2 == 0 ? "&&1" : "||0");
+		assertEquals(1, interpret(infix.toString()), 0.001);
+		assertEquals(1, compiled(infix.toString()), 0.001);
+	}
+
+	@Test
+	public void testFunctions() {
+		String[] infixes = {"sqrt(9)+1", "max(1,2)", "max(1,2,3,4,5)", "abs(1-2)*3",
+				"min(1+2, 3*4)^2", "max(max(1,3,5),min(1,2))"};
+		for(String infix : infixes) {
+			String postfix = ConditionalNotation.convertInfixToPostfix(infix);
+			assertEquals(Notation.convertInfixToPostfix(infix), postfix);
+			assertEquals(infix, Notation.evaluatePostfixExpression(postfix), interpret(infix), 0.001);
+			assertEquals(infix, Notation.evaluatePostfixExpression(postfix), compiled(infix), 0.001);
+		}
+
+		//calls mix with the operators of this class, and their arguments can be skipped too
+		assertEquals("12<34?1max[2]9sqrt==", ConditionalNotation.convertInfixToPostfix("max(1<2 ? 3 : 4, 1) == sqrt(9)"));
+		String[] mixed = {"max(1<2 ? 3 : 4, 1) == sqrt(9)", "0 && sqrt(1/0)", "1 ? min(5, 2) : max(1/0, 1)",
+				"max(0, 0 || 2)", "abs(0 ? 1 : 0-7)"};
+		double[] expected = {1, 0, 2, 1, 7};
+		for(int index = 0; index < mixed.length; index++) {
+			assertEquals(mixed[index], expected[index], interpret(mixed[index]), 0.001);
+			assertEquals(mixed[index], expected[index], compiled(mixed[index]), 0.001);
+		}
+	}
+
+	@Test
+	public void testRegistry() {
+		OperatorRegistry registry = OperatorRegistry.standard();
+		//# is a custom operator that binds tighter than + and comparisons
+		registry.registerOperator('#', 2, false, (left, right) -> 10 * left + right);
+		registry.registerFunction("twice", 1, 1, (arguments, offset, count) -> 2 * arguments[offset]);
+
+		String postfix = ConditionalNotation.convertInfixToPostfix("1+2#3 == twice(9+3) ? 4#2 : 0", registry);
+		assertEquals(Notation.convertInfixToPostfix("1+2#3", registry), postfix.substring(0, 5));
+		assertEquals(42, ConditionalNotation.evaluatePostfixExpression(postfix, registry), 0.001);
+		assertEquals(42, ConditionalNotation.compile(postfix, registry).evaluate(), 0.001);
+
+		//the standard registry does not know either of them
+		String[] unknown = {"twice(1)", "1#2"};
+		for(String infix : unknown) {
+			try {
+				ConditionalNotation.convertInfixToPostfix(infix);
+				fail(infix + " should not convert");
+			} catch(InvalidNotationFormatException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidExpressions() {
+		String[] invalidInfix = {"1=2", "1&2", "1|2", "1!2", "1?2", "1:2", "(1?2):3", "1<", "(1<2",
+				"x+1", "foo(1)", "sqrt 9", "sqrt(1,2)", "1,2", "max(1 ? 2, 3)", "max(1,)"};
+		for(String infix : invalidInfix) {
+			try {
+				ConditionalNotation.convertInfixToPostfix(infix);
+				fail(infix + " should not convert");
+			} catch(InvalidNotationFormatException e) {
+			}
+		}
+
+		String[] invalidPostfix = {"12?", "1<", "123<", "12:", "(12<)", "", "1x+", "1max", "1max[2]", "12max[0]"};
+		for(String postfix : invalidPostfix) {
+			try {
+				ConditionalNotation.evaluatePostfixExpression(postfix);
+				fail(postfix + " should not evaluate");
+			} catch(InvalidNotationFormatException e) {
+			}
+			try {
+				ConditionalNotation.compile(postfix);
+				fail(postfix + " should not compile");
+			} catch(InvalidNotationFormatException e) {
+			}
+		}
+	}
+}
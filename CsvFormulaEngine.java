@@ -0,0 +1,633 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * a static utility class that evaluates one infix formula over every row
+ * of a CSV file and writes the result column to another file.
+ *
+ * The first line of the CSV file names the columns, every other line is
+ * a row of numbers separated by commas. The formula refers to columns by
+ * name, and besides them uses the operators and functions of an
+ * OperatorRegistry, parentheses, and number literals, which unlike in
+ * Notation may have more than one digit and a decimal point. For example
+ * with the header "price,quantity,discount" the formula
+ * "price*quantity-max(discount,0)" is allowed.
+ *
+ * The file is memory mapped in chunks of whole lines, and the chunks are
+ * parsed and evaluated in parallel on a ForkJoinPool. Only the columns
+ * the formula uses are parsed, straight out of the mapping into double
+ * buffers that each thread reuses from chunk to chunk. The formula is
+ * compiled once into a short program that runs once per chunk, each
+ * instruction going over every row of the chunk, so there is no per row
+ * interpretation and nothing is boxed.
+ *
+ * Line i of the output file is the formula's value on row i, written
+ * with Double.toString through an AsyncResultWriter. Blank lines in the
+ * input are skipped.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class CsvFormulaEngine {
+	//bytes of the file each chunk covers, before it is extended to the end of a line
+	static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+	//how far ahead of the next line boundary is looked for at a time
+	private static final int SCAN_WINDOW = 1 << 16;
+
+	//instruction opcodes
+	private static final int PUSH_COLUMN = 0;
+	private static final int PUSH_CONSTANT = 1;
+	private static final int BINARY = 2;
+	private static final int CALL = 3;
+
+	//powers of ten that are exact as doubles, for the fast number parser
+	private static final double[] POWERS_OF_TEN = new double[23];
+	private static final int MAX_EXACT_DIGITS = 15;
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for(int power = 1; power < POWERS_OF_TEN.length; power++)
+			POWERS_OF_TEN[power] = 10 * POWERS_OF_TEN[power - 1];
+	}
+
+	private static final ThreadLocal<ChunkBuffers> BUFFERS = ThreadLocal.withInitial(ChunkBuffers::new);
+
+	private CsvFormulaEngine() {
+	}
+
+	/**
+	 * one step of a compiled formula
+	 */
+	private static final class Instruction {
+		private final int opcode;
+		//the column slot for PUSH_COLUMN, the argument count for CALL
+		private final int index;
+		private final double constant;
+		private final OperatorRegistry.Operator operator;
+		private final OperatorRegistry.Function function;
+
+		private Instruction(int opcode, int index, double constant,
+				OperatorRegistry.Operator operator, OperatorRegistry.Function function) {
+			this.opcode = opcode;
+			this.index = index;
+			this.constant = constant;
+			this.operator = operator;
+			this.function = function;
+		}
+	}
+
+	/**
+	 * a formula compiled against a header
+	 */
+	private static final class Formula {
+		private final Instruction[] program;
+		//the slot each field of a row is parsed into, or -1 if the formula doesn't use it
+		private final int[] slotOfField;
+		private final int slots;
+		private final int maxDepth;
+
+		private Formula(Instruction[] program, int[] slotOfField, int slots, int maxDepth) {
+			this.program = program;
+			this.slotOfField = slotOfField;
+			this.slots = slots;
+			this.maxDepth = maxDepth;
+		}
+	}
+
+	/**
+	 * the column and evaluation buffers of one thread, grown as needed and
+	 * never shrunk, so a thread that evaluates many chunks allocates them once
+	 */
+	private static final class ChunkBuffers {
+		private double[][] columns = new double[0][];
+		private double[][] scratch = new double[0][];
+		private double[][] stack = new double[0][];
+		private double[] arguments = new double[4];
+		private int rows;
+
+		/**
+		 * makes room for slots columns and a stack maxDepth deep, rowCapacity rows each
+		 */
+		private void prepare(int slots, int maxDepth, int rowCapacity) {
+			if(columns.length < slots)
+				columns = newRows(Arrays.copyOf(columns, slots));
+			if(scratch.length < maxDepth) {
+				scratch = newRows(Arrays.copyOf(scratch, maxDepth));
+				stack = new double[maxDepth][];
+			}
+			ensureRows(rowCapacity);
+		}
+
+		/**
+		 * gives the buffers added at the end of buffers as many rows as the others
+		 */
+		private double[][] newRows(double[][] buffers) {
+			for(int index = 0; index < buffers.length; index++) {
+				if(buffers[index] == null)
+					buffers[index] = new double[rows];
+			}
+			return buffers;
+		}
+
+		private void ensureRows(int needed) {
+			if(needed <= rows)
+				return;
+			int newRows = Math.max(needed, 2 * rows);
+			for(int slot = 0; slot < columns.length; slot++)
+				columns[slot] = Arrays.copyOf(columns[slot], newRows);
+			for(int level = 0; level < scratch.length; level++)
+				scratch[level] = new double[newRows];
+			rows = newRows;
+		}
+	}
+
+	/**
+	 * Evaluates formula over every row of input on the common pool and
+	 * writes one value per line to output, replacing anything already there
+	 * @param input a CSV file whose first line names its columns
+	 * @param formula an infix formula over the column names
+	 * @param output the file to write the values to
+	 * @return the number of rows evaluated
+	 * @throws InvalidNotationFormatException if the formula is invalid or
+	 * names a column the file doesn't have
+	 * @throws NumberFormatException if a field the formula uses is not a
+	 * number, or a row is missing it
+	 * @throws IOException if a file can't be read or written
+	 */
+	public static long evaluate(Path input, String formula, Path output) throws IOException {
+		return evaluate(input, formula, output, Notation.STANDARD_OPERATORS, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Evaluates formula over every row of input with the operators and
+	 * functions in registry, on pool
+	 * @param input a CSV file whose first line names its columns
+	 * @param formula an infix formula over the column names
+	 * @param output the file to write the values to
+	 * @param registry the operators and functions the formula may use
+	 * @param pool the pool the chunks are parsed and evaluated on
+	 * @return the number of rows evaluated
+	 * @throws InvalidNotationFormatException if the formula is invalid or
+	 * names a column the file doesn't have
+	 * @throws NumberFormatException if a field the formula uses is not a
+	 * number, or a row is missing it
+	 * @throws IOException if a file can't be read or written
+	 */
+	public static long evaluate(Path input, String formula, Path output, OperatorRegistry registry, ForkJoinPool pool) throws IOException {
+		return evaluate(input, formula, output, registry, pool, DEFAULT_CHUNK_SIZE);
+	}
+
+	static long evaluate(Path input, String formula, Path output, OperatorRegistry registry,
+			ForkJoinPool pool, int chunkSize) throws IOException {
+		try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+				AsyncResultWriter out = new AsyncResultWriter(output)) {
+			long size = in.size();
+			long headerEnd = nextLineStart(in, size, 0);
+			Formula compiled = compile(formula, readHeader(in, headerEnd), registry);
+
+			//at most this many chunks are mapped and waiting to be written at once
+			int window = 2 * pool.getParallelism();
+			ArrayDeque<ChunkTask> running = new ArrayDeque<>();
+			long rows = 0;
+			long start = headerEnd;
+			try {
+				while(start < size || !running.isEmpty()) {
+					while(start < size && running.size() < window) {
+						long end = start + chunkSize >= size ? size : nextLineStart(in, size, start + chunkSize);
+						ChunkTask task = new ChunkTask(in, start, end, compiled);
+						pool.execute(task);
+						running.add(task);
+						start = end;
+					}
+					ChunkTask oldest = running.remove();
+					byte[] values = oldest.join();
+					rows += oldest.rows;
+					//written in the background while the next chunks are evaluated
+					out.write(values, 0, values.length);
+				}
+			} catch(UncheckedIOException e) {
+				throw e.getCause();
+			} catch(RuntimeException e) {
+				//join may rethrow a task's exception wrapped in a new one of the same type
+				throw e.getCause() != null && e.getCause().getClass() == e.getClass() ? (RuntimeException) e.getCause() : e;
+			} finally {
+				for(ChunkTask task : running)
+					task.cancel(false);
+			}
+			return rows;
+		}
+	}
+
+	/**
+	 * @return the index just past the first '\n' at or after position, or
+	 * size if there isn't one
+	 */
+	private static long nextLineStart(FileChannel in, long size, long position) throws IOException {
+		while(position < size) {
+			int length = (int) Math.min(SCAN_WINDOW, size - position);
+			ByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+			for(int index = 0; index < length; index++) {
+				if(window.get(index) == '\n')
+					return position + index + 1;
+			}
+			position += length;
+		}
+		return size;
+	}
+
+	private static String[] readHeader(FileChannel in, long headerEnd) throws IOException {
+		byte[] header = new byte[(int) headerEnd];
+		in.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd).get(header);
+		String line = new String(header, StandardCharsets.ISO_8859_1);
+		String[] names = line.strip().split(",", -1);
+		for(int field = 0; field < names.length; field++)
+			names[field] = names[field].strip();
+		return names;
+	}
+
+	/**
+	 * compiles an infix formula with the shunting yard algorithm into a
+	 * postfix program, resolving every name that is not followed by '('
+	 * to a column of the header
+	 */
+	private static Formula compile(String formula, String[] header, OperatorRegistry registry) {
+		List<Instruction> program = new ArrayList<>();
+		int[] slotOfField = new int[header.length];
+		Arrays.fill(slotOfField, -1);
+		int slots = 0;
+
+		/*
+		 * the operator stack holds operator symbols, '(' for a plain
+		 * parenthesis and FUNCTION_MARK + token for the parenthesis of a
+		 * call, whose argument count is kept beside it
+		 */
+		final int FUNCTION_MARK = 1 << 16;
+		int[] operators = new int[formula.length() + 1];
+		int[] argumentCounts = new int[formula.length() + 1];
+		int operatorTop = -1;
+		boolean expectOperand = true;
+		int depth = 0;
+		int maxDepth = 0;
+		int index = 0;
+
+		while(index < formula.length()) {
+			char nextCharacter = formula.charAt(index);
+			if(Character.isWhitespace(nextCharacter)) {
+				index++;
+			}
+			else if(Character.isDigit(nextCharacter) || nextCharacter == '.') {
+				if(!expectOperand)
+					throw new InvalidNotationFormatException("ERROR: not enough operators");
+				int end = index;
+				while(end < formula.length() && (Character.isDigit(formula.charAt(end)) || formula.charAt(end) == '.'))
+					end++;
+				double constant;
+				try {
+					constant = Double.parseDouble(formula.substring(index, end));
+				} catch(NumberFormatException e) {
+					throw new InvalidNotationFormatException("ERROR: " + formula.substring(index, end) + " is not a number");
+				}
+				program.add(new Instruction(PUSH_CONSTANT, 0, constant, null, null));
+				maxDepth = Math.max(maxDepth, ++depth);
+				expectOperand = false;
+				index = end;
+			}
+			else if(Character.isLetter(nextCharacter) || nextCharacter == '_') {
+				if(!expectOperand)
+					throw new InvalidNotationFormatException("ERROR: not enough operators");
+				int end = index;
+				while(end < formula.length() && (Character.isLetterOrDigit(formula.charAt(end)) || formula.charAt(end) == '_'))
+					end++;
+				String name = formula.substring(index, end);
+				int next = end;
+				while(next < formula.length() && Character.isWhitespace(formula.charAt(next)))
+					next++;
+
+				if(next < formula.length() && formula.charAt(next) == '(') {
+					OperatorRegistry.Function function = registry.function(name);
+					if(function == null)
+						throw new InvalidNotationFormatException("ERROR: unknown function " + name);
+					operators[++operatorTop] = FUNCTION_MARK + function.getToken();
+					argumentCounts[operatorTop] = 0;
+					index = next + 1;
+				}
+				else {
+					int field = Arrays.asList(header).indexOf(name);
+					if(field < 0)
+						throw new InvalidNotationFormatException("ERROR: unknown column " + name);
+					if(slotOfField[field] < 0)
+						slotOfField[field] = slots++;
+					program.add(new Instruction(PUSH_COLUMN, slotOfField[field], 0, null, null));
+					maxDepth = Math.max(maxDepth, ++depth);
+					expectOperand = false;
+					index = end;
+				}
+			}
+			else if(nextCharacter == '(') {
+				if(!expectOperand)
+					throw new InvalidNotationFormatException("ERROR: not enough operators");
+				operators[++operatorTop] = '(';
+				index++;
+			}
+			else if(nextCharacter == ')' || nextCharacter == ',') {
+				if(expectOperand)
+					throw new InvalidNotationFormatException("ERROR: Too many operators");
+				while(operatorTop >= 0 && operators[operatorTop] != '(' && operators[operatorTop] < FUNCTION_MARK) {
+					program.add(binary(registry.operator((char) operators[operatorTop--])));
+					depth--;
+				}
+				if(operatorTop < 0)
+					throw new InvalidNotationFormatException("ERROR: Unbalanced Parentheses");
+
+				if(nextCharacter == ',') {
+					if(operators[operatorTop] < FUNCTION_MARK)
+						throw new InvalidNotationFormatException("ERROR: , outside of a function call");
+					argumentCounts[operatorTop]++;
+					expectOperand = true;
+				}
+				else if(operators[operatorTop--] >= FUNCTION_MARK) {
+					OperatorRegistry.Function function = registry.function((char) (operators[operatorTop + 1] - FUNCTION_MARK));
+					int count = argumentCounts[operatorTop + 1] + 1;
+					if(!function.accepts(count))
+						throw new InvalidNotationFormatException("ERROR: " + function.getName() + " can't take " + count + " arguments");
+					program.add(new Instruction(CALL, count, 0, null, function));
+					depth -= count - 1;
+				}
+				index++;
+			}
+			else {
+				OperatorRegistry.Operator operator = registry.operator(nextCharacter);
+				if(operator == null)
+					throw new InvalidNotationFormatException("ERROR: " + nextCharacter + " is not an operator");
+				if(expectOperand)
+					throw new InvalidNotationFormatException("ERROR: Too many operators");
+				while(operatorTop >= 0 && operators[operatorTop] != '(' && operators[operatorTop] < FUNCTION_MARK) {
+					OperatorRegistry.Operator top = registry.operator((char) operators[operatorTop]);
+					if(top.getPrecedence() < operator.getPrecedence()
+							|| (top.getPrecedence() == operator.getPrecedence() && operator.isRightAssociative()))
+						break;
+					program.add(binary(top));
+					operatorTop--;
+					depth--;
+				}
+				operators[++operatorTop] = nextCharacter;
+				expectOperand = true;
+				index++;
+			}
+		}
+
+		if(expectOperand)
+			throw new InvalidNotationFormatException(program.isEmpty() ? "ERROR: empty formula" : "ERROR: Too many operators");
+		while(operatorTop >= 0) {
+			if(operators[operatorTop] == '(' || operators[operatorTop] >= FUNCTION_MARK)
+				throw new InvalidNotationFormatException("ERROR: Unbalanced Parentheses");
+			program.add(binary(registry.operator((char) operators[operatorTop--])));
+		}
+		return new Formula(program.toArray(new Instruction[0]), slotOfField, slots, maxDepth);
+	}
+
+	private static Instruction binary(OperatorRegistry.Operator operator) {
+		return new Instruction(BINARY, 0, 0, operator, null);
+	}
+
+	/**
+	 * maps, parses and evaluates the lines between start and end, which
+	 * are whole lines, and returns their values formatted one per line
+	 */
+	private static final class ChunkTask extends RecursiveTask<byte[]> {
+		private static final long serialVersionUID = 1L;
+		private final transient FileChannel in;
+		private final long start;
+		private final long end;
+		private final transient Formula formula;
+		private int rows;
+
+		private ChunkTask(FileChannel in, long start, long end, Formula formula) {
+			this.in = in;
+			this.start = start;
+			this.end = end;
+			this.formula = formula;
+		}
+
+		@Override
+		protected byte[] compute() {
+			ByteBuffer chunk;
+			try {
+				chunk = in.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			ChunkBuffers buffers = BUFFERS.get();
+			//a guess at the row count, the column buffers grow past it if they need to
+			buffers.prepare(formula.slots, formula.maxDepth, Math.max(16, (int) ((end - start) / 16)));
+			rows = parse(chunk, start, formula, buffers);
+			double[] values = run(formula, buffers, rows);
+			return format(values, rows);
+		}
+	}
+
+	/**
+	 * parses the fields the formula uses out of every line of chunk into
+	 * the column buffers
+	 * @return the number of rows parsed
+	 */
+	private static int parse(ByteBuffer chunk, long chunkOffset, Formula formula, ChunkBuffers buffers) {
+		int[] slotOfField = formula.slotOfField;
+		int limit = chunk.limit();
+		int rows = 0;
+		int position = 0;
+
+		while(position < limit) {
+			int lineEnd = position;
+			while(lineEnd < limit && chunk.get(lineEnd) != '\n')
+				lineEnd++;
+			int contentEnd = lineEnd > position && chunk.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+			if(contentEnd > position) {
+				buffers.ensureRows(rows + 1);
+				int field = 0;
+				int fieldStart = position;
+				int found = 0;
+				for(int index = position; found < formula.slots; index++) {
+					if(index == contentEnd || chunk.get(index) == ',') {
+						if(field < slotOfField.length && slotOfField[field] >= 0) {
+							buffers.columns[slotOfField[field]][rows] = parseNumber(chunk, fieldStart, index, chunkOffset);
+							found++;
+						}
+						if(index == contentEnd)
+							break;
+						field++;
+						fieldStart = index + 1;
+					}
+				}
+				if(found < formula.slots)
+					throw new NumberFormatException("ERROR: the line at byte " + (chunkOffset + position) + " is missing a column");
+				rows++;
+			}
+			position = lineEnd + 1;
+		}
+		return rows;
+	}
+
+	/**
+	 * parses the number in chunk between start and end. Numbers with at
+	 * most 15 significant digits and no exponent, which is nearly every
+	 * number in a CSV file, are parsed exactly without making a String,
+	 * since both the digits and the power of ten are exact doubles.
+	 * Anything else goes through Double.parseDouble
+	 */
+	static double parseNumber(ByteBuffer chunk, int start, int end, long chunkOffset) {
+		while(start < end && chunk.get(start) == ' ')
+			start++;
+		while(end > start && chunk.get(end - 1) == ' ')
+			end--;
+
+		int index = start;
+		boolean negative = false;
+		if(index < end && (chunk.get(index) == '-' || chunk.get(index) == '+')) {
+			negative = chunk.get(index) == '-';
+			index++;
+		}
+		long mantissa = 0;
+		int significant = 0;
+		int scale = 0;
+		boolean anyDigit = false;
+		boolean fraction = false;
+		while(index < end) {
+			byte nextByte = chunk.get(index);
+			if(nextByte >= '0' && nextByte <= '9') {
+				mantissa = 10 * mantissa + (nextByte - '0');
+				if(mantissa != 0)
+					significant++;
+				if(fraction)
+					scale++;
+				anyDigit = true;
+			}
+			else if(nextByte == '.' && !fraction)
+				fraction = true;
+			else
+				break;
+			index++;
+		}
+
+		if(index == end && anyDigit && significant <= MAX_EXACT_DIGITS && scale < POWERS_OF_TEN.length) {
+			double value = mantissa / POWERS_OF_TEN[scale];
+			return negative ? -value : value;
+		}
+
+		byte[] text = new byte[end - start];
+		chunk.get(start, text);
+		String field = new String(text, StandardCharsets.ISO_8859_1);
+		try {
+			return Double.parseDouble(field);
+		} catch(NumberFormatException e) {
+			throw new NumberFormatException("ERROR: \"" + field + "\" at byte " + (chunkOffset + start) + " is not a number");
+		}
+	}
+
+	/**
+	 * runs the formula's program once over rows rows of the column buffers
+	 * @return the buffer holding the values, it may be one of the columns
+	 */
+	private static double[] run(Formula formula, ChunkBuffers buffers, int rows) {
+		//the value at stack level k is always a column or scratch[k], so results never overwrite a live value
+		double[][] stack = buffers.stack;
+		double[][] scratch = buffers.scratch;
+		int stackTop = -1;
+
+		for(Instruction instruction : formula.program) {
+			switch(instruction.opcode) {
+				case PUSH_COLUMN:
+					stack[++stackTop] = buffers.columns[instruction.index];
+					break;
+
+				case PUSH_CONSTANT:
+					stackTop++;
+					Arrays.fill(scratch[stackTop], 0, rows, instruction.constant);
+					stack[stackTop] = scratch[stackTop];
+					break;
+
+				case BINARY:
+					stackTop--;
+					apply(instruction.operator, stack[stackTop], stack[stackTop + 1], scratch[stackTop], rows);
+					stack[stackTop] = scratch[stackTop];
+					break;
+
+				default:
+					int count = instruction.index;
+					int base = stackTop - count + 1;
+					if(buffers.arguments.length < count)
+						buffers.arguments = new double[count];
+					double[] arguments = buffers.arguments;
+					double[] result = scratch[base];
+					//every argument of a row is read before the row's result is written
+					for(int row = 0; row < rows; row++) {
+						for(int argument = 0; argument < count; argument++)
+							arguments[argument] = stack[base + argument][row];
+						result[row] = instruction.function.apply(arguments, 0, count);
+					}
+					stack[base] = result;
+					stackTop = base;
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * result[row] = left[row] operator right[row] for every row. The
+	 * standard operators get their own loops, which the JIT can unroll and
+	 * vectorize, instead of a call through the operator for every row
+	 */
+	private static void apply(OperatorRegistry.Operator operator, double[] left, double[] right, double[] result, int rows) {
+		if(operator == Notation.STANDARD_OPERATORS.operator(operator.getSymbol())) {
+			switch(operator.getSymbol()) {
+				case '+':
+					for(int row = 0; row < rows; row++)
+						result[row] = left[row] + right[row];
+					return;
+				case '-':
+					for(int row = 0; row < rows; row++)
+						result[row] = left[row] - right[row];
+					return;
+				case '*':
+					for(int row = 0; row < rows; row++)
+						result[row] = left[row] * right[row];
+					return;
+				case '/':
+					for(int row = 0; row < rows; row++)
+						result[row] = left[row] / right[row];
+					return;
+				default:
+			}
+		}
+		for(int row = 0; row < rows; row++)
+			result[row] = operator.apply(left[row], right[row]);
+	}
+
+	/**
+	 * @return the first rows values, one per line
+	 */
+	private static byte[] format(double[] values, int rows) {
+		byte[] text = new byte[Math.max(16, rows * 8)];
+		int length = 0;
+		for(int row = 0; row < rows; row++) {
+			String value = Double.toString(values[row]);
+			if(length + value.length() + 1 > text.length)
+				text = Arrays.copyOf(text, Math.max(2 * text.length, length + value.length() + 1));
+			for(int index = 0; index < value.length(); index++)
+				text[length++] = (byte) value.charAt(index);
+			text[length++] = '\n';
+		}
+		return Arrays.copyOf(text, length);
+	}
+}
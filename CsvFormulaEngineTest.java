@@ -0,0 +1,131 @@
+ 
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CsvFormulaEngineTest {
+	private Path input;
+	private Path output;
+
+	@Before
+	public void setUp() throws Exception {
+		input = Files.createTempFile("rows", ".csv");
+		output = Files.createTempFile("values", ".txt");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(input);
+		Files.deleteIfExists(output);
+	}
+
+	@Test
+	public void testFormula() throws Exception {
+		Files.writeString(input, "price, quantity,name,discount\r\n"
+				+ "2.5,4,apple,1\r\n"
+				+ "\r\n"
+				+ "10, 3 ,pear,-2.25\r\n"
+				+ "-1e2,1,plum,0");
+		assertEquals(3, CsvFormulaEngine.evaluate(input, "price*quantity - max(discount, 0) + 2^3^0", output));
+		assertEquals(List.of("11.0", "32.0", "-98.0"), Files.readAllLines(output));
+
+		assertEquals(3, CsvFormulaEngine.evaluate(input, "(quantity)", output));
+		assertEquals(List.of("4.0", "3.0", "1.0"), Files.readAllLines(output));
+	}
+
+	@Test
+	public void testChunksMatchSequential() throws Exception {
+		Random random = new Random(204);
+		StringBuilder csv = new StringBuilder("a,b,c\n");
+		double[] expected = new double[5000];
+		for(int row = 0; row < expected.length; row++) {
+			double a = random.nextInt(20000) / 100.0 - 100;
+			int b = random.nextInt(50) + 1;
+			double c = random.nextInt(1000) / 8.0;
+			csv.append(a).append(',').append(b).append(',').append(c).append('\n');
+			//% has the precedence of + and - in the standard registry
+			expected[row] = ((a + c) / b - min(a, c, b)) % 7;
+		}
+		Files.writeString(input, csv);
+
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			//chunks far smaller than the file, and smaller than some lines
+			for(int chunkSize : new int[] {7, 100, 4096, 1 << 20}) {
+				assertEquals(expected.length, CsvFormulaEngine.evaluate(input, "(a + c) / b - min(a, c, b) % 7",
+						output, Notation.STANDARD_OPERATORS, pool, chunkSize));
+				List<String> lines = Files.readAllLines(output);
+				assertEquals(expected.length, lines.size());
+				for(int row = 0; row < expected.length; row++)
+					assertEquals(expected[row], Double.parseDouble(lines.get(row)), 1e-9);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static double min(double a, double b, double c) {
+		return Math.min(a, Math.min(b, c));
+	}
+
+	@Test
+	public void testParseNumber() {
+		Random random = new Random(42);
+		for(int count = 0; count < 100000; count++) {
+			String text;
+			switch(count % 4) {
+				case 0: text = Long.toString(random.nextLong() % 1000000000000L); break;
+				case 1: text = Double.toString(random.nextDouble() * 1000); break;
+				case 2: text = String.format("%.6f", random.nextGaussian() * 1e6); break;
+				default: text = Double.toString(random.nextGaussian() * 1e-30); break;
+			}
+			ByteBuffer bytes = ByteBuffer.wrap((" " + text + " ").getBytes(StandardCharsets.ISO_8859_1));
+			assertEquals(text, Double.parseDouble(text), CsvFormulaEngine.parseNumber(bytes, 0, bytes.limit(), 0), 0);
+		}
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		Files.writeString(input, "a,b\n1,2\n3,x\n4\n");
+		String[] invalidFormulas = {"a+", "a b", "(a+b", "a+b)", "c*2", "foo(a)", "max()", "abs(a,b)", "a,b", ""};
+		for(String formula : invalidFormulas) {
+			try {
+				CsvFormulaEngine.evaluate(input, formula, output);
+				assertTrue("This should have thrown an InvalidNotationFormatException for " + formula, false);
+			}
+			catch (InvalidNotationFormatException e) {
+				assertTrue("This should have thrown an InvalidNotationFormatException", true);
+			}
+		}
+
+		try {
+			CsvFormulaEngine.evaluate(input, "a+b", output);
+			assertTrue("This should have thrown a NumberFormatException", false);
+		}
+		catch (NumberFormatException e) {
+			assertEquals("ERROR: \"x\" at byte 10 is not a number", e.getMessage());
+		}
+
+		//only the columns the formula uses are read, so the bad b doesn't matter here
+		Files.writeString(input, "a,b\n1,2\n3,x\n");
+		assertEquals(2, CsvFormulaEngine.evaluate(input, "a*2", output));
+		Files.writeString(input, "a,b\n1,2\n4\n");
+		try {
+			CsvFormulaEngine.evaluate(input, "b", output);
+			assertTrue("This should have thrown a NumberFormatException", false);
+		}
+		catch (NumberFormatException e) {
+			assertEquals("ERROR: the line at byte 8 is missing a column", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,363 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * a small fixed pool of worker threads that evaluates batches of
+ * expressions, built on WorkStealingDeque.
+ *
+ * A batch goes in as one task covering every index. The worker that
+ * picks it up keeps splitting its range in half, pushing the upper half
+ * onto its own deque and carrying on with the lower half, until the
+ * range is small enough to just evaluate. Idle workers steal the
+ * biggest pending halves from the bottom of other workers' deques, so
+ * the batch spreads over the pool with one task object per split instead
+ * of one Future and one locked queue operation per expression, which is
+ * what submitting each one to an ExecutorService costs.
+ *
+ * Idle workers park instead of spinning, and a worker that pushes work
+ * only wakes one of them when some are parked.
+ *
+ * Every expression in a batch is evaluated even if some of them throw.
+ * The exception or Error thrown by the lowest index is then rethrown to
+ * the caller, and the workers carry on with the next batch. The
+ * scheduler must be closed to stop its threads.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class EvaluationScheduler implements AutoCloseable {
+	//ranges are split until each worker could get this many pieces
+	private static final int PIECES_PER_WORKER = 8;
+	//how many rounds of stealing a worker tries before it parks
+	private static final int STEAL_ROUNDS = 64;
+
+	private final Worker[] workers;
+	//batches submitted from outside the pool, waiting for a worker
+	private final MyBlockingQueue<Range> submissions;
+	private final AtomicInteger parkedWorkers = new AtomicInteger();
+	//callers between checking closed and finishing their put
+	private final AtomicInteger submitters = new AtomicInteger();
+	private volatile boolean closed;
+
+	/**
+	 * the items of one evaluateAll call and where their values go
+	 */
+	private static final class Batch<T> {
+		private final T[] items;
+		private final ToDoubleFunction<? super T> function;
+		private final double[] values;
+		private final int grain;
+		private final AtomicInteger remaining;
+		private final Thread caller;
+		private Throwable error;
+		private int errorIndex = Integer.MAX_VALUE;
+
+		private Batch(T[] items, ToDoubleFunction<? super T> function, int grain) {
+			this.items = items;
+			this.function = function;
+			this.values = new double[items.length];
+			this.grain = grain;
+			this.remaining = new AtomicInteger(items.length);
+			this.caller = Thread.currentThread();
+		}
+
+		/**
+		 * evaluates items[from] to items[to - 1] and reports them done.
+		 * An Error is recorded like any exception, so it can't take the
+		 * worker down and leave the caller waiting for items never reported
+		 */
+		private void evaluate(int from, int to) {
+			try {
+				for(int index = from; index < to; index++) {
+					try {
+						values[index] = function.applyAsDouble(items[index]);
+					} catch (Throwable e) {
+						synchronized(this) {
+							if(index < errorIndex) {
+								error = e;
+								errorIndex = index;
+							}
+						}
+					}
+				}
+			} finally {
+				if(remaining.addAndGet(from - to) == 0)
+					LockSupport.unpark(caller);
+			}
+		}
+	}
+
+	/**
+	 * the part of a batch between from and to
+	 */
+	private static final class Range {
+		private final Batch<?> batch;
+		private final int from;
+		private final int to;
+
+		private Range(Batch<?> batch, int from, int to) {
+			this.batch = batch;
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	private final class Worker extends Thread {
+		private final WorkStealingDeque<Range> deque = new WorkStealingDeque<>();
+		//cleared by whoever takes the worker off the parked list, exactly once
+		private final AtomicBoolean parked = new AtomicBoolean();
+
+		private Worker(int number) {
+			super("EvaluationScheduler-" + number);
+			setDaemon(true);
+		}
+
+		private boolean isOwnedBy(EvaluationScheduler scheduler) {
+			return EvaluationScheduler.this == scheduler;
+		}
+
+		@Override
+		public void run() {
+			while(true) {
+				Range range = deque.tryPop();
+				if(range == null)
+					range = findWork(this);
+				if(range == null) {
+					//once closed, a worker leaves when there is nothing left to find
+					if(finished())
+						return;
+					range = waitForWork(this);
+				}
+				if(range != null)
+					process(this, range);
+			}
+		}
+	}
+
+	public EvaluationScheduler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param parallelism the number of worker threads
+	 * @throws IllegalArgumentException if parallelism is less than one
+	 */
+	public EvaluationScheduler(int parallelism) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException();
+		submissions = new MyBlockingQueue<>(Math.max(parallelism, 16));
+		workers = new Worker[parallelism];
+		for(int number = 0; number < parallelism; number++)
+			workers[number] = new Worker(number);
+		for(Worker worker : workers)
+			worker.start();
+	}
+
+	/**
+	 * Evaluates every postfix expression with Notation.evaluatePostfixExpression
+	 * @param postfixExpressions the expressions to evaluate
+	 * @return the value of each expression, at the same index
+	 * @throws InvalidNotationFormatException if an expression is invalid,
+	 * after the rest have been evaluated
+	 */
+	public double[] evaluateAll(String[] postfixExpressions) {
+		return evaluateAll(postfixExpressions, Notation::evaluatePostfixExpression);
+	}
+
+	/**
+	 * Applies function to every item, spread over the workers
+	 * @param items the items to evaluate
+	 * @param function computes the value of one item
+	 * @return the value of each item, at the same index
+	 * @throws IllegalStateException if the scheduler is closed
+	 * @throws RuntimeException the exception thrown for the lowest index
+	 * that failed, after the rest have been evaluated
+	 * @throws Error the Error thrown for the lowest index that failed,
+	 * rethrown as it is
+	 */
+	public <T> double[] evaluateAll(T[] items, ToDoubleFunction<? super T> function) {
+		if(closed)
+			throw new IllegalStateException();
+		int grain = Math.max(1, items.length / (PIECES_PER_WORKER * workers.length));
+		Batch<T> batch = new Batch<>(items, function, grain);
+		if(items.length == 0)
+			return batch.values;
+
+		Thread current = Thread.currentThread();
+		if(current instanceof Worker && ((Worker) current).isOwnedBy(this)) {
+			//a worker waiting on its own pool could leave it with nobody to run the batch
+			batch.evaluate(0, items.length);
+		}
+		else {
+			submit(new Range(batch, 0, items.length));
+			signalWork();
+
+			boolean interrupted = false;
+			while(batch.remaining.get() != 0) {
+				LockSupport.park(this);
+				interrupted |= Thread.interrupted();
+			}
+			if(interrupted)
+				current.interrupt();
+		}
+
+		synchronized(batch) {
+			if(batch.error instanceof Error)
+				throw (Error) batch.error;
+			if(batch.error != null)
+				throw (RuntimeException) batch.error;
+		}
+		return batch.values;
+	}
+
+	/**
+	 * queues a batch for the workers, waiting while the queue is full.
+	 * The caller is counted as a submitter before it checks closed, and
+	 * workers only leave once closed is set and no submitter is left, so
+	 * a batch that got past the check is always run
+	 */
+	private void submit(Range range) {
+		submitters.incrementAndGet();
+		try {
+			if(closed)
+				throw new IllegalStateException();
+			submissions.put(range);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} finally {
+			//the last submitter after close lets parked workers see they are finished
+			if(submitters.decrementAndGet() == 0 && closed)
+				wakeAll();
+		}
+	}
+
+	/**
+	 * @return true once the scheduler is closed and no batch can still arrive
+	 */
+	private boolean finished() {
+		return closed && submitters.get() == 0 && submissions.isEmpty();
+	}
+
+	/**
+	 * splits range down to the batch's grain, leaving the upper halves on
+	 * the worker's deque for itself or thieves, then evaluates what is left
+	 */
+	private void process(Worker worker, Range range) {
+		Batch<?> batch = range.batch;
+		int from = range.from;
+		int to = range.to;
+		while(to - from > batch.grain) {
+			int middle = (from + to) >>> 1;
+			worker.deque.push(new Range(batch, middle, to));
+			to = middle;
+			signalWork();
+		}
+		batch.evaluate(from, to);
+	}
+
+	/**
+	 * steals from the other workers, starting at a random one so thieves
+	 * spread out, then takes a new batch if there is one
+	 * @return a range to run, or null if none was found
+	 */
+	private Range findWork(Worker thief) {
+		int start = ThreadLocalRandom.current().nextInt(workers.length);
+		for(int round = 0; round < STEAL_ROUNDS; round++) {
+			boolean sawWork = false;
+			for(int offset = 0; offset < workers.length; offset++) {
+				Worker victim = workers[(start + offset) % workers.length];
+				if(victim == thief || victim.deque.isEmpty())
+					continue;
+				sawWork = true;
+				Range range = victim.deque.steal();
+				if(range != null)
+					return range;
+			}
+			if(!submissions.isEmpty()) {
+				Range range = pollSubmission();
+				if(range != null)
+					return range;
+			}
+			//only keep trying while a steal was lost to another thief
+			if(!sawWork)
+				break;
+			Thread.onSpinWait();
+		}
+		return null;
+	}
+
+	private Range pollSubmission() {
+		try {
+			return submissions.dequeue();
+		} catch (QueueUnderflowException e) {
+			//another worker took it first
+			return null;
+		}
+	}
+
+	/**
+	 * parks the worker until there may be work. It is counted as parked
+	 * before it looks for work one last time, and pushers check the count
+	 * after pushing, so one of the two always sees the other
+	 * @return a range found on the last look, or null after being woken
+	 */
+	private Range waitForWork(Worker worker) {
+		worker.parked.set(true);
+		parkedWorkers.incrementAndGet();
+		Range range = findWork(worker);
+		if(range != null) {
+			//a wake spent on this worker after it found work is passed on
+			if(!worker.parked.compareAndSet(true, false))
+				wakeOne();
+		}
+		else {
+			while(worker.parked.get() && !finished())
+				LockSupport.park(this);
+			worker.parked.set(false);
+		}
+		parkedWorkers.decrementAndGet();
+		return range;
+	}
+
+	/**
+	 * wakes a parked worker if there is one, after work was made available
+	 */
+	private void signalWork() {
+		//the work has to be published before the count is read, see waitForWork
+		VarHandle.fullFence();
+		if(parkedWorkers.get() > 0)
+			wakeOne();
+	}
+
+	/**
+	 * wakes the first parked worker this thread wins the flag of, so two
+	 * pushers never spend their wakes on the same worker
+	 */
+	private void wakeOne() {
+		for(Worker worker : workers) {
+			if(worker.parked.get() && worker.parked.compareAndSet(true, false)) {
+				LockSupport.unpark(worker);
+				return;
+			}
+		}
+	}
+
+	private void wakeAll() {
+		for(Worker worker : workers)
+			LockSupport.unpark(worker);
+	}
+
+	/**
+	 * Stops the workers once every batch already submitted is finished.
+	 * evaluateAll throws IllegalStateException afterwards
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		wakeAll();
+	}
+}
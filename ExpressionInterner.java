@@ -0,0 +1,336 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * a class that turns expressions into trees whose identical subtrees are
+ * shared, even across different expressions (hash consing).
+ *
+ * Every node is looked up in a table by its operator and the ids of its
+ * children before it is created, so a subtree like (1+2)*3 exists once
+ * no matter how many formulas of a batch contain it. The operands of the
+ * commutative operators + and * are put in id order first, so 2+1 and 1+2
+ * are the same node too. Parsing goes through Notation, so whitespace and
+ * redundant parentheses make no difference either. Operators and function
+ * calls are found through Notation's standard OperatorRegistry, a call is
+ * a node with one child per argument.
+ *
+ * Expressions in this grammar have no variables, so a node's value never
+ * changes. It is computed when the node is created, from the values of its
+ * children, which means each distinct subtree is evaluated exactly once for
+ * the whole batch.
+ *
+ * An interner is not thread safe.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class ExpressionInterner {
+	private static final OperatorRegistry REGISTRY = Notation.STANDARD_OPERATORS;
+
+	//binary operator nodes are keyed by a Long, function calls by a CallKey
+	private final HashMap<Object, Node> table = new HashMap<>();
+	private final Node[] digits = new Node[10];
+	private int nextId;
+
+	/**
+	 * a node of an interned expression. Two nodes from the same interner
+	 * are the same object exactly when they are the same canonical expression
+	 */
+	public static final class Node {
+		private final int id;
+		private final char operator;
+		//null for an operand node
+		private final Node[] operands;
+		//null unless this node is a function call
+		private final OperatorRegistry.Function function;
+		private final double value;
+
+		private Node(int id, char operator, Node[] operands, OperatorRegistry.Function function, double value) {
+			this.id = id;
+			this.operator = operator;
+			this.operands = operands;
+			this.function = function;
+			this.value = value;
+		}
+
+		/**
+		 * @return true if this node is a single digit operand
+		 */
+		public boolean isOperand() {
+			return operands == null;
+		}
+
+		/**
+		 * @return true if this node is a function call
+		 */
+		public boolean isFunction() {
+			return function != null;
+		}
+
+		/**
+		 * @return the operator of this node, the function's token for a
+		 * call, or the digit if it is an operand
+		 */
+		public char getOperator() {
+			return operator;
+		}
+
+		/**
+		 * @return the function this node calls, null if it is not a call
+		 */
+		public OperatorRegistry.Function getFunction() {
+			return function;
+		}
+
+		/**
+		 * @return the number of operands, 2 for an operator, the number
+		 * of arguments for a call and 0 for an operand node
+		 */
+		public int getOperandCount() {
+			return operands == null ? 0 : operands.length;
+		}
+
+		/**
+		 * @param index the position of the operand, 0 is the leftmost
+		 * @return the operand, or argument of a call, at index
+		 * @throws IndexOutOfBoundsException if there is no such operand
+		 */
+		public Node getOperand(int index) {
+			if(index < 0 || index >= getOperandCount())
+				throw new IndexOutOfBoundsException();
+			return operands[index];
+		}
+
+		/**
+		 * @return the left operand of an operator, null for any other node
+		 */
+		public Node getLeft() {
+			return isOperand() || isFunction() ? null : operands[0];
+		}
+
+		/**
+		 * @return the right operand of an operator, null for any other node
+		 */
+		public Node getRight() {
+			return isOperand() || isFunction() ? null : operands[1];
+		}
+
+		/**
+		 * @return the value of the expression this node is the root of
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * Returns the canonical postfix form of this expression. The tree is
+		 * walked with an explicit stack so a very deep expression can't
+		 * overflow the call stack
+		 * @return the postfix expression this node represents
+		 */
+		public String toPostfix() {
+			StringBuilder postfix = new StringBuilder();
+			MyDeque<Node> pending = new MyDeque<>();
+			MyDeque<Node> visited = new MyDeque<>();
+			pending.push(this);
+
+			//collect nodes root, then operands right to left, then emit them in reverse, which is postfix order
+			while(!pending.isEmpty()) {
+				Node node = pending.pop();
+				visited.push(node);
+				for(int index = 0; index < node.getOperandCount(); index++)
+					pending.push(node.operands[index]);
+			}
+			while(!visited.isEmpty()) {
+				Node node = visited.pop();
+				if(!node.isFunction())
+					postfix.append(node.operator);
+				else {
+					//written the way Notation writes a call, apart from a name right before it
+					if(postfix.length() > 0 && Character.isLetter(postfix.charAt(postfix.length() - 1)))
+						postfix.append(' ');
+					postfix.append(node.function.getName());
+					if(node.function.isVariadic())
+						postfix.append('[').append(node.operands.length).append(']');
+				}
+			}
+			return postfix.toString();
+		}
+
+		/**
+		 * @return the canonical infix form of this expression
+		 */
+		public String toString() {
+			return Notation.convertPostfixToInfix(toPostfix());
+		}
+	}
+
+	public ExpressionInterner() {
+		for(int digit = 0; digit < 10; digit++)
+			digits[digit] = new Node(nextId++, (char) ('0' + digit), null, null, digit);
+	}
+
+	/**
+	 * Converts an infix expression and interns it
+	 * @param infix a string representing a infix algebraic expression
+	 * @return the shared node for the expression
+	 * @throws InvalidNotationFormatException if the infix expression is
+	 * invalid in anyway.
+	 */
+	public Node internInfix(String infix) {
+		return internPostfix(Notation.convertInfixToPostfix(infix));
+	}
+
+	/**
+	 * Interns a postfix expression. It is read the way
+	 * Notation.evaluatePostfixExpression reads it, characters that are not
+	 * digits, operators or function calls are skipped
+	 * @param postfix a string representing a postfix expression
+	 * @return the shared node for the expression
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public Node internPostfix(String postfix) {
+		MyDeque<Node> operandStack = new MyDeque<>();
+		char nextCharacter;
+		OperatorRegistry.Operator operator;
+		Node operandTwo;
+		Node operandOne;
+
+		int index = 0;
+		while(index < postfix.length()) {
+			nextCharacter = postfix.charAt(index);
+
+			if(Character.isDigit(nextCharacter)) {
+				operandStack.push(digits[Character.digit(nextCharacter, 10)]);
+			}
+			else if((operator = REGISTRY.operator(nextCharacter)) != null) {
+				try {
+					operandTwo = operandStack.pop();
+					operandOne = operandStack.pop();
+				} catch(StackUnderflowException e) {
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+				}
+				operandStack.push(intern(operandOne, operator, operandTwo));
+			}
+			else if(Character.isLetter(nextCharacter)) {
+				OperatorRegistry.Function function = Notation.functionAt(postfix, index, REGISTRY);
+				long call = Notation.readFunctionCall(postfix, index + function.getName().length(), function);
+				int count = (int) call;
+				if(operandStack.size() < count)
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+
+				//the arguments come off the stack last one first
+				Node[] arguments = new Node[count];
+				for(int argument = count - 1; argument >= 0; argument--)
+					arguments[argument] = operandStack.pop();
+				operandStack.push(intern(function, arguments));
+				index = (int) (call >>> 32);
+				continue;
+			}
+			else if(nextCharacter == '(' || nextCharacter == ')') {
+				throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
+			}
+			index++;
+		}
+
+		Node result;
+		try {
+			result = operandStack.pop();
+		} catch(StackUnderflowException e) {
+			throw new InvalidNotationFormatException("ERROR: Input is invalid");
+		}
+		if(!operandStack.isEmpty())
+			throw new InvalidNotationFormatException("ERROR: Too many operands");
+		return result;
+	}
+
+	/**
+	 * returns the node for (left operator right), creating it only if the
+	 * table does not have one yet
+	 */
+	private Node intern(Node left, OperatorRegistry.Operator operator, Node right) {
+		char symbol = operator.getSymbol();
+		//commutative operators get their operands in a fixed order
+		if((symbol == '+' || symbol == '*') && left.id > right.id) {
+			Node swap = left;
+			left = right;
+			right = swap;
+		}
+
+		/*
+		 * the key packs the operator and both child ids into a long. Ids
+		 * are handed out in order so they fit in 28 bits long before the
+		 * table would fit in memory
+		 */
+		long key = ((long) symbol << 56) | ((long) left.id << 28) | right.id;
+		Node node = table.get(key);
+		if(node == null) {
+			node = new Node(newId(), symbol, new Node[] {left, right}, null,
+					operator.apply(left.value, right.value));
+			table.put(key, node);
+		}
+		return node;
+	}
+
+	/**
+	 * returns the node for a call of function with arguments, creating it
+	 * only if the table does not have one yet
+	 */
+	private Node intern(OperatorRegistry.Function function, Node[] arguments) {
+		int[] ids = new int[arguments.length];
+		double[] values = new double[arguments.length];
+		for(int index = 0; index < arguments.length; index++) {
+			ids[index] = arguments[index].id;
+			values[index] = arguments[index].value;
+		}
+
+		CallKey key = new CallKey(function.getToken(), ids);
+		Node node = table.get(key);
+		if(node == null) {
+			node = new Node(newId(), function.getToken(), arguments, function,
+					function.apply(values, 0, values.length));
+			table.put(key, node);
+		}
+		return node;
+	}
+
+	private int newId() {
+		if(nextId >= (1 << 28))
+			throw new IllegalStateException();
+		return nextId++;
+	}
+
+	/**
+	 * the table key of a function call, its token and its arguments' ids
+	 */
+	private static final class CallKey {
+		private final char token;
+		private final int[] ids;
+
+		private CallKey(char token, int[] ids) {
+			this.token = token;
+			this.ids = ids;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof CallKey && ((CallKey) other).token == token
+					&& Arrays.equals(((CallKey) other).ids, ids);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * token + Arrays.hashCode(ids);
+		}
+	}
+
+	/**
+	 * Returns the number of distinct operator and function call nodes
+	 * created so far, which is the number of distinct subexpressions in
+	 * everything interned
+	 * @return the number of operator and call nodes
+	 */
+	public int size() {
+		return table.size();
+	}
+}
@@ -0,0 +1,643 @@
+import java.util.Arrays;
+
+/**
+ * an infix to postfix converter that is fed one character at a time,
+ * meant for converting an expression while it is being typed.
+ *
+ * It keeps the shunting-yard state (operator stack and postfix output)
+ * between calls, plus a value stack that evaluates the postfix output
+ * as it is produced. Appending a character does the same work the
+ * matching step of Notation.convertInfixToPostfix does, and every
+ * character remembers what it did so deleting it can undo exactly that.
+ * Both are amortized constant time, so editing at the end of a very
+ * long expression never re-parses it. Edits anywhere else go through
+ * setText, which only undoes and redoes the part after the first
+ * changed character.
+ *
+ * Reading the result is a separate cost. getPostfix copies the whole
+ * postfix string, so it is linear in its length. A caller that shows the
+ * postfix after every keystroke should read it through getPostfixView
+ * instead, and copy only the part after takePostfixChangeStart, which is
+ * what the edits since the last look changed plus the operators still on
+ * the stack.
+ *
+ * Operators and functions come from Notation's standard OperatorRegistry.
+ * The letters of a function name are held until the ( after them, which
+ * is when the function is looked up, and a call is written to the output
+ * when its ) is typed, the way Notation writes it.
+ *
+ * Like Notation, THIS CLASS ONLY WORKS WITH SINGLE DIGIT OPERANDS and
+ * ignores characters that are not digits, letters, operators, commas or
+ * parentheses.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class IncrementalNotation {
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final OperatorRegistry REGISTRY = Notation.STANDARD_OPERATORS;
+
+	//every character typed so far
+	private final StringBuilder text = new StringBuilder();
+	//postfix output produced so far, operators still on the stack are not in it
+	private final StringBuilder output = new StringBuilder();
+	//the shortest output has been since takePostfixChangeStart was last called
+	private int unchangedOutput;
+	private final CharSequence postfixView = new PostfixView();
+
+	/*
+	 * the output again as tokens, one char each with a function call
+	 * written as its function's token. outputArguments[i] is the number
+	 * of values token i takes off the value stack and outputEnd[i] the
+	 * length of the output text once token i is written
+	 */
+	private char[] outputTokens = new char[DEFAULT_CAPACITY];
+	private int[] outputArguments = new int[DEFAULT_CAPACITY];
+	private int[] outputEnd = new int[DEFAULT_CAPACITY];
+	private int outputSize;
+
+	//a function's token is always right below the ( of its call
+	private char[] operatorStack = new char[DEFAULT_CAPACITY];
+	private int operatorTop = -1;
+	private int openParentheses;
+
+	/*
+	 * popped[i] is the number of operators character i moved from the
+	 * operator stack to the output, which is what deleting it has to
+	 * move back. closedCall[i] is true if character i is the ) of a call
+	 */
+	private int[] popped = new int[DEFAULT_CAPACITY];
+	private boolean[] closedCall = new boolean[DEFAULT_CAPACITY];
+
+	/*
+	 * for every function call that is still open, the number of commas
+	 * seen plus one and numOperands - numOperators when it was opened,
+	 * the same bookkeeping Notation does
+	 */
+	private int[] callArguments = new int[DEFAULT_CAPACITY];
+	private int[] callValues = new int[DEFAULT_CAPACITY];
+	private int callTop = -1;
+	//index of the first letter of a function name waiting for its (, -1 if there is none
+	private int nameStart = -1;
+
+	private double[] values = new double[DEFAULT_CAPACITY];
+	private int valueTop = -1;
+	//operands consumed by each operator or call applied to the value stack, in order
+	private double[] consumed = new double[DEFAULT_CAPACITY];
+	private int consumedTop = -1;
+	//number of output tokens when the value stack first ran out of operands, -1 if it never did
+	private int brokenAt = -1;
+
+	private int numOperands;
+	private int numOperators;
+
+	//index of the first character that could not be parsed, -1 if there is none
+	private int invalidAt = -1;
+	private String invalidMessage;
+
+	/**
+	 * Appends a single character to the end of the expression
+	 * @param nextCharacter the character that was typed
+	 */
+	public void append(char nextCharacter) {
+		int index = text.length();
+		text.append(nextCharacter);
+
+		//once part of the input is invalid, the rest is only recorded until it is deleted
+		if(invalidAt >= 0)
+			return;
+
+		popped = ensureCapacity(popped, index + 1);
+		closedCall = ensureCapacity(closedCall, index + 1);
+		popped[index] = 0;
+		closedCall[index] = false;
+
+		if(nameStart >= 0 && !Character.isLetter(nextCharacter) && nextCharacter != '(') {
+			invalid(index, nameError());
+			return;
+		}
+
+		OperatorRegistry.Operator operator;
+		if(Character.isDigit(nextCharacter)) {
+			emit(nextCharacter, 0);
+			numOperands++;
+		}
+		else if((operator = REGISTRY.operator(nextCharacter)) != null) {
+			//pop the ones that bind tighter, and as tightly unless this one is right associative
+			int count = 0;
+			while(operatorTop >= 0) {
+				int topPrecedence = stackPrecedenceOf(operatorStack[operatorTop]);
+				if(topPrecedence < operator.getPrecedence()
+						|| (topPrecedence == operator.getPrecedence() && operator.isRightAssociative()))
+					break;
+				emit(operatorStack[operatorTop--], 2);
+				count++;
+			}
+			popped[index] = count;
+			pushOperator(nextCharacter);
+			numOperators++;
+		}
+		else if(Character.isLetter(nextCharacter)) {
+			if(nameStart < 0)
+				nameStart = index;
+		}
+		else {
+			switch(nextCharacter) {
+				case '(':
+					if(nameStart >= 0) {
+						OperatorRegistry.Function function = REGISTRY.function(text, nameStart, index);
+						if(function == null) {
+							invalid(index, nameError());
+							return;
+						}
+						pushOperator(function.getToken());
+						callTop++;
+						callArguments = ensureCapacity(callArguments, callTop + 1);
+						callValues = ensureCapacity(callValues, callTop + 1);
+						callArguments[callTop] = 1;
+						callValues[callTop] = numOperands - numOperators;
+						nameStart = -1;
+					}
+					pushOperator(nextCharacter);
+					openParentheses++;
+					break;
+
+				case ')':
+					/*
+					 * the stack is checked before anything is popped, that way an
+					 * unbalanced parenthesis leaves the state exactly as it was and
+					 * deleting it later has nothing to undo
+					 */
+					if(openParentheses == 0) {
+						invalid(index, "ERROR: Unbalanced Parentheses");
+						return;
+					}
+					int count = popToParenthesis();
+					operatorTop--;
+					if(operatorTop >= 0 && isFunctionToken(operatorStack[operatorTop])) {
+						OperatorRegistry.Function function = REGISTRY.function(operatorStack[operatorTop]);
+						int arguments = callArguments[callTop];
+						String error = null;
+						if(numOperands - numOperators - callValues[callTop] != arguments)
+							error = "ERROR: invalid arguments to " + function.getName();
+						else if(!function.accepts(arguments))
+							error = "ERROR: wrong number of arguments to " + function.getName();
+						if(error != null) {
+							//put back what was popped so deleting this ) has nothing to undo
+							operatorTop++;
+							restore(count);
+							invalid(index, error);
+							return;
+						}
+						operatorTop--;
+						callTop--;
+						emit(function.getToken(), arguments);
+						//n arguments become one value, the same as n - 1 binary operators
+						numOperators += arguments - 1;
+						closedCall[index] = true;
+					}
+					openParentheses--;
+					popped[index] = count;
+					break;
+
+				case ',':
+					count = popToParenthesis();
+					if(operatorTop < 1 || !isFunctionToken(operatorStack[operatorTop - 1])) {
+						restore(count);
+						invalid(index, "ERROR: , outside of a function call");
+						return;
+					}
+					callArguments[callTop]++;
+					popped[index] = count;
+					break;
+
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Appends every character of the sequence to the end of the expression
+	 * @param characters the characters that were typed
+	 */
+	public void append(CharSequence characters) {
+		for(int index = 0; index < characters.length(); index++)
+			append(characters.charAt(index));
+	}
+
+	/**
+	 * Deletes the last character of the expression, undoing whatever
+	 * appending it did
+	 * @throws IllegalStateException if the expression is empty
+	 */
+	public void deleteLast() {
+		if(text.length() == 0)
+			throw new IllegalStateException();
+
+		int index = text.length() - 1;
+		char lastCharacter = text.charAt(index);
+		text.setLength(index);
+
+		if(invalidAt >= 0) {
+			//characters after the invalid one were never parsed
+			if(index > invalidAt)
+				return;
+			invalidAt = -1;
+			invalidMessage = null;
+			return;
+		}
+
+		if(Character.isDigit(lastCharacter)) {
+			unemit();
+			numOperands--;
+		}
+		else if(REGISTRY.operator(lastCharacter) != null) {
+			operatorTop--;
+			restore(popped[index]);
+			numOperators--;
+		}
+		else if(Character.isLetter(lastCharacter)) {
+			if(index == nameStart)
+				nameStart = -1;
+		}
+		else {
+			switch(lastCharacter) {
+				case '(':
+					operatorTop--;
+					openParentheses--;
+					if(operatorTop >= 0 && isFunctionToken(operatorStack[operatorTop])) {
+						//the call's name is waiting for its ( again
+						nameStart = index - REGISTRY.function(operatorStack[operatorTop--]).getName().length();
+						callTop--;
+					}
+					break;
+
+				case ')':
+					if(closedCall[index]) {
+						int arguments = outputArguments[outputSize - 1];
+						pushOperator(unemit());
+						numOperators -= arguments - 1;
+						callTop++;
+						callArguments[callTop] = arguments;
+						callValues[callTop] = numOperands - numOperators - arguments;
+					}
+					pushOperator('(');
+					openParentheses++;
+					restore(popped[index]);
+					break;
+
+				case ',':
+					callArguments[callTop]--;
+					restore(popped[index]);
+					break;
+
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the expression with newText. Only the characters after the
+	 * longest common prefix of the old and new text are deleted and appended,
+	 * so a single keystroke anywhere costs time proportional to the text after it
+	 * @param newText the full new expression
+	 */
+	public void setText(CharSequence newText) {
+		int common = 0;
+		int limit = Math.min(text.length(), newText.length());
+		while(common < limit && text.charAt(common) == newText.charAt(common))
+			common++;
+
+		while(text.length() > common)
+			deleteLast();
+		for(int index = common; index < newText.length(); index++)
+			append(newText.charAt(index));
+	}
+
+	/**
+	 * Returns the expression typed so far
+	 * @return the infix text
+	 */
+	public String getText() {
+		return text.toString();
+	}
+
+	/**
+	 * Determines if the expression typed so far is a complete, valid infix
+	 * expression, in other words if getPostfix would not throw
+	 * @return true if the expression is valid, false if not
+	 */
+	public boolean isValid() {
+		return validationError() == null;
+	}
+
+	/**
+	 * Returns the postfix form of the expression typed so far. It is the
+	 * output produced so far followed by the operators still on the stack,
+	 * copied into a new string, so every call costs time linear in the
+	 * length of the postfix. See getPostfixView for reading it per keystroke
+	 * @return the same string Notation.convertInfixToPostfix would return
+	 * @throws InvalidNotationFormatException if the expression is invalid
+	 */
+	public String getPostfix() {
+		checkValid();
+		return postfixView.toString();
+	}
+
+	/**
+	 * Returns the postfix form of the expression typed so far without
+	 * copying it. The view is live, it always reads the current state, so
+	 * it shows every later edit and is only the postfix form while the
+	 * expression is valid. length and charAt are constant time
+	 * @return a view of the postfix form
+	 * @throws InvalidNotationFormatException if the expression is invalid
+	 */
+	public CharSequence getPostfixView() {
+		checkValid();
+		return postfixView;
+	}
+
+	/**
+	 * Returns the index of the first postfix character that may have
+	 * changed since the last call, and starts tracking changes again from
+	 * now. The postfix before that index is the same as it was, so a caller
+	 * only has to copy the rest of the view, which costs time linear in the
+	 * output the edits undid and redid plus the depth of the operator stack
+	 * @return the length of the postfix that is known not to have changed,
+	 * 0 on the first call
+	 */
+	public int takePostfixChangeStart() {
+		int changeStart = unchangedOutput;
+		unchangedOutput = output.length();
+		return changeStart;
+	}
+
+	/**
+	 * the output followed by the operators still on the stack, top first
+	 */
+	private final class PostfixView implements CharSequence {
+		@Override
+		public int length() {
+			return output.length() + operatorTop + 1;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if(index < 0 || index >= length())
+				throw new IndexOutOfBoundsException();
+			if(index < output.length())
+				return output.charAt(index);
+			return operatorStack[operatorTop - (index - output.length())];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if(start < 0 || end > length() || start > end)
+				throw new IndexOutOfBoundsException();
+			StringBuilder postfix = new StringBuilder(end - start);
+			for(int index = start; index < end; index++)
+				postfix.append(charAt(index));
+			return postfix.toString();
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length()).toString();
+		}
+	}
+
+	/**
+	 * Returns the value of the expression typed so far. The output produced
+	 * so far has already been evaluated, only the operators still on the
+	 * stack are applied here
+	 * @return the same value evaluating the postfix form would return
+	 * @throws InvalidNotationFormatException if the expression is invalid
+	 */
+	public double getValue() {
+		checkValid();
+
+		/*
+		 * a valid expression can never run out of operands, brokenAt is
+		 * only set when numOperators and numOperands disagree
+		 */
+		if(brokenAt >= 0)
+			throw new InvalidNotationFormatException("ERROR: too few operands");
+
+		//each remaining operator uses the top value, so copy only what they need
+		int needed = Math.min(valueTop + 1, operatorTop + 2);
+		double[] remaining = Arrays.copyOfRange(values, valueTop + 1 - needed, valueTop + 1);
+		int top = needed - 1;
+		for(int index = operatorTop; index >= 0; index--) {
+			double operandTwo = remaining[top--];
+			double operandOne = remaining[top];
+			remaining[top] = REGISTRY.operator(operatorStack[index]).apply(operandOne, operandTwo);
+		}
+		return remaining[0];
+	}
+
+	/**
+	 * Empties the converter
+	 */
+	public void clear() {
+		text.setLength(0);
+		output.setLength(0);
+		unchangedOutput = 0;
+		outputSize = 0;
+		operatorTop = -1;
+		openParentheses = 0;
+		callTop = -1;
+		nameStart = -1;
+		valueTop = -1;
+		consumedTop = -1;
+		brokenAt = -1;
+		numOperands = 0;
+		numOperators = 0;
+		invalidAt = -1;
+		invalidMessage = null;
+	}
+
+	/**
+	 * performs the same end of input checks Notation.convertInfixToPostfix does
+	 * @return the error message, or null if the expression is valid
+	 */
+	private String validationError() {
+		if(invalidAt >= 0)
+			return invalidMessage;
+		if(nameStart >= 0)
+			return nameError();
+		if(openParentheses > 0)
+			return "ERROR: Unbalanced Parentheses";
+		if(numOperators > numOperands - 1)
+			return "ERROR: Too many operators";
+		if(numOperators < numOperands - 1)
+			return "ERROR: not enough operators";
+		return null;
+	}
+
+	/**
+	 * @return what is wrong with the function name waiting for its (, the
+	 * message Notation gives for the same name
+	 */
+	private String nameError() {
+		int nameEnd = Notation.nameEnd(text, nameStart);
+		OperatorRegistry.Function function = REGISTRY.function(text, nameStart, nameEnd);
+		if(function == null)
+			return "ERROR: unknown function " + text.substring(nameStart, nameEnd);
+		return "ERROR: " + function.getName() + " must be followed by (";
+	}
+
+	private void invalid(int index, String message) {
+		invalidAt = index;
+		invalidMessage = message;
+	}
+
+	private void checkValid() {
+		String error = validationError();
+		if(error != null)
+			throw new InvalidNotationFormatException(error);
+	}
+
+	private static boolean isFunctionToken(char entry) {
+		return REGISTRY.function(entry) != null;
+	}
+
+	/**
+	 * the precedence of an entry of the operator stack, an open
+	 * parenthesis or a function has precedence 0
+	 */
+	private static int stackPrecedenceOf(char entry) {
+		OperatorRegistry.Operator operator = REGISTRY.operator(entry);
+		return operator == null ? 0 : operator.getPrecedence();
+	}
+
+	private void pushOperator(char operator) {
+		operatorTop++;
+		operatorStack = ensureCapacity(operatorStack, operatorTop + 1);
+		operatorStack[operatorTop] = operator;
+	}
+
+	/**
+	 * moves operators to the output until the top of the stack is an open
+	 * parenthesis or the stack is empty
+	 * @return the number of operators moved
+	 */
+	private int popToParenthesis() {
+		int count = 0;
+		while(operatorTop >= 0 && operatorStack[operatorTop] != '(') {
+			emit(operatorStack[operatorTop--], 2);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * moves the last count output tokens back onto the operator stack.
+	 * The last one written was the deepest one popped, so taking them off
+	 * the end of the output one at a time rebuilds the stack in order
+	 */
+	private void restore(int count) {
+		for(int popCount = 0; popCount < count; popCount++)
+			pushOperator(unemit());
+	}
+
+	/**
+	 * appends a token to the postfix output and applies it to the value
+	 * stack
+	 * @param token a digit, an operator or a function's token
+	 * @param arguments the number of values the token takes, 0 for a digit
+	 */
+	private void emit(char token, int arguments) {
+		OperatorRegistry.Function function = REGISTRY.function(token);
+		if(function == null)
+			output.append(token);
+		else {
+			//a name right after another one would read back as one name, the way Notation writes it
+			if(output.length() > 0 && Character.isLetter(output.charAt(output.length() - 1)))
+				output.append(' ');
+			output.append(function.getName());
+			if(function.isVariadic())
+				output.append('[').append(arguments).append(']');
+		}
+		outputTokens = ensureCapacity(outputTokens, outputSize + 1);
+		outputArguments = ensureCapacity(outputArguments, outputSize + 1);
+		outputEnd = ensureCapacity(outputEnd, outputSize + 1);
+		outputTokens[outputSize] = token;
+		outputArguments[outputSize] = arguments;
+		outputEnd[outputSize] = output.length();
+		outputSize++;
+
+		//after the value stack runs out of operands it is left alone until that is undone
+		if(brokenAt >= 0)
+			return;
+
+		if(arguments == 0) {
+			pushValue(Character.digit(token, 10));
+			return;
+		}
+
+		if(valueTop < arguments - 1) {
+			brokenAt = outputSize - 1;
+			return;
+		}
+		consumed = ensureCapacity(consumed, consumedTop + arguments + 1);
+		System.arraycopy(values, valueTop - arguments + 1, consumed, consumedTop + 1, arguments);
+		consumedTop += arguments;
+		valueTop -= arguments;
+		if(function == null)
+			pushValue(REGISTRY.operator(token).apply(consumed[consumedTop - 1], consumed[consumedTop]));
+		else
+			pushValue(function.apply(consumed, consumedTop - arguments + 1, arguments));
+	}
+
+	/**
+	 * removes the last token of the postfix output and undoes what it did
+	 * to the value stack
+	 * @return the removed token
+	 */
+	private char unemit() {
+		outputSize--;
+		char token = outputTokens[outputSize];
+		int arguments = outputArguments[outputSize];
+		output.setLength(outputSize == 0 ? 0 : outputEnd[outputSize - 1]);
+		unchangedOutput = Math.min(unchangedOutput, output.length());
+
+		if(brokenAt >= 0) {
+			if(outputSize == brokenAt)
+				brokenAt = -1;
+			return token;
+		}
+
+		valueTop--;
+		for(int argument = arguments; argument > 0; argument--)
+			pushValue(consumed[consumedTop - argument + 1]);
+		consumedTop -= arguments;
+		return token;
+	}
+
+	private void pushValue(double value) {
+		valueTop++;
+		values = ensureCapacity(values, valueTop + 1);
+		values[valueTop] = value;
+	}
+
+	/*
+	 * the arrays double in size when they run out of room so appends
+	 * stay amortized constant time
+	 */
+	private static char[] ensureCapacity(char[] array, int needed) {
+		return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, 2 * array.length));
+	}
+
+	private static int[] ensureCapacity(int[] array, int needed) {
+		return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, 2 * array.length));
+	}
+
+	private static boolean[] ensureCapacity(boolean[] array, int needed) {
+		return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, 2 * array.length));
+	}
+
+	private static double[] ensureCapacity(double[] array, int needed) {
+		return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, 2 * array.length));
+	}
+}
@@ -0,0 +1,367 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * a class that implements a generic, thread safe, bounded, array based
+ * ADT Queue whose producers and consumers can wait for room or for
+ * elements instead of getting an exception.
+ *
+ * enqueue and dequeue keep the QueueInterface behaviour and throw when
+ * the queue is full or empty. put and take wait as long as they need to,
+ * offer and poll wait at most a given time. A waiting thread is parked on
+ * a Condition, so an idle consumer uses no CPU. Consumers that can work
+ * in batches should use drainTo, which moves many elements for a single
+ * lock acquisition.
+ *
+ * Null entries are not allowed, poll uses null to report a timeout.
+ * @author Christopher Perez Lebron
+ *
+ * @param <T> a generic type representing any object type
+ */
+public final class MyBlockingQueue<T> implements QueueInterface<T> {
+	private final T[] queue;
+	private int frontIndex;
+	private int numEntries;
+	private static final int DEFAULT_CAPACITY = 75;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	public MyBlockingQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public MyBlockingQueue(int initialCapacity) {
+		if(initialCapacity < 1)
+			throw new IllegalArgumentException();
+
+		//cast is safe because new array contains null entries
+		@SuppressWarnings("unchecked")
+		T[] tempQueue = (T[]) new Object[initialCapacity];
+		queue = tempQueue;
+		frontIndex = 0;
+		numEntries = 0;
+	}
+
+	/*
+	 * the methods below assume the lock is held. Unlike MyQueue there is
+	 * no empty sentinel slot, numEntries tells full and empty apart
+	 */
+
+	private void insert(T newEntry) {
+		int backIndex = frontIndex + numEntries;
+		if(backIndex >= queue.length)
+			backIndex -= queue.length;
+		queue[backIndex] = newEntry;
+		numEntries++;
+		notEmpty.signal();
+	}
+
+	private T extract() {
+		T front = queue[frontIndex];
+		queue[frontIndex] = null;
+		frontIndex++;
+		if(frontIndex == queue.length)
+			frontIndex = 0;
+		numEntries--;
+		notFull.signal();
+		return front;
+	}
+
+	private static void checkNotNull(Object newEntry) {
+		if(newEntry == null)
+			throw new NullPointerException();
+	}
+
+	/**
+	 * Adds an element to the back of the Queue without waiting
+	 * @param newEntry the element to add to the back of the Queue
+	 * @return true if the add was successful
+	 * @throws QueueOverflowException if queue is full
+	 */
+	public boolean enqueue(T newEntry) throws QueueOverflowException {
+		checkNotNull(newEntry);
+		lock.lock();
+		try {
+			if(numEntries == queue.length)
+				throw new QueueOverflowException();
+			insert(newEntry);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds an element to the back of the Queue, waiting for room if it is full
+	 * @param newEntry the element to add to the back of the Queue
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void put(T newEntry) throws InterruptedException {
+		checkNotNull(newEntry);
+		lock.lockInterruptibly();
+		try {
+			while(numEntries == queue.length)
+				notFull.await();
+			insert(newEntry);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds an element to the back of the Queue, waiting at most timeout for
+	 * room if it is full
+	 * @param newEntry the element to add to the back of the Queue
+	 * @param timeout how long to wait
+	 * @param unit the unit of timeout
+	 * @return true if the element was added, false if the time ran out
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean offer(T newEntry, long timeout, TimeUnit unit) throws InterruptedException {
+		checkNotNull(newEntry);
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while(numEntries == queue.length) {
+				if(nanos <= 0)
+					return false;
+				nanos = notFull.awaitNanos(nanos);
+			}
+			insert(newEntry);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes and returns the element at the front of the Queue without waiting
+	 * @return the element at the front of the Queue
+	 * @throws QueueUnderflowException if queue is empty
+	 */
+	public T dequeue() throws QueueUnderflowException {
+		lock.lock();
+		try {
+			if(numEntries == 0)
+				throw new QueueUnderflowException();
+			return extract();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes and returns the element at the front of the Queue, waiting for
+	 * one if it is empty
+	 * @return the element at the front of the Queue
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public T take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while(numEntries == 0)
+				notEmpty.await();
+			return extract();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes and returns the element at the front of the Queue, waiting at
+	 * most timeout for one if it is empty
+	 * @param timeout how long to wait
+	 * @param unit the unit of timeout
+	 * @return the element at the front of the Queue, or null if the time ran out
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while(numEntries == 0) {
+				if(nanos <= 0)
+					return null;
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return extract();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes up to max elements from the front of the Queue and adds them to
+	 * the collection in order, without waiting. The lock is taken once for
+	 * the whole batch
+	 * @param collection the collection to add the removed elements to
+	 * @param max the most elements to remove
+	 * @return the number of elements removed
+	 */
+	public int drainTo(Collection<? super T> collection, int max) {
+		if(collection == null)
+			throw new NullPointerException();
+		if(max <= 0)
+			return 0;
+
+		lock.lock();
+		try {
+			return drainLocked(collection, max);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes up to max elements from the front of the Queue and adds them to
+	 * the collection, waiting at most timeout for the first one. This lets a
+	 * consumer sleep while the queue is empty and still take everything that
+	 * has piled up in one go once it wakes up
+	 * @param collection the collection to add the removed elements to
+	 * @param max the most elements to remove
+	 * @param timeout how long to wait for the first element
+	 * @param unit the unit of timeout
+	 * @return the number of elements removed, 0 if the time ran out
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public int drainTo(Collection<? super T> collection, int max, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		if(collection == null)
+			throw new NullPointerException();
+		if(max <= 0)
+			return 0;
+
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while(numEntries == 0) {
+				if(nanos <= 0)
+					return 0;
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return drainLocked(collection, max);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * moves elements into the collection one at a time. If add throws, the
+	 * elements already added stay removed and the one it failed on stays
+	 * at the front, so the count and the front index always match the slots
+	 */
+	private int drainLocked(Collection<? super T> collection, int max) {
+		int count = Math.min(max, numEntries);
+		int removed = 0;
+		try {
+			while(removed < count) {
+				collection.add(queue[frontIndex]);
+				queue[frontIndex] = null;
+				frontIndex++;
+				if(frontIndex == queue.length)
+					frontIndex = 0;
+				removed++;
+			}
+		} finally {
+			numEntries -= removed;
+
+			//every slot freed can let a waiting producer in
+			if(removed == 1)
+				notFull.signal();
+			else if(removed > 1)
+				notFull.signalAll();
+		}
+		return removed;
+	}
+
+	/**
+	 * Determines if Queue is empty
+	 * @return true if Queue is empty, false if not
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Determines of the Queue is Full
+	 * @return true if Queue is full, false if not
+	 */
+	public boolean isFull() {
+		return size() == queue.length;
+	}
+
+	/**
+	 * Returns number of elements in the Queue
+	 * @return the number of elements in the Queue
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return numEntries;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the string representation of the elements in the Queue,
+	 * the beginning of the string is the front of the queue
+	 * @return string representation of the Queue with elements
+	 */
+	public String toString() {
+		return toString("");
+	}
+
+	/**
+	 * Returns the string representation of the elements in the Queue, the beginning of the string is the front of the queue
+	 * Place the delimiter between all elements of the Queue
+	 * @return string representation of the Queue with elements separated with the delimiter
+	 */
+	public String toString(String delimiter) {
+		lock.lock();
+		try {
+			StringBuilder queueStr = new StringBuilder();
+			for(int count = 0; count < numEntries; count++) {
+				if(count != 0)
+					queueStr.append(delimiter);
+				queueStr.append(queue[(frontIndex + count) % queue.length]);
+			}
+			return queueStr.toString();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Fills the Queue with the elements of the ArrayList, First element in the ArrayList
+	 * is the first element in the Queue. Nothing is added unless there is room for
+	 * every element
+	 * @param list elements to be added to the Queue
+	 * @throws QueueOverflowException if queue does not have room for the list
+	 */
+	public void fill(ArrayList<T> list) {
+		Object[] entries = list.toArray();
+		for(Object entry : entries)
+			checkNotNull(entry);
+
+		lock.lock();
+		try {
+			if(entries.length > queue.length - numEntries)
+				throw new QueueOverflowException();
+
+			int start = (frontIndex + numEntries) % queue.length;
+			int firstPart = Math.min(entries.length, queue.length - start);
+			System.arraycopy(entries, 0, queue, start, firstPart);
+			System.arraycopy(entries, firstPart, queue, 0, entries.length - firstPart);
+			numEntries += entries.length;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+ 
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MyBlockingQueueTest {
+	public MyBlockingQueue<Integer> intQ;
+
+	@Before
+	public void setUp() throws Exception {
+		intQ = new MyBlockingQueue<Integer>(4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		intQ = null;
+	}
+
+	@Test
+	public void testTimedPutAndTake() throws InterruptedException {
+		assertNull(intQ.poll(10, TimeUnit.MILLISECONDS));
+		for(int count = 0; count < 4; count++)
+			assertTrue(intQ.offer(count, 10, TimeUnit.MILLISECONDS));
+		assertTrue(intQ.isFull());
+		assertFalse(intQ.offer(4, 10, TimeUnit.MILLISECONDS));
+		
+		try {
+			intQ.enqueue(4);
+			assertTrue("This should have caused an QueueOverflowException", false);
+		}
+		catch (QueueOverflowException e){
+			assertTrue("This should have caused an QueueOverflowException", true);
+		}
+		assertEquals(Integer.valueOf(0), intQ.take());
+		assertEquals("123", intQ.toString());
+	}
+
+	@Test
+	public void testProducerConsumer() throws InterruptedException {
+		int total = 10000;
+		Thread producer = new Thread(() -> {
+			try {
+				for(int count = 0; count < total; count++)
+					intQ.put(count);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		
+		//the consumer takes whatever has piled up, in order, a batch at a time
+		ArrayList<Integer> received = new ArrayList<Integer>();
+		while(received.size() < total)
+			intQ.drainTo(received, 3, 1, TimeUnit.SECONDS);
+		producer.join();
+		
+		for(int count = 0; count < total; count++)
+			assertEquals(Integer.valueOf(count), received.get(count));
+		assertTrue(intQ.isEmpty());
+	}
+
+	@Test
+	public void testDrainToFailingCollection() {
+		for(int count = 0; count < 4; count++)
+			intQ.enqueue(count);
+		
+		//a collection that refuses its third element
+		ArrayList<Integer> received = new ArrayList<Integer>() {
+			@Override
+			public boolean add(Integer entry) {
+				if(size() == 2)
+					throw new IllegalStateException();
+				return super.add(entry);
+			}
+		};
+		try {
+			intQ.drainTo(received, 4);
+			assertTrue("This should have caused an IllegalStateException", false);
+		}
+		catch (IllegalStateException e){
+			assertTrue("This should have caused an IllegalStateException", true);
+		}
+		
+		//the two that were added are gone, the rest are still queued in order
+		assertEquals(2, received.size());
+		assertEquals(2, intQ.size());
+		assertEquals("23", intQ.toString());
+		intQ.enqueue(4);
+		intQ.enqueue(5);
+		assertTrue(intQ.isFull());
+		assertEquals(Integer.valueOf(2), intQ.dequeue());
+	}
+}
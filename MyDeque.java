@@ -0,0 +1,351 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * a class that implements a generic, growable, array based double ended
+ * queue. It can be used as a Stack and as a Queue at the same time:
+ * push and enqueue both add to the back, pop removes from the back and
+ * dequeue removes from the front. addFront adds to the front, so all
+ * four ends of the structure are O(1).
+ *
+ * Seen as a Stack the front is the bottom, so toString and fill read
+ * from front to back for both interfaces.
+ *
+ * The elements live in a single circular array whose length is a power
+ * of two, so wrapping an index around is a bit mask instead of a %, and
+ * there is no empty sentinel slot like the one MyQueue keeps. When the
+ * array is full it is doubled, so the deque is never full.
+ * @author Christopher Perez Lebron
+ *
+ * @param <T> a generic type representing any object type
+ */
+public final class MyDeque<T> implements StackInterface<T>, QueueInterface<T>, Iterable<T> {
+	private T[] deque;
+	private int frontIndex;
+	private int numEntries;
+	private boolean integrityOK;
+	//counts changes to the contents so iterators can fail fast
+	private int modCount;
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	public MyDeque() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public MyDeque(int initialCapacity) {
+		integrityOK = false;
+		checkCapacity(initialCapacity);
+
+		//round up to a power of two so indexes can be wrapped with a mask
+		int capacity = Math.max(Integer.highestOneBit(Math.max(initialCapacity, 1) - 1) << 1, 1);
+
+		//cast is safe because new array contains null entries
+		@SuppressWarnings("unchecked")
+		T[] tempDeque = (T[]) new Object[capacity];
+		deque = tempDeque;
+		frontIndex = 0;
+		numEntries = 0;
+		integrityOK = true;
+	}
+
+	/**
+	 * checks to ensure the parameter is smaller than the max
+	 * allowable capacity. If it is greater than the max
+	 * allowable capacity an IllegalStateException is thrown
+	 * @throws IllegalStateException if capacity is too large
+	 * @param desiredCapacity an int representing the capacity
+	 * to be checked
+	 */
+	private void checkCapacity(int desiredCapacity) {
+		if(desiredCapacity > MAX_CAPACITY)
+			throw new IllegalStateException();
+	}
+
+	/**
+	 * checks to see if integrity is false if so it throws an exception
+	 * @throws IllegalStateException if integrity is false
+	 */
+	private void checkIntegrity() {
+		if(!integrityOK) {
+			throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * wraps an index that may have run off either end of the array
+	 */
+	private int wrap(int index) {
+		return index & (deque.length - 1);
+	}
+
+	/**
+	 * doubles the array until there is room for extra more elements. The 
+	 * two runs on either side of the wraparound are copied so the front 
+	 * ends up at index 0 of the new array
+	 * @throws IllegalStateException if the array would grow past MAX_CAPACITY
+	 */
+	private void ensureRoom(int extra) {
+		if(deque.length - numEntries >= extra)
+			return;
+
+		int newLength = deque.length;
+		while(newLength - numEntries < extra) {
+			//checked before doubling so the length can never overflow
+			if(newLength >= MAX_CAPACITY)
+				throw new IllegalStateException();
+			newLength *= 2;
+		}
+
+		@SuppressWarnings("unchecked")
+		T[] larger = (T[]) new Object[newLength];
+		int firstPart = Math.min(numEntries, deque.length - frontIndex);
+		System.arraycopy(deque, frontIndex, larger, 0, firstPart);
+		System.arraycopy(deque, 0, larger, firstPart, numEntries - firstPart);
+		deque = larger;
+		frontIndex = 0;
+	}
+
+	/**
+	 * Adds an element to the top of the Stack, which is the back of the deque
+	 * @param newEntry the element to add
+	 * @return true, the deque grows instead of overflowing
+	 */
+	public boolean push(T newEntry) {
+		checkIntegrity();
+		ensureRoom(1);
+		deque[wrap(frontIndex + numEntries)] = newEntry;
+		numEntries++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Adds a new entry to the back of the deque
+	 * @param newEntry the element to add
+	 * @return true, the deque grows instead of overflowing
+	 */
+	public boolean enqueue(T newEntry) {
+		return push(newEntry);
+	}
+
+	/**
+	 * Adds a new entry to the front of the deque, it will be the next
+	 * element dequeue returns
+	 * @param newEntry the element to add
+	 * @return true, the deque grows instead of overflowing
+	 */
+	public boolean addFront(T newEntry) {
+		checkIntegrity();
+		ensureRoom(1);
+		frontIndex = wrap(frontIndex - 1);
+		deque[frontIndex] = newEntry;
+		numEntries++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Deletes and returns the element at the back of the deque
+	 * @return the element at the top of the Stack
+	 * @throws StackUnderflowException if the deque is empty
+	 */
+	public T pop() throws StackUnderflowException {
+		checkIntegrity();
+		if(isEmpty())
+			throw new StackUnderflowException();
+
+		int backIndex = wrap(frontIndex + numEntries - 1);
+		T back = deque[backIndex];
+		deque[backIndex] = null;
+		numEntries--;
+		modCount++;
+		return back;
+	}
+
+	/**
+	 * Returns the element at the back of the deque without removing it
+	 * @return the element at the top of the Stack
+	 * @throws StackUnderflowException if the deque is empty
+	 */
+	public T top() throws StackUnderflowException {
+		checkIntegrity();
+		if(isEmpty())
+			throw new StackUnderflowException();
+		return deque[wrap(frontIndex + numEntries - 1)];
+	}
+
+	/**
+	 * Deletes and returns the element at the front of the deque
+	 * @return the element at the front of the Queue
+	 * @throws QueueUnderflowException if the deque is empty
+	 */
+	public T dequeue() throws QueueUnderflowException {
+		checkIntegrity();
+		if(isEmpty())
+			throw new QueueUnderflowException();
+
+		T front = deque[frontIndex];
+		deque[frontIndex] = null;
+		frontIndex = wrap(frontIndex + 1);
+		numEntries--;
+		modCount++;
+		return front;
+	}
+
+	/**
+	 * Returns the element at the front of the deque without removing it
+	 * @return the element at the front of the Queue
+	 * @throws QueueUnderflowException if the deque is empty
+	 */
+	public T getFront() throws QueueUnderflowException {
+		checkIntegrity();
+		if(isEmpty())
+			throw new QueueUnderflowException();
+		return deque[frontIndex];
+	}
+
+	/**
+	 * Removes all entries from the deque
+	 */
+	public void clear() {
+		checkIntegrity();
+
+		//the occupied slots are nulled as at most two runs
+		int firstPart = Math.min(numEntries, deque.length - frontIndex);
+		Arrays.fill(deque, frontIndex, frontIndex + firstPart, null);
+		Arrays.fill(deque, 0, numEntries - firstPart, null);
+		frontIndex = 0;
+		numEntries = 0;
+		modCount++;
+	}
+
+	/**
+	 * Determines if the deque is empty
+	 * @return true if the deque is empty, false if not
+	 */
+	public boolean isEmpty() {
+		return numEntries == 0;
+	}
+
+	/**
+	 * Determines if the deque is full. The deque grows when it runs out
+	 * of room, so this is always false
+	 * @return false
+	 */
+	public boolean isFull() {
+		return false;
+	}
+
+	/**
+	 * Number of elements in the deque
+	 * @return the number of elements in the deque
+	 */
+	public int size() {
+		return numEntries;
+	}
+
+	/**
+	 * Returns the elements of the deque in a string from front to back,
+	 * which is bottom to top for the Stack
+	 * @return a string which represents the elements from front to back
+	 */
+	public String toString() {
+		//call other toString method with an empty string as a delimiter
+		return toString("");
+	}
+
+	/**
+	 * Returns the string representation of the elements in the deque from
+	 * front to back, with the delimiter placed between all elements
+	 * @return string representation of the deque with elements separated
+	 * with the delimiter
+	 */
+	public String toString(String delimiter) {
+		checkIntegrity();
+
+		StringBuilder dequeStr = new StringBuilder();
+		for(int count = 0; count < numEntries; count++) {
+			if(count != 0)
+				dequeStr.append(delimiter);
+			dequeStr.append(deque[wrap(frontIndex + count)]);
+		}
+		return dequeStr.toString();
+	}
+
+	/**
+	 * Adds the elements of the ArrayList to the back of the deque, the first
+	 * element of the list ends up closest to the front (the bottom of the
+	 * Stack). The list is copied into the array, the deque keeps no reference
+	 * to it
+	 * @param list elements to be added to the deque
+	 */
+	public void fill(ArrayList<T> list) {
+		checkIntegrity();
+
+		Object[] entries = list.toArray();
+		ensureRoom(entries.length);
+
+		//the free slots after the back may wrap around the end of the array
+		int start = wrap(frontIndex + numEntries);
+		int firstPart = Math.min(entries.length, deque.length - start);
+		System.arraycopy(entries, 0, deque, start, firstPart);
+		System.arraycopy(entries, firstPart, deque, 0, entries.length - firstPart);
+		numEntries += entries.length;
+		modCount++;
+	}
+
+	/**
+	 * Returns an iterator over the deque from front to back. The iterator
+	 * is fail-fast, it throws ConcurrentModificationException if the deque
+	 * is changed while it is being used
+	 * @return an iterator over the deque from front to back
+	 */
+	public Iterator<T> iterator() {
+		checkIntegrity();
+		return new DequeIterator();
+	}
+
+	/**
+	 * Returns a spliterator over the deque from front to back
+	 * @return a SIZED and SUBSIZED spliterator over the deque
+	 */
+	public Spliterator<T> spliterator() {
+		checkIntegrity();
+		return new CircularArraySpliterator<>(deque, frontIndex, 0, numEntries, () -> modCount, modCount);
+	}
+
+	/**
+	 * Returns a sequential stream over the deque from front to back
+	 * @return a stream of the elements in the deque
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * iterator that walks numEntries slots starting at frontIndex
+	 */
+	private class DequeIterator implements Iterator<T> {
+		private int visited = 0;
+		private final int expectedModCount = modCount;
+
+		public boolean hasNext() {
+			return visited < numEntries;
+		}
+
+		public T next() {
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(!hasNext())
+				throw new NoSuchElementException();
+			return deque[wrap(frontIndex + visited++)];
+		}
+	}
+}
@@ -0,0 +1,87 @@
+ 
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MyDequeTest {
+	public MyDeque<String> stringD;
+	public String a="a", b="b", c="c", d="d", e="e", f="f";
+	public ArrayList<String> fill = new ArrayList<String>();
+
+	@Before
+	public void setUp() throws Exception {
+		stringD = new MyDeque<String>(4);
+		stringD.enqueue(a);
+		stringD.enqueue(b);
+		stringD.enqueue(c);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stringD = null;
+	}
+
+	@Test
+	public void testStackAndQueueEnds() {
+		assertEquals("a", stringD.getFront());
+		assertEquals("c", stringD.top());
+		assertEquals("c", stringD.pop());
+		assertEquals("a", stringD.dequeue());
+		stringD.addFront(d);
+		stringD.push(e);
+		assertEquals("dbe", stringD.toString());
+	}
+
+	@Test
+	public void testGrowsAcrossWraparound() {
+		//move the front so the contents wrap around the end of the array
+		stringD.dequeue();
+		stringD.dequeue();
+		stringD.enqueue(d);
+		stringD.enqueue(e);
+		stringD.addFront(b);
+		assertEquals(4, stringD.size());
+		
+		//the array is full, this one has to grow it
+		stringD.enqueue(f);
+		assertEquals("b%c%d%e%f", stringD.toString("%"));
+		assertFalse(stringD.isFull());
+	}
+
+	@Test
+	public void testPopUnderflow() {
+		stringD.clear();
+		assertTrue(stringD.isEmpty());
+		try {
+			stringD.pop();
+			assertTrue("This should have caused an StackUnderflowException", false);
+		}
+		catch (StackUnderflowException e){
+			assertTrue("This should have caused an StackUnderflowException", true);
+		}
+		try {
+			stringD.dequeue();
+			assertTrue("This should have caused an QueueUnderflowException", false);
+		}
+		catch (QueueUnderflowException e){
+			assertTrue("This should have caused an QueueUnderflowException", true);
+		}
+	}
+
+	@Test
+	public void testFill() {
+		fill.add("apple");
+		fill.add("banana");
+		fill.add("carrot");
+		stringD.dequeue();
+		stringD.fill(fill);
+		assertEquals(5, stringD.size());
+		assertEquals("b,c,apple,banana,carrot", stringD.toString(","));
+		assertEquals("carrot", stringD.pop());
+		assertEquals("b", stringD.dequeue());
+	}
+}
@@ -1,4 +1,14 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * a class that implements a generic array based ADT Queue 
@@ -6,15 +16,21 @@ import java.util.ArrayList;
  *
  * @param <T> a generic type representing any object type
  */
-public final class MyQueue<T> implements QueueInterface<T> {
+public final class MyQueue<T> implements QueueInterface<T>, Iterable<T> {
 	
 	private T[] queue;
 	private int frontIndex;
 	private int backIndex; 
 	private int numEntries; 
 	private boolean integrityOK;
+	//counts changes to the contents so iterators can fail fast
+	private int modCount;
+	//the most elements held since the last resetHighWaterMark
+	private int highWaterMark;
+	//whether a full Queue grows instead of overflowing, only the workspace turns this on
+	private boolean growable;
 	private static final int DEFAULT_CAPACITY = 75; 
-	private static final int MAX_CAPACITY = 10000;
+	static final int MAX_CAPACITY = 10000;
 	
 	public MyQueue() {
 		this(DEFAULT_CAPACITY);
@@ -62,13 +78,66 @@ public final class MyQueue<T> implements QueueInterface<T> {
 	public boolean enqueue(T newEntry) {
 		checkIntegrity(); 
 		if(isFull())
-			throw new QueueOverflowException();
+			grow(numEntries + 1);
 		backIndex = (backIndex + 1) % queue.length; 
 		queue[backIndex] = newEntry; 
 		numEntries++;
+		if(numEntries > highWaterMark)
+			highWaterMark = numEntries;
+		modCount++;
 		return true;
 	}
 	
+	/**
+	 * makes room for at least minCapacity elements if the Queue is growable. 
+	 * The elements are copied to the start of the new array in order, so 
+	 * the wraparound goes away, and the array at least doubles
+	 * @throws QueueOverflowException if the Queue is not growable or 
+	 * minCapacity is more than MAX_CAPACITY
+	 */
+	private void grow(int minCapacity) {
+		if(!growable || minCapacity > MAX_CAPACITY)
+			throw new QueueOverflowException();
+		int newCapacity = Math.max(minCapacity, Math.min(2 * capacity() + 1, MAX_CAPACITY));
+		
+		@SuppressWarnings("unchecked")
+		T[] newQueue = (T[]) new Object[newCapacity + 1];
+		int firstPart = Math.min(numEntries, queue.length - frontIndex);
+		System.arraycopy(queue, frontIndex, newQueue, 0, firstPart);
+		System.arraycopy(queue, 0, newQueue, firstPart, numEntries - firstPart);
+		
+		queue = newQueue;
+		frontIndex = 0;
+		backIndex = (numEntries - 1 + queue.length) % queue.length;
+	}
+	
+	/**
+	 * lets a full Queue grow up to MAX_CAPACITY instead of throwing 
+	 * QueueOverflowException. isFull still reports whether the current 
+	 * array is full
+	 * @param growable true to grow when full, false to overflow
+	 */
+	void setGrowable(boolean growable) {
+		this.growable = growable;
+	}
+	
+	/**
+	 * Returns the most elements the Queue has held at once since it was 
+	 * created or resetHighWaterMark was last called. reset and dequeue 
+	 * don't lower it
+	 * @return the high-water mark of the Queue
+	 */
+	public int highWaterMark() {
+		return highWaterMark;
+	}
+	
+	/**
+	 * Starts tracking the high-water mark over from the current size
+	 */
+	public void resetHighWaterMark() {
+		highWaterMark = numEntries;
+	}
+	
 	/**
 	 * checks to ensure integrity is ok 
 	 * @throws IllegalStateException if the integrity of the object 
@@ -119,6 +188,7 @@ public final class MyQueue<T> implements QueueInterface<T> {
 			queue[frontIndex] = null;
 			frontIndex = (frontIndex + 1) % queue.length;
 			numEntries--;
+			modCount++;
 			return front;
 		}		
 	}
@@ -129,6 +199,30 @@ public final class MyQueue<T> implements QueueInterface<T> {
 			dequeue();
 	}
 	
+	/**
+	 * Empties the Queue in constant time by moving the indexes back to their 
+	 * starting positions. Unlike clear, which dequeues every element, the old 
+	 * slots are not set to null, they are simply overwritten by later enqueues. 
+	 * That makes this meant for reusing a Queue as scratch space, the old 
+	 * elements stay reachable until they are overwritten or the Queue is dropped
+	 */
+	public void reset() {
+		checkIntegrity();
+		frontIndex = 0;
+		backIndex = queue.length - 1;
+		numEntries = 0;
+		modCount++;
+	}
+	
+	/**
+	 * Returns the number of elements the Queue can hold
+	 * @return the capacity of the Queue
+	 */
+	public int capacity() {
+		//one slot is always left empty, see isFull
+		return queue.length - 1;
+	}
+	
 	/**
 	 * Returns number of elements in the Queue
 	 * @return the number of elements in the Queue
@@ -159,7 +253,11 @@ public final class MyQueue<T> implements QueueInterface<T> {
 	public String toString(String delimiter) {
 		checkIntegrity(); 
 		
-		String stackStr = "";
+		/*
+		 * a StringBuilder is used instead of += so building the string is 
+		 * linear in its length, += copies the whole string for every element
+		 */
+		StringBuilder stackStr = new StringBuilder(numEntries);
 		
 		/*
 		 * if stack is empty then topIndex is -1 and this for loop will not iterate 
@@ -167,14 +265,24 @@ public final class MyQueue<T> implements QueueInterface<T> {
 		 */
 		for(int count = frontIndex; count < frontIndex + numEntries; count++) {
 			
-			stackStr += queue[count % queue.length];
+			Object entry = queue[count % queue.length];
+			
+			/*
+			 * a Character is appended as a char. Appending it as an Object 
+			 * would call toString and allocate a one character String for 
+			 * every element, which is most of what converting costs
+			 */
+			if(entry instanceof Character)
+				stackStr.append(((Character) entry).charValue());
+			else
+				stackStr.append(entry);
 			
 			//do not add delimiter after the last item
 			if(count != (frontIndex + numEntries -1)) 
-				stackStr += delimiter;
+				stackStr.append(delimiter);
 		}
 		
-		return stackStr;
+		return stackStr.toString();
 	}
 
 
@@ -191,13 +299,236 @@ public final class MyQueue<T> implements QueueInterface<T> {
 	public void fill(ArrayList<T> list) {
 		checkIntegrity();
 		
+		//enqueueAll copies the list into its own array first so no clone is needed
+		enqueueAll(list); //this will throw QueueOverflowException if the queue gets full
+	}
+	
+	/**
+	 * Adds every element of the collection to the back of the Queue in the 
+	 * collection's order. The capacity is checked once for the whole collection 
+	 * and the elements are copied in with at most two array copies
+	 * @param entries elements to be added to the Queue
+	 * @throws QueueOverflowException if the Queue does not have room for all 
+	 * of the elements, in which case nothing is added
+	 */
+	public void enqueueAll(Collection<? extends T> entries) {
+		checkIntegrity();
+		
+		//toArray gives us a private snapshot, so the caller can't change it mid copy
+		//safe because the array is only ever read back as T elements
 		@SuppressWarnings("unchecked")
-		ArrayList<T> listClone = (ArrayList<T>)list.clone();
+		T[] snapshot = (T[]) entries.toArray();
+		enqueueAll(snapshot, 0, snapshot.length);
+	}
+	
+	/**
+	 * Adds length elements of the array starting at offset to the back of the 
+	 * Queue, array[offset] is added first
+	 * @param entries the array holding the elements
+	 * @param offset the index of the first element to add
+	 * @param length the number of elements to add
+	 * @throws IndexOutOfBoundsException if offset and length do not describe 
+	 * a slice of the array
+	 * @throws QueueOverflowException if the Queue does not have room for all 
+	 * of the elements, in which case nothing is added
+	 */
+	public void enqueueAll(T[] entries, int offset, int length) {
+		checkIntegrity();
+		if(offset < 0 || length < 0 || offset > entries.length - length)
+			throw new IndexOutOfBoundsException();
+		
+		//one slot of the array is always left empty, see isFull
+		if(length > queue.length - 1 - numEntries)
+			grow(numEntries + length);
+		
+		if(length == 0)
+			return;
+		
+		/*
+		 * the free slots start right after backIndex and may wrap around the 
+		 * end of the array, so the copy is split in two. The first copy fills 
+		 * up to the end of the array and the second one continues at index 0
+		 */
+		int start = (backIndex + 1) % queue.length;
+		int firstPart = Math.min(length, queue.length - start);
+		System.arraycopy(entries, offset, queue, start, firstPart);
+		System.arraycopy(entries, offset + firstPart, queue, 0, length - firstPart);
+		
+		backIndex = (backIndex + length) % queue.length;
+		numEntries += length;
+		highWaterMark = Math.max(highWaterMark, numEntries);
+		modCount++;
+	}
+	
+	/**
+	 * Adds every element of the iterable to the back of the Queue in iteration 
+	 * order. Collections are sent to the bulk copy, anything else has no known 
+	 * size so it is added one element at a time
+	 * @param entries elements to be added to the Queue
+	 * @throws QueueOverflowException if queue gets full
+	 */
+	public void enqueueAll(Iterable<? extends T> entries) {
+		if(entries instanceof Collection) {
+			enqueueAll((Collection<? extends T>) entries);
+			return;
+		}
+		
+		checkIntegrity();
+		for(T entry : entries)
+			enqueue(entry);
+	}
+	
+	/**
+	 * Removes up to max elements from the front of the Queue and copies them 
+	 * into the array, the front element is stored at index 0
+	 * @param array the array to copy the removed elements into
+	 * @param max the most elements to remove
+	 * @return the number of elements removed
+	 * @throws IllegalArgumentException if max is negative
+	 * @throws IndexOutOfBoundsException if array is too small to hold the 
+	 * removed elements
+	 */
+	public int drainTo(T[] array, int max) {
+		checkIntegrity();
+		if(max < 0)
+			throw new IllegalArgumentException();
+		
+		int count = Math.min(max, numEntries);
+		if(count > array.length)
+			throw new IndexOutOfBoundsException();
 		
-		for(int count = 0; count < listClone.size(); count++)
-			enqueue(listClone.get(count)); //this will throw StackOverflowException if the stack gets full
+		//same wraparound split as enqueueAll, just reading instead of writing
+		int firstPart = Math.min(count, queue.length - frontIndex);
+		System.arraycopy(queue, frontIndex, array, 0, firstPart);
+		System.arraycopy(queue, 0, array, firstPart, count - firstPart);
+		
+		//null the slots out so the removed objects can be garbage collected
+		Arrays.fill(queue, frontIndex, frontIndex + firstPart, null);
+		Arrays.fill(queue, 0, count - firstPart, null);
+		
+		frontIndex = (frontIndex + count) % queue.length;
+		numEntries -= count;
+		modCount++;
+		return count;
+	}
+	
+	/**
+	 * Deletes the front count elements of the Queue and copies them into the 
+	 * array, the front element is stored at index 0
+	 * @param count the number of elements to delete
+	 * @param array the array to copy the deleted elements into
+	 * @throws IllegalArgumentException if count is negative
+	 * @throws IndexOutOfBoundsException if array is shorter than count
+	 * @throws QueueUnderflowException if the Queue has fewer than count 
+	 * elements, in which case nothing is deleted
+	 */
+	public void dequeueN(int count, T[] array) throws QueueUnderflowException {
+		checkIntegrity();
+		if(count < 0)
+			throw new IllegalArgumentException();
+		if(count > numEntries)
+			throw new QueueUnderflowException();
+		if(count > array.length)
+			throw new IndexOutOfBoundsException();
+		
+		drainTo(array, count);
+	}
+	
+	/**
+	 * Writes the capacity and elements of the Queue to a file, replacing it if 
+	 * it exists. The elements must all be of one type: a boxed primitive or String. 
+	 * They are read directly out of the backing array, as the two runs on either 
+	 * side of the wraparound, and stored in a compact binary form, Java 
+	 * serialization is not used
+	 * @param path the file to write
+	 * @throws IllegalArgumentException if an element is null or the elements 
+	 * are not all of one supported type
+	 * @throws IOException if the file can't be written
+	 */
+	public void writeSnapshot(Path path) throws IOException {
+		checkIntegrity();
+		StructureSnapshot.write(path, StructureSnapshot.QUEUE, capacity(), queue, frontIndex, numEntries);
+	}
+	
+	/**
+	 * Creates a Queue from a file written by writeSnapshot, with the same 
+	 * capacity and the same elements in the same order. The caller is trusted 
+	 * to ask for the element type the snapshot was written with
+	 * @param path the file to read
+	 * @return the restored Queue
+	 * @throws IOException if the file can't be read or is not a Queue snapshot
+	 */
+	public static <T> MyQueue<T> readSnapshot(Path path) throws IOException {
+		StructureSnapshot.Contents contents = StructureSnapshot.read(path, StructureSnapshot.QUEUE);
+		MyQueue<T> restored = new MyQueue<>(contents.capacity);
 		
+		@SuppressWarnings("unchecked")
+		T[] elements = (T[]) contents.elements;
+		restored.enqueueAll(elements, 0, elements.length);
+		return restored;
+	}
+	
+	/**
+	 * Returns an iterator over the elements of the Queue from front to back, 
+	 * the same order toString uses. The iterator is fail-fast, it throws 
+	 * ConcurrentModificationException if the Queue is changed while it is 
+	 * being used
+	 * @return an iterator over the Queue from front to back
+	 */
+	public Iterator<T> iterator() {
+		checkIntegrity();
+		return new QueueIterator();
 	}
 	
+	/**
+	 * Returns a spliterator over the backing array from front to back. The 
+	 * elements may wrap around the end of the array, the spliterator follows 
+	 * the wraparound itself so parallel streams never copy the Queue
+	 * @return a SIZED and SUBSIZED spliterator over the Queue
+	 */
+	public Spliterator<T> spliterator() {
+		checkIntegrity();
+		return new CircularArraySpliterator<>(queue, frontIndex, 0, numEntries, () -> modCount, modCount);
+	}
 	
+	/**
+	 * Returns a sequential stream over the Queue from front to back
+	 * @return a stream of the elements in the Queue
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a parallel stream over the Queue from front to back
+	 * @return a parallel stream of the elements in the Queue
+	 */
+	public Stream<T> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/**
+	 * iterator that walks numEntries slots starting at frontIndex, 
+	 * wrapping around the end of the array
+	 */
+	private class QueueIterator implements Iterator<T> {
+		private int visited = 0;
+		private int cursor = frontIndex;
+		private final int expectedModCount = modCount;
+		
+		public boolean hasNext() {
+			return visited < numEntries;
+		}
+		
+		public T next() {
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(!hasNext())
+				throw new NoSuchElementException();
+			T entry = queue[cursor];
+			cursor = (cursor + 1) % queue.length;
+			visited++;
+			return entry;
+		}
+	}
 }
@@ -1,7 +1,12 @@
  
 import static org.junit.Assert.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Before;
@@ -124,6 +129,41 @@ public class MyQueueTest {
 		}
 	}
 
+	@Test
+	public void testHighWaterMark() {
+		assertEquals(3, stringQ.highWaterMark());
+		stringQ.dequeue();
+		stringQ.dequeue();
+		assertEquals(3, stringQ.highWaterMark());
+		stringQ.resetHighWaterMark();
+		assertEquals(1, stringQ.highWaterMark());
+		stringQ.enqueueAll(new String[] {"x", "y", "z"}, 0, 3);
+		assertEquals(4, stringQ.highWaterMark());
+		stringQ.reset();
+		assertEquals(4, stringQ.highWaterMark());
+	}
+	
+	@Test
+	public void testGrowable() {
+		//wrap the queue around the end of its array before it grows
+		stringQ.dequeue();
+		stringQ.dequeue();
+		stringQ.enqueue(d);
+		stringQ.enqueue(e);
+		stringQ.enqueue(f);
+		stringQ.enqueue(a);
+		stringQ.setGrowable(true);
+		stringQ.enqueue(b);
+		stringQ.enqueueAll(new String[] {"x", "y", "z"}, 0, 3);
+		assertEquals(9, stringQ.size());
+		assertTrue(stringQ.capacity() >= 9);
+		assertEquals(9, stringQ.highWaterMark());
+		assertEquals("cdefabxyz", stringQ.toString());
+		assertEquals(c, stringQ.dequeue());
+		stringQ.enqueue(c);
+		assertEquals("defabxyzc", stringQ.toString());
+	}
+	
 	@Test
 	public void testIsFull() {
 		assertEquals(false, stringQ.isFull());
@@ -175,5 +215,153 @@ public class MyQueueTest {
 		assertEquals("banana", stringQ.dequeue());
 		assertEquals("carrot", stringQ.dequeue());		
 	}
-
-}
\ No newline at end of file
+	
+	@Test
+	public void testEnqueueAllWrapsAround() {
+		//move the front forward so the copy has to wrap around the array
+		stringQ.enqueue(d);
+		stringQ.enqueue(e);
+		stringQ.dequeue();
+		stringQ.dequeue();
+		stringQ.dequeue();
+		fill.add("f");
+		fill.add("g");
+		fill.add("h");
+		stringQ.enqueueAll(fill);
+		assertEquals("defgh", stringQ.toString());
+		
+		stringQ.dequeue();
+		try {
+			stringQ.enqueueAll(new String[] {"x", "y"}, 0, 2);
+			assertTrue("This should have caused an QueueOverflowException", false);
+		}
+		catch (QueueOverflowException e){
+			assertTrue("This should have caused an QueueOverflowException", true);
+		}
+		assertEquals(4, stringQ.size());
+		
+		stringQ.enqueueAll(new String[] {"x", "y"}, 1, 1);
+		assertEquals("efghy", stringQ.toString());
+	}
+	
+	@Test
+	public void testDrainTo() {
+		doubleQ.dequeue();
+		doubleQ.enqueue(d5);
+		doubleQ.enqueue(d6);
+		Double[] drained = new Double[5];
+		assertEquals(5, doubleQ.drainTo(drained, 10));
+		assertEquals(d2, drained[0]);
+		assertEquals(d6, drained[4]);
+		assertTrue(doubleQ.isEmpty());
+		
+		doubleQ.enqueue(d1);
+		assertEquals(d1, doubleQ.getFront());
+	}
+	
+	@Test
+	public void testDequeueN() {
+		Double[] removed = new Double[5];
+		doubleQ.dequeueN(2, removed);
+		assertEquals(d1, removed[0]);
+		assertEquals(d2, removed[1]);
+		try {
+			doubleQ.dequeueN(doubleQ.size() + 1, removed);
+			assertTrue("This should have caused an QueueUnderflowException", false);
+		}
+		catch (QueueUnderflowException e){
+			assertTrue("This should have caused an QueueUnderflowException", true);
+		}
+		assertEquals(d3, doubleQ.getFront());
+	}
+	
+	@Test
+	public void testBulkAtCapacity() {
+		MyQueue<Integer> intQ = new MyQueue<Integer>(MyQueue.MAX_CAPACITY);
+		Integer[] entries = new Integer[MyQueue.MAX_CAPACITY];
+		for(int index = 0; index < entries.length; index++)
+			entries[index] = index;
+		
+		//start in the middle so the copies wrap around the full array
+		intQ.enqueueAll(entries, 0, MyQueue.MAX_CAPACITY / 2);
+		Integer[] removed = new Integer[MyQueue.MAX_CAPACITY];
+		intQ.dequeueN(MyQueue.MAX_CAPACITY / 2, removed);
+		intQ.enqueueAll(entries, 0, entries.length);
+		assertTrue(intQ.isFull());
+		try {
+			intQ.enqueueAll(entries, 0, 1);
+			assertTrue("This should have caused an QueueOverflowException", false);
+		}
+		catch (QueueOverflowException e){
+			assertTrue("This should have caused an QueueOverflowException", true);
+		}
+		assertEquals(MyQueue.MAX_CAPACITY, intQ.size());
+		
+		assertEquals(MyQueue.MAX_CAPACITY, intQ.drainTo(removed, Integer.MAX_VALUE));
+		assertArrayEquals(entries, removed);
+		assertTrue(intQ.isEmpty());
+	}
+	
+	@Test
+	public void testIteratorWrapsAround() {
+		stringQ.enqueue(d);
+		stringQ.enqueue(e);
+		stringQ.dequeue();
+		stringQ.dequeue();
+		stringQ.enqueue(f);
+		String iterated = "";
+		for(String entry : stringQ)
+			iterated += entry;
+		assertEquals("cdef", iterated);
+		
+		try {
+			for(String entry : stringQ)
+				stringQ.dequeue();
+			assertTrue("This should have caused an ConcurrentModificationException", false);
+		}
+		catch (ConcurrentModificationException e){
+			assertTrue("This should have caused an ConcurrentModificationException", true);
+		}
+	}
+	
+	@Test
+	public void testSpliteratorWrapsAround() {
+		doubleQ.dequeue();
+		doubleQ.dequeue();
+		doubleQ.enqueue(d5);
+		doubleQ.enqueue(d6);
+		doubleQ.enqueue(d1);
+		
+		Spliterator<Double> whole = doubleQ.spliterator();
+		assertTrue(whole.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+		Spliterator<Double> prefix = whole.trySplit();
+		assertEquals(2, prefix.estimateSize());
+		assertEquals(3, whole.estimateSize());
+		
+		assertEquals("1.39,2.54,5.87,3.29,1.23", 
+				doubleQ.parallelStream().map(String::valueOf).collect(Collectors.joining(",")));
+	}
+	
+	@Test
+	public void testSnapshotWrapsAround() throws Exception {
+		stringQ.enqueue(d);
+		stringQ.enqueue(e);
+		stringQ.dequeue();
+		stringQ.dequeue();
+		stringQ.enqueue("f\u00e9");
+		
+		Path file = Files.createTempFile("queue", ".snap");
+		try {
+			stringQ.writeSnapshot(file);
+			MyQueue<String> restored = MyQueue.readSnapshot(file);
+			assertEquals("cdef\u00e9", restored.toString());
+			assertEquals(5, restored.capacity());
+			
+			doubleQ.writeSnapshot(file);
+			MyQueue<Double> restoredDoubles = MyQueue.readSnapshot(file);
+			assertEquals(doubleQ.toString(","), restoredDoubles.toString(","));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
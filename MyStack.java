@@ -1,4 +1,14 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * a class that implements a generic array based ADT Stack 
@@ -6,12 +16,18 @@ import java.util.ArrayList;
  *
  * @param <T> a generic type representing any object type
  */
-public final class MyStack<T> implements StackInterface<T> {
+public final class MyStack<T> implements StackInterface<T>, Iterable<T> {
 	private T[] stack;
 	private int topIndex;
 	private boolean integrityOK; 
+	//counts changes to the contents so iterators can fail fast
+	private int modCount;
+	//the most elements held since the last resetHighWaterMark
+	private int highWaterMark;
+	//whether a full Stack grows instead of overflowing, only the workspace turns this on
+	private boolean growable;
 	private static final int DEFAULT_CAPACITY = 50;
-	private static final int MAX_CAPACITY = 10000;
+	static final int MAX_CAPACITY = 10000;
 	
 	public MyStack() {
 		this(DEFAULT_CAPACITY); 
@@ -51,12 +67,55 @@ public final class MyStack<T> implements StackInterface<T> {
 	public boolean push(T newEntry) {
 		checkIntegrity();
 		if(isFull())
-			throw new StackOverflowException(); 
+			grow(size() + 1);
 		stack[topIndex + 1] = newEntry;
 		topIndex++;
+		if(topIndex >= highWaterMark)
+			highWaterMark = topIndex + 1;
+		modCount++;
 		return true;
 	}
 	
+	/**
+	 * makes room for at least minCapacity elements if the Stack is growable, 
+	 * at least doubling the array so a run of pushes copies it only a 
+	 * logarithmic number of times
+	 * @throws StackOverflowException if the Stack is not growable or 
+	 * minCapacity is more than MAX_CAPACITY
+	 */
+	private void grow(int minCapacity) {
+		if(!growable || minCapacity > MAX_CAPACITY)
+			throw new StackOverflowException();
+		stack = Arrays.copyOf(stack, Math.max(minCapacity, Math.min(2 * stack.length + 1, MAX_CAPACITY)));
+	}
+	
+	/**
+	 * lets a full Stack grow up to MAX_CAPACITY instead of throwing 
+	 * StackOverflowException. isFull still reports whether the current 
+	 * array is full
+	 * @param growable true to grow when full, false to overflow
+	 */
+	void setGrowable(boolean growable) {
+		this.growable = growable;
+	}
+	
+	/**
+	 * Returns the most elements the Stack has held at once since it was 
+	 * created or resetHighWaterMark was last called. reset and the pops 
+	 * don't lower it
+	 * @return the high-water mark of the Stack
+	 */
+	public int highWaterMark() {
+		return highWaterMark;
+	}
+	
+	/**
+	 * Starts tracking the high-water mark over from the current size
+	 */
+	public void resetHighWaterMark() {
+		highWaterMark = size();
+	}
+	
 	/**
 	 * checks to see if integrity is false if so it throws an exception
 	 * @throws IllegalStateException if integrity is false
@@ -94,11 +153,33 @@ public final class MyStack<T> implements StackInterface<T> {
 			T top = stack[topIndex];
 			stack[topIndex] = null;
 			topIndex--;
+			modCount++;
 			return top;
 		}
 	}
 	
 	
+	/**
+	 * Empties the Stack in constant time by moving topIndex back to the 
+	 * bottom. Unlike popping every element, the old slots are not set to 
+	 * null, they are simply overwritten by later pushes. That makes this 
+	 * meant for reusing a Stack as scratch space, the old elements stay 
+	 * reachable until they are overwritten or the Stack is dropped
+	 */
+	public void reset() {
+		checkIntegrity();
+		topIndex = -1;
+		modCount++;
+	}
+	
+	/**
+	 * Returns the number of elements the Stack can hold
+	 * @return the capacity of the Stack
+	 */
+	public int capacity() {
+		return stack.length;
+	}
+	
 	/**
 	 * Determines if Stack is empty
 	 * @return true if Stack is empty, false if not
@@ -146,21 +227,35 @@ public final class MyStack<T> implements StackInterface<T> {
 	public String toString(String delimiter) {
 		checkIntegrity(); 
 		
-		String stackStr = "";
+		/*
+		 * a StringBuilder is used instead of += so building the string is 
+		 * linear in its length, += copies the whole string for every element
+		 */
+		StringBuilder stackStr = new StringBuilder();
 		
 		/*
 		 * if stack is empty then topIndex is -1 and this for loop will not iterate 
 		 * hence it will return an empty string which is reasonable
 		 */
 		for(int count = 0; count <= topIndex; count++) {
-			stackStr += stack[count];
+			Object entry = stack[count];
+			
+			/*
+			 * a Character is appended as a char. Appending it as an Object 
+			 * would call toString and allocate a one character String for 
+			 * every element, which is most of what converting costs
+			 */
+			if(entry instanceof Character)
+				stackStr.append(((Character) entry).charValue());
+			else
+				stackStr.append(entry);
 			
 			//do not add delimiter after the last item
 			if(count != topIndex) 
-				stackStr += delimiter;
+				stackStr.append(delimiter);
 		}
 		
-		return stackStr;
+		return stackStr.toString();
 	}
 	
 	 /**
@@ -193,15 +288,212 @@ public final class MyStack<T> implements StackInterface<T> {
 		 */
 		checkIntegrity();
 		
+		/*
+		 * pushAll copies the list into its own array before it touches the 
+		 * stack so there is no need to clone the list first
+		 */
+		pushAll(list); //this will throw StackOverflowException if the stack gets full
+	}
+	
+	/**
+	 * Pushes every element of the collection onto the Stack, the first element 
+	 * of the collection ends up at the bottom. The capacity is checked once for 
+	 * the whole collection and the elements are copied into the Stack with a 
+	 * single array copy
+	 * @param entries elements to be added to the Stack from bottom to top
+	 * @throws StackOverflowException if the Stack does not have room for all 
+	 * of the elements, in which case nothing is pushed
+	 */
+	public void pushAll(Collection<? extends T> entries) {
+		checkIntegrity();
+		
+		//toArray gives us a private snapshot, so the caller can't change it mid copy
+		//safe because the array is only ever read back as T elements
 		@SuppressWarnings("unchecked")
-		ArrayList<T> listClone = (ArrayList<T>)list.clone();
+		T[] snapshot = (T[]) entries.toArray();
+		pushAll(snapshot, 0, snapshot.length);
+	}
+	
+	/**
+	 * Pushes length elements of the array starting at offset onto the Stack, 
+	 * array[offset] ends up at the bottom
+	 * @param entries the array holding the elements
+	 * @param offset the index of the first element to push
+	 * @param length the number of elements to push
+	 * @throws IndexOutOfBoundsException if offset and length do not describe 
+	 * a slice of the array
+	 * @throws StackOverflowException if the Stack does not have room for all 
+	 * of the elements, in which case nothing is pushed
+	 */
+	public void pushAll(T[] entries, int offset, int length) {
+		checkIntegrity();
+		if(offset < 0 || length < 0 || offset > entries.length - length)
+			throw new IndexOutOfBoundsException();
+		if(length > stack.length - size())
+			grow(size() + length);
 		
-		for(int count = 0; count < listClone.size(); count++)
-			push(listClone.get(count)); //this will throw StackOverflowException if the stack gets full
+		System.arraycopy(entries, offset, stack, topIndex + 1, length);
+		topIndex += length;
+		highWaterMark = Math.max(highWaterMark, topIndex + 1);
+		modCount++;
+	}
+	
+	/**
+	 * Pushes every element of the iterable onto the Stack in iteration order. 
+	 * Collections are sent to the bulk copy, anything else has no known size 
+	 * so it is pushed one element at a time
+	 * @param entries elements to be added to the Stack from bottom to top
+	 * @throws StackOverflowException if stack gets full
+	 */
+	public void pushAll(Iterable<? extends T> entries) {
+		if(entries instanceof Collection) {
+			pushAll((Collection<? extends T>) entries);
+			return;
+		}
 		
+		checkIntegrity();
+		for(T entry : entries)
+			push(entry);
+	}
+	
+	/**
+	 * Removes up to max elements from the top of the Stack and copies them into 
+	 * the array. They are stored from bottom to top, the same order pushAll takes 
+	 * them in, so pushAll(array, 0, count) puts them back the way they were
+	 * @param array the array to copy the removed elements into
+	 * @param max the most elements to remove
+	 * @return the number of elements removed
+	 * @throws IllegalArgumentException if max is negative
+	 * @throws IndexOutOfBoundsException if array is too small to hold the 
+	 * removed elements
+	 */
+	public int drainTo(T[] array, int max) {
+		checkIntegrity();
+		if(max < 0)
+			throw new IllegalArgumentException();
+		
+		int count = Math.min(max, size());
+		if(count > array.length)
+			throw new IndexOutOfBoundsException();
 		
+		int newTop = topIndex - count;
+		System.arraycopy(stack, newTop + 1, array, 0, count);
+		Arrays.fill(stack, newTop + 1, topIndex + 1, null);
+		topIndex = newTop;
+		modCount++;
+		return count;
 	}
 	
+	/**
+	 * Deletes the top count elements of the Stack and copies them into the 
+	 * array, stored from bottom to top the same way drainTo stores them
+	 * @param count the number of elements to delete
+	 * @param array the array to copy the deleted elements into
+	 * @throws IllegalArgumentException if count is negative
+	 * @throws IndexOutOfBoundsException if array is shorter than count
+	 * @throws StackUnderflowException if the Stack has fewer than count 
+	 * elements, in which case nothing is deleted
+	 */
+	public void popN(int count, T[] array) throws StackUnderflowException {
+		checkIntegrity();
+		if(count < 0)
+			throw new IllegalArgumentException();
+		if(count > size())
+			throw new StackUnderflowException();
+		if(count > array.length)
+			throw new IndexOutOfBoundsException();
+		
+		drainTo(array, count);
+	}
 	
-
+	/**
+	 * Writes the capacity and elements of the Stack to a file, replacing it if 
+	 * it exists. The elements must all be of one type: a boxed primitive or String. 
+	 * They are read directly out of the backing array and stored in a compact 
+	 * binary form, Java serialization is not used
+	 * @param path the file to write
+	 * @throws IllegalArgumentException if an element is null or the elements 
+	 * are not all of one supported type
+	 * @throws IOException if the file can't be written
+	 */
+	public void writeSnapshot(Path path) throws IOException {
+		checkIntegrity();
+		StructureSnapshot.write(path, StructureSnapshot.STACK, stack.length, stack, 0, size());
+	}
+	
+	/**
+	 * Creates a Stack from a file written by writeSnapshot, with the same 
+	 * capacity and the same elements in the same order. The caller is trusted 
+	 * to ask for the element type the snapshot was written with
+	 * @param path the file to read
+	 * @return the restored Stack
+	 * @throws IOException if the file can't be read or is not a Stack snapshot
+	 */
+	public static <T> MyStack<T> readSnapshot(Path path) throws IOException {
+		StructureSnapshot.Contents contents = StructureSnapshot.read(path, StructureSnapshot.STACK);
+		MyStack<T> restored = new MyStack<>(contents.capacity);
+		
+		@SuppressWarnings("unchecked")
+		T[] elements = (T[]) contents.elements;
+		restored.pushAll(elements, 0, elements.length);
+		return restored;
+	}
+	
+	/**
+	 * Returns an iterator over the elements of the Stack from bottom to top, 
+	 * the same order toString uses. The iterator is fail-fast, it throws 
+	 * ConcurrentModificationException if the Stack is changed while it is 
+	 * being used
+	 * @return an iterator over the Stack from bottom to top
+	 */
+	public Iterator<T> iterator() {
+		checkIntegrity();
+		return new StackIterator();
+	}
+	
+	/**
+	 * Returns a spliterator over the backing array from bottom to top. It splits 
+	 * by halving index ranges so parallel streams never copy the Stack
+	 * @return a SIZED and SUBSIZED spliterator over the Stack
+	 */
+	public Spliterator<T> spliterator() {
+		checkIntegrity();
+		return new CircularArraySpliterator<>(stack, 0, 0, size(), () -> modCount, modCount);
+	}
+	
+	/**
+	 * Returns a sequential stream over the Stack from bottom to top
+	 * @return a stream of the elements in the Stack
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a parallel stream over the Stack from bottom to top
+	 * @return a parallel stream of the elements in the Stack
+	 */
+	public Stream<T> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/**
+	 * iterator that walks the backing array from index 0 up to topIndex
+	 */
+	private class StackIterator implements Iterator<T> {
+		private int cursor = 0;
+		private final int expectedModCount = modCount;
+		
+		public boolean hasNext() {
+			return cursor <= topIndex;
+		}
+		
+		public T next() {
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(!hasNext())
+				throw new NoSuchElementException();
+			return stack[cursor++];
+		}
+	}
 }
@@ -1,7 +1,15 @@
  
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Before;
@@ -195,5 +203,177 @@ public class MyStackTest {
 		assertEquals("banana", stringS.pop());
 		assertEquals("apple", stringS.pop());		
 	}
-
-}
\ No newline at end of file
+	
+	@Test
+	public void testPushAll() {
+		fill.add("d");
+		fill.add("e");
+		stringS.pushAll(fill);
+		assertEquals("abcde", stringS.toString());
+		
+		//no room for both, nothing should be pushed
+		stringS.pop();
+		try {
+			stringS.pushAll(new String[] {"x", "y"}, 0, 2);
+			assertTrue("This should have caused an StackOverflowException", false);
+		}
+		catch (StackOverflowException e){
+			assertTrue("This should have caused an StackOverflowException", true);
+		}
+		assertEquals("abcd", stringS.toString());
+		
+		stringS.pushAll(new String[] {"x", "y"}, 1, 1);
+		assertEquals("abcdy", stringS.toString());
+	}
+	
+	@Test
+	public void testHighWaterMark() {
+		assertEquals(3, stringS.highWaterMark());
+		stringS.pop();
+		stringS.pop();
+		assertEquals(3, stringS.highWaterMark());
+		stringS.resetHighWaterMark();
+		assertEquals(1, stringS.highWaterMark());
+		stringS.pushAll(new String[] {"x", "y", "z"}, 0, 3);
+		assertEquals(4, stringS.highWaterMark());
+		stringS.reset();
+		assertEquals(4, stringS.highWaterMark());
+	}
+	
+	@Test
+	public void testGrowable() {
+		doubleS.push(d5);
+		doubleS.setGrowable(true);
+		doubleS.push(d6);
+		doubleS.pushAll(new Double[] {d1, d2, d3, d4, d5, d6}, 0, 6);
+		assertEquals(12, doubleS.size());
+		assertTrue(doubleS.capacity() >= 12);
+		assertEquals(12, doubleS.highWaterMark());
+		assertEquals(d6, doubleS.pop());
+		assertEquals("4.582.942.338.210.811.834.582.942.338.210.81", doubleS.toString());
+	}
+	
+	@Test
+	public void testDrainToAndPopN() {
+		String[] drained = new String[5];
+		assertEquals(2, stringS.drainTo(drained, 2));
+		assertEquals("b", drained[0]);
+		assertEquals("c", drained[1]);
+		assertEquals("a", stringS.toString());
+		
+		Double[] popped = new Double[3];
+		doubleS.popN(3, popped);
+		assertEquals(d2, popped[0]);
+		assertEquals(d4, popped[2]);
+		assertEquals(1, doubleS.size());
+		assertEquals(d1, doubleS.top());
+		try {
+			doubleS.popN(2, popped);
+			assertTrue("This should have caused an StackUnderflowException", false);
+		}
+		catch (StackUnderflowException e){
+			assertTrue("This should have caused an StackUnderflowException", true);
+		}
+		assertEquals(1, doubleS.size());
+	}
+	
+	@Test
+	public void testBulkAtCapacity() {
+		MyStack<Integer> intS = new MyStack<Integer>(MyStack.MAX_CAPACITY);
+		Integer[] entries = new Integer[MyStack.MAX_CAPACITY];
+		for(int index = 0; index < entries.length; index++)
+			entries[index] = index;
+		
+		intS.pushAll(entries, 0, entries.length - 1);
+		intS.pushAll(entries, entries.length - 1, 1);
+		assertTrue(intS.isFull());
+		try {
+			intS.pushAll(entries, 0, 1);
+			assertTrue("This should have caused an StackOverflowException", false);
+		}
+		catch (StackOverflowException e){
+			assertTrue("This should have caused an StackOverflowException", true);
+		}
+		assertEquals(MyStack.MAX_CAPACITY, intS.size());
+		
+		Integer[] popped = new Integer[MyStack.MAX_CAPACITY];
+		intS.popN(MyStack.MAX_CAPACITY / 2, popped);
+		assertEquals(Integer.valueOf(MyStack.MAX_CAPACITY / 2), popped[0]);
+		assertEquals(Integer.valueOf(MyStack.MAX_CAPACITY - 1), popped[MyStack.MAX_CAPACITY / 2 - 1]);
+		
+		//drainTo puts them back in an order pushAll takes
+		intS.pushAll(popped, 0, MyStack.MAX_CAPACITY / 2);
+		assertEquals(MyStack.MAX_CAPACITY, intS.drainTo(popped, Integer.MAX_VALUE));
+		assertArrayEquals(entries, popped);
+		assertTrue(intS.isEmpty());
+	}
+	
+	@Test
+	public void testIterator() {
+		String iterated = "";
+		for(String entry : stringS)
+			iterated += entry;
+		assertEquals("abc", iterated);
+		
+		try {
+			for(String entry : stringS)
+				stringS.push(entry);
+			assertTrue("This should have caused an ConcurrentModificationException", false);
+		}
+		catch (ConcurrentModificationException e){
+			assertTrue("This should have caused an ConcurrentModificationException", true);
+		}
+	}
+	
+	@Test
+	public void testStream() {
+		assertEquals("a,b,c", stringS.stream().collect(Collectors.joining(",")));
+		assertEquals(18.06, doubleS.parallelStream().mapToDouble(Double::doubleValue).sum(), .001);
+	}
+	
+	@Test
+	public void testSnapshot() throws Exception {
+		Path file = Files.createTempFile("stack", ".snap");
+		try {
+			doubleS.writeSnapshot(file);
+			MyStack<Double> restored = MyStack.readSnapshot(file);
+			assertEquals(doubleS.toString(","), restored.toString(","));
+			assertEquals(d4, restored.pop());
+			
+			try {
+				MyQueue.readSnapshot(file);
+				assertTrue("This should have caused an IOException", false);
+			}
+			catch (java.io.IOException e){
+				assertTrue("This should have caused an IOException", true);
+			}
+			
+			//a header claiming more than MAX_CAPACITY is reported as corrupt
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.allocate(4).putInt(0, MyStack.MAX_CAPACITY + 1), 7);
+			}
+			try {
+				MyStack.readSnapshot(file);
+				assertTrue("This should have caused an IOException", false);
+			}
+			catch (IOException e){
+				assertEquals("ERROR: snapshot is corrupt", e.getMessage());
+			}
+			
+			//so is a string longer than what is left of the file
+			stringS.writeSnapshot(file);
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 8), 15);
+			}
+			try {
+				MyStack.readSnapshot(file);
+				assertTrue("This should have caused an IOException", false);
+			}
+			catch (IOException e){
+				assertEquals("ERROR: snapshot is corrupt", e.getMessage());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -1,3 +1,5 @@
+import java.math.BigInteger;
+
 /**
  * A static utility class that provides methods for converting from 
  * infix to postfix and from postfix to infix. This class also 
@@ -8,6 +10,17 @@
  */
 public class Notation {
 	
+	/*
+	 * the operators and functions used by every method that is not given 
+	 * a registry. It is frozen, so nothing can change it once it is built
+	 */
+	static final OperatorRegistry STANDARD_OPERATORS = OperatorRegistry.standard().freeze();
+	
+	//the largest result, in bits, the exact evaluation raises a BigInteger to
+	private static final long MAX_EXACT_BITS = 1 << 20;
+	//every integer up to 2^53 has a double of its own
+	private static final long MAX_EXACT_DOUBLE = 1L << 53;
+	
 	/**
 	 * converts a infix expression into postfix expression 
 	 * using a stack and a queue.
@@ -17,12 +30,85 @@ public class Notation {
 	 * invalid in anyway. 
 	 */
 	public static String convertInfixToPostfix(String infix) {
-		MyStack<Character> operatorStack = new MyStack<>(infix.length());
-		MyQueue<Character> postfixQueue = new MyQueue<>(infix.length());
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			return convertInfixToPostfix(infix, workspace);
+		} finally {
+			workspace.release();
+		}
+	}
+	
+	/**
+	 * converts a infix expression into postfix expression 
+	 * using the stack and queue owned by workspace instead of 
+	 * allocating new ones.
+	 * @param infix a string representing a infix algebraic expression
+	 * @param workspace the workspace to do the conversion in
+	 * @return a string representing infix's postfix form
+	 * @throws InvalidNotationFormatException if the infix expression is 
+	 * invalid in anyway. 
+	 */
+	public static String convertInfixToPostfix(String infix, NotationWorkspace workspace) {
+		return convertInfixToPostfix(infix, workspace, STANDARD_OPERATORS);
+	}
+	
+	/**
+	 * converts a infix expression into postfix expression using the 
+	 * operators and functions in registry. A function call is written 
+	 * name(argument, ...) in infix. In postfix it is the name after its 
+	 * arguments, followed by the number of arguments in brackets if the 
+	 * function does not take a fixed number of them, as in 123max[3]. A 
+	 * name that would come right after another name is written after a 
+	 * space, as in 2sqrt abs, so the two don't read back as one
+	 * @param infix a string representing a infix algebraic expression
+	 * @param registry the operators and functions infix may use
+	 * @return a string representing infix's postfix form
+	 * @throws InvalidNotationFormatException if the infix expression is 
+	 * invalid in anyway. 
+	 */
+	public static String convertInfixToPostfix(String infix, OperatorRegistry registry) {
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			return convertInfixToPostfix(infix, workspace, registry);
+		} finally {
+			workspace.release();
+		}
+	}
+	
+	private static String convertInfixToPostfix(String infix, NotationWorkspace workspace, OperatorRegistry registry) {
+		NotationProfiler.Sample sample = NotationProfiler.start(NotationProfiler.Method.CONVERT_INFIX_TO_POSTFIX);
+		try {
+			return convertInfixToPostfix(infix, workspace, registry, sample);
+		} finally {
+			NotationProfiler.end(sample);
+		}
+	}
+	
+	private static String convertInfixToPostfix(String infix, NotationWorkspace workspace, OperatorRegistry registry, 
+			NotationProfiler.Sample sample) {
+		workspace.prepare(infix.length());
+		MyStack<Character> operatorStack = workspace.operatorStack();
+		MyQueue<Character> postfixQueue = workspace.postfixQueue();
+		NotationProfiler.mark(sample, NotationProfiler.Stage.PREPARE);
 		char nextCharacter;
 		char topOperator;
+		OperatorRegistry.Operator operator;
 		int numOperands = 0;
 		int numOperators = 0;
+		
+		/*
+		 * for every function call that is still open, the size of the 
+		 * operator stack just after its ( was pushed, the number of 
+		 * commas seen plus one, and numOperands - numOperators when it 
+		 * was opened. Only allocated once a function shows up
+		 */
+		int[] callStackSizes = null;
+		int[] callArguments = null;
+		int[] callValues = null;
+		int callTop = -1;
+		//the size of the output just past a name that ends in a letter, -1 if there isn't one
+		int nameOutputEnd = -1;
+		
 		int index = 0;
 		while(index < infix.length()) {
 			nextCharacter = infix.charAt(index);
@@ -37,37 +123,49 @@ public class Notation {
 				postfixQueue.enqueue(nextCharacter); 
 				numOperands++;
 			}
-			else {
+			else if((operator = registry.operator(nextCharacter)) != null) {
 				/*
-				 * i put the switch case in the else clause so that 
-				 * the switch is NOT evaluated if the character is 
-				 * a digit.
-				 * 
-				 * of course, I could of left it outside of the 
-				 * else statement and let the default case. However, 
-				 * that would cost a few more comparisons than 
-				 * preventing the switch case entirely if the 
-				 * character is a digit. 
+				 * pop the operators that bind tighter than this one, and for a 
+				 * left associative operator the ones that bind as tightly too. 
+				 * An open parenthesis counts as precedence 0 so it is never 
+				 * popped here
 				 */
-				switch(nextCharacter) {
-					case '^':
-						operatorStack.push(nextCharacter);
-						numOperators++;
+				while(!operatorStack.isEmpty()) {
+					int topPrecedence = stackPrecedenceOf(operatorStack.top(), registry);
+					if(topPrecedence < operator.getPrecedence() 
+							|| (topPrecedence == operator.getPrecedence() && operator.isRightAssociative()))
 						break;
-						
-					case '+': case '-': case '*': case '/': case '%': 
-						
-						while(!operatorStack.isEmpty() 
-								&& ( precedenceOf(nextCharacter) <= precedenceOf(operatorStack.top()) )  ) {
-							
-							postfixQueue.enqueue(operatorStack.top());
-							operatorStack.pop(); 
-							
-						}
-						operatorStack.push(nextCharacter);
-						numOperators++;
-						break;
-					
+					postfixQueue.enqueue(operatorStack.pop());
+				}
+				operatorStack.push(nextCharacter);
+				numOperators++;
+			}
+			else if(Character.isLetter(nextCharacter)) {
+				int nameEnd = nameEnd(infix, index);
+				OperatorRegistry.Function function = registry.function(infix, index, nameEnd);
+				if(function == null)
+					throw new InvalidNotationFormatException("ERROR: unknown function " + infix.substring(index, nameEnd));
+				if(nameEnd == infix.length() || infix.charAt(nameEnd) != '(')
+					throw new InvalidNotationFormatException("ERROR: " + function.getName() + " must be followed by (");
+				
+				if(callStackSizes == null) {
+					callStackSizes = new int[infix.length()];
+					callArguments = new int[infix.length()];
+					callValues = new int[infix.length()];
+				}
+				operatorStack.push(function.getToken());
+				operatorStack.push('(');
+				callTop++;
+				callStackSizes[callTop] = operatorStack.size();
+				callArguments[callTop] = 1;
+				callValues[callTop] = numOperands - numOperators;
+				
+				//continue past the (
+				index = nameEnd + 1;
+				continue;
+			}
+			else {
+				switch(nextCharacter) {
 					case '(':
 						operatorStack.push(nextCharacter); 
 						break;
@@ -87,9 +185,6 @@ public class Notation {
 								postfixQueue.enqueue(topOperator);
 								topOperator = operatorStack.pop();
 							}
-						
-						
-							break;
 						} catch (StackUnderflowException e) {
 							/*
 							 * as explained earlier, if the stack throws StackUnderflowException 
@@ -98,6 +193,35 @@ public class Notation {
 							throw new InvalidNotationFormatException("ERROR: Unbalanced Parentheses"); 
 						}
 						
+						//the ( that was just popped may be the one of a function call
+						if(callTop >= 0 && operatorStack.size() + 1 == callStackSizes[callTop]) {
+							OperatorRegistry.Function function = registry.function(operatorStack.pop());
+							int arguments = callArguments[callTop];
+							if(numOperands - numOperators - callValues[callTop] != arguments)
+								throw new InvalidNotationFormatException("ERROR: invalid arguments to " + function.getName());
+							if(!function.accepts(arguments))
+								throw new InvalidNotationFormatException("ERROR: wrong number of arguments to " + function.getName());
+							
+							//a name right after another one would read back as one name, a space keeps them apart
+							if(postfixQueue.size() == nameOutputEnd)
+								postfixQueue.enqueue(' ');
+							enqueueFunction(postfixQueue, function, arguments);
+							if(!function.isVariadic())
+								nameOutputEnd = postfixQueue.size();
+							//n arguments become one value, the same as n - 1 binary operators
+							numOperators += arguments - 1;
+							callTop--;
+						}
+						break;
+						
+					case ',':
+						while(!operatorStack.isEmpty() && operatorStack.top() != '(')
+							postfixQueue.enqueue(operatorStack.pop());
+						if(callTop < 0 || operatorStack.size() != callStackSizes[callTop])
+							throw new InvalidNotationFormatException("ERROR: , outside of a function call");
+						callArguments[callTop]++;
+						break;
+						
 					default: 
 						break;
 						
@@ -105,6 +229,7 @@ public class Notation {
 			}
 			index++;
 		}
+		NotationProfiler.mark(sample, NotationProfiler.Stage.SCAN);
 		
 		while(!operatorStack.isEmpty()) {
 			topOperator = operatorStack.pop();
@@ -124,8 +249,89 @@ public class Notation {
 		
 		if(numOperators < numOperands - 1)
 			throw new InvalidNotationFormatException("ERROR: not enough operators");
+		NotationProfiler.mark(sample, NotationProfiler.Stage.DRAIN);
+		
+		String postfix = postfixQueue.toString();
+		NotationProfiler.mark(sample, NotationProfiler.Stage.OUTPUT);
+		return postfix;
+	}
+	
+	/**
+	 * the precedence of an entry of the operator stack, an open 
+	 * parenthesis or a function has precedence 0
+	 */
+	private static int stackPrecedenceOf(char entry, OperatorRegistry registry) {
+		OperatorRegistry.Operator operator = registry.operator(entry);
+		return operator == null ? 0 : operator.getPrecedence();
+	}
+	
+	/**
+	 * @return the index just past the run of letters that starts at index
+	 */
+	static int nameEnd(CharSequence text, int index) {
+		while(index < text.length() && Character.isLetter(text.charAt(index)))
+			index++;
+		return index;
+	}
+	
+	/**
+	 * writes a function call into postfix, the name followed by the number 
+	 * of arguments in brackets if the function does not take a fixed number
+	 */
+	private static void enqueueFunction(MyQueue<Character> postfixQueue, OperatorRegistry.Function function, int arguments) {
+		String name = function.getName();
+		for(int index = 0; index < name.length(); index++)
+			postfixQueue.enqueue(name.charAt(index));
+		if(function.isVariadic()) {
+			postfixQueue.enqueue('[');
+			String count = Integer.toString(arguments);
+			for(int index = 0; index < count.length(); index++)
+				postfixQueue.enqueue(count.charAt(index));
+			postfixQueue.enqueue(']');
+		}
+	}
+	
+	/**
+	 * looks up the function whose name is the run of letters at index. 
+	 * Every class that reads postfix finds its functions through here
+	 * @param text the expression
+	 * @param index the index of the name's first letter
+	 * @param registry the functions text may use
+	 * @return the function, its name ends at index + getName().length()
+	 * @throws InvalidNotationFormatException if there is no such function
+	 */
+	static OperatorRegistry.Function functionAt(CharSequence text, int index, OperatorRegistry registry) {
+		int nameEnd = nameEnd(text, index);
+		OperatorRegistry.Function function = registry.function(text, index, nameEnd);
+		if(function == null)
+			throw new InvalidNotationFormatException("ERROR: unknown function " + text.subSequence(index, nameEnd));
+		return function;
+	}
+	
+	/**
+	 * reads the number of arguments of a function call in postfix
+	 * @param postfix the postfix expression
+	 * @param nameEnd the index just past the function's name
+	 * @param function the function being called
+	 * @return the number of arguments, in the lowest 32 bits, and the 
+	 * index just past the call in the highest 32 bits
+	 * @throws InvalidNotationFormatException if the count is missing or 
+	 * not allowed
+	 */
+	static long readFunctionCall(CharSequence postfix, int nameEnd, OperatorRegistry.Function function) {
+		if(!function.isVariadic())
+			return ((long) nameEnd << 32) | function.getMinArity();
 		
-		return postfixQueue.toString();
+		int index = nameEnd + 1;
+		long arguments = 0;
+		if(nameEnd < postfix.length() && postfix.charAt(nameEnd) == '[') {
+			while(index < postfix.length() && Character.isDigit(postfix.charAt(index)) && arguments <= Integer.MAX_VALUE)
+				arguments = 10 * arguments + Character.digit(postfix.charAt(index++), 10);
+		}
+		if(index >= postfix.length() || postfix.charAt(index) != ']' 
+				|| arguments > Integer.MAX_VALUE || !function.accepts((int) arguments))
+			throw new InvalidNotationFormatException("ERROR: wrong number of arguments to " + function.getName());
+		return ((long) (index + 1) << 32) | arguments;
 	}
 	
 	
@@ -138,31 +344,19 @@ public class Notation {
 	 * representing anything other than an arithmetic 
 	 * operator or open parenthesis is passed
 	 */
-	private static int precedenceOf(char operator) {
-		int precedence;
+	static int precedenceOf(char operator) {
+		if(operator == '(')
+			return 0;
 		
-		switch(operator) {
-			case '^': 
-				precedence = 3; 
-				break;
-			case '*': case '/':
-				precedence = 2;
-				break;
-			case '+': case '-': case '%':
-				precedence = 1;
-				break;
-			case '(': 
-				precedence = 0;
-				break;
-			default: 
-				/* 
-				 * this will only run if the char passed 
-				 * into this method is not a operator
-				 */
-				throw new IllegalArgumentException();
-		}
+		OperatorRegistry.Operator registered = STANDARD_OPERATORS.operator(operator);
+		/* 
+		 * this will only run if the char passed 
+		 * into this method is not a operator
+		 */
+		if(registered == null)
+			throw new IllegalArgumentException();
 		
-		return precedence; 
+		return registered.getPrecedence(); 
 	}
 	
 	/**
@@ -173,84 +367,434 @@ public class Notation {
 	 * invalid in anyway. 
 	 */
 	public static double evaluatePostfixExpression(String postfixExpr) {
-		MyStack<Double> valueStack = new MyStack<>(postfixExpr.length());
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			return evaluatePostfixExpression(postfixExpr, workspace);
+		} finally {
+			workspace.release();
+		}
+	}
+	
+	/**
+	 * Evaluates a postfix expression using the value stack owned by 
+	 * workspace instead of allocating a new one
+	 * @param postfixExpr a string representing a postfix expression
+	 * @param workspace the workspace to do the evaluation in
+	 * @return a double representing the postfix expression's value
+	 * @throws InvalidNotationFormatException if the postfix expression is 
+	 * invalid in anyway. 
+	 */
+	public static double evaluatePostfixExpression(String postfixExpr, NotationWorkspace workspace) {
+		return evaluatePostfixExpression(postfixExpr, workspace, STANDARD_OPERATORS);
+	}
+	
+	/**
+	 * Evaluates a postfix expression using the operators and functions 
+	 * in registry
+	 * @param postfixExpr a string representing a postfix expression
+	 * @param registry the operators and functions postfixExpr may use
+	 * @return a double representing the postfix expression's value
+	 * @throws InvalidNotationFormatException if the postfix expression is 
+	 * invalid in anyway. 
+	 */
+	public static double evaluatePostfixExpression(String postfixExpr, OperatorRegistry registry) {
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			return evaluatePostfixExpression(postfixExpr, workspace, registry);
+		} finally {
+			workspace.release();
+		}
+	}
+	
+	private static double evaluatePostfixExpression(String postfixExpr, NotationWorkspace workspace, OperatorRegistry registry) {
+		NotationProfiler.Sample sample = NotationProfiler.start(NotationProfiler.Method.EVALUATE_POSTFIX_EXPRESSION);
+		try {
+			return evaluatePostfixExpression(postfixExpr, workspace, registry, sample);
+		} finally {
+			NotationProfiler.end(sample);
+		}
+	}
+	
+	private static double evaluatePostfixExpression(String postfixExpr, NotationWorkspace workspace, OperatorRegistry registry, 
+			NotationProfiler.Sample sample) {
+		workspace.prepare(postfixExpr.length());
+		/*
+		 * the values live on a primitive double stack rather than a 
+		 * MyStack<Double>, so evaluating boxes nothing and allocates nothing
+		 */
+		double[] values = workspace.doubleValues();
+		NotationProfiler.mark(sample, NotationProfiler.Stage.PREPARE);
+		int topIndex = -1;
 		char nextCharacter; 
-		Double operandTwo;
-		Double operandOne;
-		Double result; 
-		Double charValue;
+		OperatorRegistry.Operator operator;
+		double result; 
 		int index = 0;
 		while(index < postfixExpr.length()) {
 			nextCharacter = postfixExpr.charAt(index); 
 			
 			if(Character.isDigit(nextCharacter)) {
-				//convert nextChar into a double and store in a Double wrapper obj
-				charValue = (double) Character.digit(nextCharacter, 10); 
-				valueStack.push(charValue);
+				//convert nextChar into a double and push it
+				values[++topIndex] = Character.digit(nextCharacter, 10);
 			}
-			else {
+			else if((operator = registry.operator(nextCharacter)) != null) {
+				/*
+				 * if there aren't two values on the stack then there aren't 
+				 * enough operands. Therefore, the expression is invalid
+				 */
+				if(topIndex < 1)
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+				
+				topIndex--;
+				values[topIndex] = operator.apply(values[topIndex], values[topIndex + 1]); 
+			}
+			else if(Character.isLetter(nextCharacter)) {
+				OperatorRegistry.Function function = functionAt(postfixExpr, index, registry);
+				long call = readFunctionCall(postfixExpr, index + function.getName().length(), function);
+				int arguments = (int) call;
+				
+				if(topIndex + 1 < arguments)
+					throw new InvalidNotationFormatException("ERROR: too few operands");
 				
+				//the arguments are the top values of the stack, the result replaces them
+				topIndex -= arguments - 1;
+				values[topIndex] = function.apply(values, topIndex, arguments);
+				index = (int) (call >>> 32);
+				continue;
+			}
+			else if(nextCharacter == '(' || nextCharacter == ')') {
 				/*
-				 * reasoning for wrapping switch in an 
-				 * else clause is the same as reasoning 
-				 * discussed in InfixToPostfix method
-				 * 
-				 * for reference this is the reasoning I 
-				 * provided earlier: 
-				 * 
-					 * i put the switch case in the else clause so that 
-					 * the switch is NOT evaluated if the character is 
-					 * a digit.
-					 * 
-					 * of course, I could of left it outside of the 
-					 * else statement and let the default case. However, 
-					 * that would cost a few more comparisons than 
-					 * preventing the switch case entirely if the 
-					 * character is a digit. 
-				 * 
-				 * 
+				 * no parenthesis should be present in the postfix expression
 				 */
-				switch(nextCharacter) {
-					case '+': case '-': case '*': case '/': case '^': case '%':
-						
-						/*
-						 * if StackUnderflowException is thrown then there aren't 
-						 * enough operands. Therefore, the expression is invalid
-						 */
-						try {
-							operandTwo = valueStack.pop();
-							operandOne = valueStack.pop();
-						} catch(StackUnderflowException e) {
-							throw new InvalidNotationFormatException("ERROR: too few operands");
-						}
-						result = calculate(operandOne, nextCharacter, operandTwo); 
-						
-						valueStack.push(result); 
-						break;
-						
-					case '(': case ')':
-						/*
-						 * no parenthesis should be present in the postfix expression
-						 */
-						throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
-					default:
-						break;
-				}
+				throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
 			}
 			
 			index++; 
 			
 		}
+		NotationProfiler.mark(sample, NotationProfiler.Stage.SCAN);
 		
-		result = valueStack.pop(); 
+		//an empty expression underflows the stack, the same as popping an empty MyStack
+		if(topIndex < 0)
+			throw new StackUnderflowException();
+		result = values[topIndex]; 
 		
 		//if you have extra operands then the expression was invalid 
+		if(topIndex > 0) {
+			throw new InvalidNotationFormatException("ERROR: Too many operands");
+		}
+		NotationProfiler.mark(sample, NotationProfiler.Stage.DRAIN);
+		
+		return result;
+		
+	}
+	
+	
+	/**
+	 * Evaluates a postfix expression using exact integer arithmetic. 
+	 * The values are kept on a primitive long stack, / and % truncate 
+	 * toward zero like Java's long division and ^ is computed by squaring. 
+	 * When a result can't be represented as a long the evaluation switches 
+	 * over to BigInteger, and when it isn't an integer at all (a negative 
+	 * exponent or dividing by zero) it switches to double, so the result is 
+	 * only as inexact as it has to be. Functions work on doubles, so a call 
+	 * only stays exact while its arguments and its result are integers 
+	 * that a double holds exactly
+	 * @param postfixExpr a string representing a postfix expression
+	 * @return a Long if every step fit in a long, otherwise a BigInteger, 
+	 * or a Double if a step did not have an integer result
+	 * @throws InvalidNotationFormatException if the postfix expression is 
+	 * invalid in anyway. 
+	 */
+	public static Number evaluatePostfixExpressionExact(String postfixExpr) {
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			return evaluatePostfixExpressionExact(postfixExpr, workspace);
+		} finally {
+			workspace.release();
+		}
+	}
+	
+	/**
+	 * Evaluates a postfix expression using exact integer arithmetic on 
+	 * the long stack owned by workspace
+	 * @param postfixExpr a string representing a postfix expression
+	 * @param workspace the workspace to do the evaluation in
+	 * @return a Long if every step fit in a long, otherwise a BigInteger, 
+	 * or a Double if a step did not have an integer result
+	 * @throws InvalidNotationFormatException if the postfix expression is 
+	 * invalid in anyway. 
+	 */
+	public static Number evaluatePostfixExpressionExact(String postfixExpr, NotationWorkspace workspace) {
+		NotationProfiler.Sample sample = NotationProfiler.start(NotationProfiler.Method.EVALUATE_POSTFIX_EXPRESSION_EXACT);
+		try {
+			return evaluatePostfixExpressionExact(postfixExpr, workspace, sample);
+		} finally {
+			NotationProfiler.end(sample);
+		}
+	}
+	
+	private static Number evaluatePostfixExpressionExact(String postfixExpr, NotationWorkspace workspace, 
+			NotationProfiler.Sample sample) {
+		workspace.prepare(postfixExpr.length());
+		long[] values = workspace.longValues();
+		double[] arguments = workspace.doubleValues();
+		NotationProfiler.mark(sample, NotationProfiler.Stage.PREPARE);
+		int topIndex = -1;
+		char nextCharacter;
+		OperatorRegistry.Operator operator;
+		int index = 0;
+		while(index < postfixExpr.length()) {
+			nextCharacter = postfixExpr.charAt(index);
+			
+			if(Character.isDigit(nextCharacter)) {
+				values[++topIndex] = Character.digit(nextCharacter, 10);
+			}
+			else if((operator = STANDARD_OPERATORS.operator(nextCharacter)) != null) {
+				if(topIndex < 1)
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+				
+				/*
+				 * the operands are left on the stack until the operation 
+				 * succeeds. If it overflows, the promoted evaluation picks 
+				 * up from this same operator with the stack untouched
+				 */
+				try {
+					long result = calculateExact(values[topIndex - 1], operator, values[topIndex]);
+					topIndex--;
+					values[topIndex] = result;
+				} catch(ArithmeticException e) {
+					Number promoted = evaluatePromoted(postfixExpr, index, values, topIndex);
+					//the promoted evaluation finishes the scan and the checks together
+					NotationProfiler.mark(sample, NotationProfiler.Stage.SCAN);
+					return promoted;
+				}
+			}
+			else if(Character.isLetter(nextCharacter)) {
+				OperatorRegistry.Function function = functionAt(postfixExpr, index, STANDARD_OPERATORS);
+				long call = readFunctionCall(postfixExpr, index + function.getName().length(), function);
+				int count = (int) call;
+				if(topIndex + 1 < count)
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+				
+				boolean exact = true;
+				for(int argument = 0; argument < count; argument++) {
+					long value = values[topIndex + 1 - count + argument];
+					exact &= Math.abs(value) <= MAX_EXACT_DOUBLE;
+					arguments[argument] = value;
+				}
+				double result = function.apply(arguments, 0, count);
+				if(!exact || !isExactInteger(result)) {
+					Number promoted = evaluatePromoted(postfixExpr, index, values, topIndex);
+					NotationProfiler.mark(sample, NotationProfiler.Stage.SCAN);
+					return promoted;
+				}
+				topIndex -= count - 1;
+				values[topIndex] = (long) result;
+				index = (int) (call >>> 32);
+				continue;
+			}
+			else if(nextCharacter == '(' || nextCharacter == ')') {
+				throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
+			}
+			
+			index++;
+		}
+		NotationProfiler.mark(sample, NotationProfiler.Stage.SCAN);
+		
+		//matches evaluatePostfixExpression, which pops an empty stack for an empty expression
+		if(topIndex < 0)
+			throw new StackUnderflowException();
+		if(topIndex > 0)
+			throw new InvalidNotationFormatException("ERROR: Too many operands");
+		NotationProfiler.mark(sample, NotationProfiler.Stage.DRAIN);
+		
+		return values[0];
+	}
+	
+	/**
+	 * @return true if value is an integer a double holds exactly, so 
+	 * nothing was rounded away to get it
+	 */
+	private static boolean isExactInteger(double value) {
+		return Math.abs(value) <= MAX_EXACT_DOUBLE && value == Math.rint(value);
+	}
+	
+	/**
+	 * applies an operator to two longs. Only the standard operators have 
+	 * an exact form, any other one is left to the promoted evaluation, 
+	 * which computes it in double
+	 * @param operand1 the left operand
+	 * @param operator an operator of the registry
+	 * @param operand2 the right operand
+	 * @return the exact result
+	 * @throws ArithmeticException if the result is not a long, either 
+	 * because it overflows or because it is not an integer
+	 */
+	private static long calculateExact(long operand1, OperatorRegistry.Operator operator, long operand2) {
+		switch (operator.getSymbol()) {
+			case '+': 
+				return Math.addExact(operand1, operand2);
+			case '-': 
+				return Math.subtractExact(operand1, operand2);
+			case '*': 
+				return Math.multiplyExact(operand1, operand2);
+			case '/': 
+				//Long.MIN_VALUE / -1 is the one division that overflows
+				if(operand2 == 0 || (operand1 == Long.MIN_VALUE && operand2 == -1))
+					throw new ArithmeticException();
+				return operand1 / operand2;
+			case '%':
+				if(operand2 == 0)
+					throw new ArithmeticException();
+				return operand1 % operand2;
+			case '^': 
+				return powerExact(operand1, operand2);
+			default:
+				throw new ArithmeticException();
+		}
+	}
+	
+	/**
+	 * raises base to exponent by repeated squaring, which takes 
+	 * O(log exponent) multiplications instead of exponent of them
+	 * @throws ArithmeticException if the result overflows a long or 
+	 * exponent is negative
+	 */
+	private static long powerExact(long base, long exponent) {
+		if(exponent < 0)
+			throw new ArithmeticException();
+		
+		long result = 1;
+		while(exponent > 0) {
+			if((exponent & 1) != 0)
+				result = Math.multiplyExact(result, base);
+			exponent >>= 1;
+			
+			//skip the last squaring, its result is never used and could overflow
+			if(exponent > 0)
+				base = Math.multiplyExact(base, base);
+		}
+		return result;
+	}
+	
+	/**
+	 * finishes an exact evaluation whose long arithmetic overflowed, 
+	 * starting over at the operator or function at index with BigInteger 
+	 * and double values instead of longs
+	 * @param postfixExpr the expression being evaluated
+	 * @param index the index of the operator that overflowed
+	 * @param longValues the long stack, its operands are still on it
+	 * @param longTop the index of the top of the long stack
+	 * @return the value of the expression
+	 */
+	private static Number evaluatePromoted(String postfixExpr, int index, long[] longValues, int longTop) {
+		MyStack<Number> valueStack = new MyStack<>(Math.max(postfixExpr.length(), 1));
+		for(int count = 0; count <= longTop; count++)
+			valueStack.push(BigInteger.valueOf(longValues[count]));
+		
+		char nextCharacter;
+		OperatorRegistry.Operator operator;
+		Number operandTwo;
+		Number operandOne;
+		while(index < postfixExpr.length()) {
+			nextCharacter = postfixExpr.charAt(index);
+			
+			if(Character.isDigit(nextCharacter)) {
+				valueStack.push(BigInteger.valueOf(Character.digit(nextCharacter, 10)));
+			}
+			else if((operator = STANDARD_OPERATORS.operator(nextCharacter)) != null) {
+				try {
+					operandTwo = valueStack.pop();
+					operandOne = valueStack.pop();
+				} catch(StackUnderflowException e) {
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+				}
+				valueStack.push(calculatePromoted(operandOne, operator, operandTwo));
+			}
+			else if(Character.isLetter(nextCharacter)) {
+				OperatorRegistry.Function function = functionAt(postfixExpr, index, STANDARD_OPERATORS);
+				long call = readFunctionCall(postfixExpr, index + function.getName().length(), function);
+				int count = (int) call;
+				if(valueStack.size() < count)
+					throw new InvalidNotationFormatException("ERROR: too few operands");
+				
+				//the arguments come off the stack last one first
+				double[] arguments = new double[count];
+				boolean exact = true;
+				for(int argument = count - 1; argument >= 0; argument--) {
+					Number value = valueStack.pop();
+					exact &= value instanceof BigInteger && ((BigInteger) value).abs().bitLength() <= 53;
+					arguments[argument] = value.doubleValue();
+				}
+				double result = function.apply(arguments, 0, count);
+				valueStack.push(exact && isExactInteger(result) ? (Number) BigInteger.valueOf((long) result) : (Number) result);
+				index = (int) (call >>> 32);
+				continue;
+			}
+			else if(nextCharacter == '(' || nextCharacter == ')') {
+				throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
+			}
+			
+			index++;
+		}
+		
+		Number result = valueStack.pop();
 		if(!valueStack.isEmpty()) {
 			throw new InvalidNotationFormatException("ERROR: Too many operands");
 		}
 		
+		//a BigInteger that came back into range is reported as a long again
+		if(result instanceof BigInteger && ((BigInteger) result).bitLength() < Long.SIZE)
+			return ((BigInteger) result).longValue();
 		return result;
+	}
+	
+	/**
+	 * applies an operator to two BigInteger or Double values. Once either 
+	 * side is a double, the result is not an integer or the operator has 
+	 * no exact form, the operator's own double implementation is used, 
+	 * just like evaluatePostfixExpression
+	 */
+	private static Number calculatePromoted(Number operand1, OperatorRegistry.Operator operator, Number operand2) {
+		if(operand1 instanceof BigInteger && operand2 instanceof BigInteger) {
+			BigInteger left = (BigInteger) operand1;
+			BigInteger right = (BigInteger) operand2;
+			switch(operator.getSymbol()) {
+				case '+':
+					return left.add(right);
+				case '-':
+					return left.subtract(right);
+				case '*':
+					return left.multiply(right);
+				case '/':
+					if(right.signum() != 0)
+						return left.divide(right);
+					break;
+				case '%':
+					if(right.signum() != 0)
+						return left.remainder(right);
+					break;
+				case '^':
+					//an exponent past int range can only be computed approximately
+					if(right.signum() < 0 || right.bitLength() >= Integer.SIZE)
+						break;
+					/*
+					 * the result has at most bitLength * exponent bits. Past the 
+					 * cap it would take too long to compute, so it is done in 
+					 * double instead, where it is infinite. 0, 1 and -1 stay 
+					 * small whatever the exponent is
+					 */
+					int exponent = right.intValue();
+					int bits = left.abs().bitLength();
+					if(bits <= 1 || (long) bits * exponent <= MAX_EXACT_BITS)
+						return left.pow(exponent);
+					break;
+				default:
+					break;
+			}
+		}
 		
+		return operator.apply(operand1.doubleValue(), operand2.doubleValue());
 	}
 	
 	
@@ -267,36 +811,16 @@ public class Notation {
 	 * @throws IllegalArgumentException if a character representing anything 
 	 * other than an arithmetic operator is passed in for the operator parameter 
 	 */
-	private static double calculate(double operand1, char operator, double operand2) {
-		double result; 
-		switch (operator) {
-			case '+': 
-				result = operand1 + operand2; 
-				break;
-			case '-': 
-				result = operand1 - operand2; 
-				break;
-			case '*': 
-				result = operand1 * operand2; 
-				break;
-			case '/': 
-				result = operand1 / operand2; 
-				break;
-			case '^': 
-				result = Math.pow(operand1, operand2); 
-				break;
-			case '%':
-				result = operand1 % operand2;
-				break;
-			default:
-				/*
-				 * this only executes if the operator parameter 
-				 * is NOT an actual operator
-				 */
-				throw new IllegalArgumentException();
-		}
+	static double calculate(double operand1, char operator, double operand2) {
+		OperatorRegistry.Operator registered = STANDARD_OPERATORS.operator(operator);
+		/*
+		 * this only executes if the operator parameter 
+		 * is NOT an actual operator
+		 */
+		if(registered == null)
+			throw new IllegalArgumentException();
 		
-		return result;
+		return registered.apply(operand1, operand2);
 	}
 	
 	
@@ -310,7 +834,61 @@ public class Notation {
 	 * invalid in anyway. 
 	 */
 	public static String convertPostfixToInfix(String postfix) {
-		MyStack<String> operandStack = new MyStack<>(postfix.length()); 
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			return convertPostfixToInfix(postfix, workspace);
+		} finally {
+			workspace.release();
+		}
+	}
+	
+	/**
+	 * converts a postfix expression into an infix expression using the 
+	 * operand stack owned by workspace instead of allocating a new one
+	 * @param postfix a string representing a postfix expression
+	 * @param workspace the workspace to do the conversion in
+	 * @return a string representing the postfix expression's 
+	 * infix representation
+	 * @throws InvalidNotationFormatException if the postfix expression is 
+	 * invalid in anyway. 
+	 */
+	public static String convertPostfixToInfix(String postfix, NotationWorkspace workspace) {
+		return convertPostfixToInfix(postfix, workspace, STANDARD_OPERATORS);
+	}
+	
+	/**
+	 * converts a postfix expression into an infix expression using the 
+	 * operators and functions in registry
+	 * @param postfix a string representing a postfix expression
+	 * @param registry the operators and functions postfix may use
+	 * @return a string representing the postfix expression's 
+	 * infix representation
+	 * @throws InvalidNotationFormatException if the postfix expression is 
+	 * invalid in anyway. 
+	 */
+	public static String convertPostfixToInfix(String postfix, OperatorRegistry registry) {
+		NotationWorkspace workspace = NotationWorkspace.acquire();
+		try {
+			return convertPostfixToInfix(postfix, workspace, registry);
+		} finally {
+			workspace.release();
+		}
+	}
+	
+	private static String convertPostfixToInfix(String postfix, NotationWorkspace workspace, OperatorRegistry registry) {
+		NotationProfiler.Sample sample = NotationProfiler.start(NotationProfiler.Method.CONVERT_POSTFIX_TO_INFIX);
+		try {
+			return convertPostfixToInfix(postfix, workspace, registry, sample);
+		} finally {
+			NotationProfiler.end(sample);
+		}
+	}
+	
+	private static String convertPostfixToInfix(String postfix, NotationWorkspace workspace, OperatorRegistry registry, 
+			NotationProfiler.Sample sample) {
+		workspace.prepare(postfix.length());
+		MyStack<String> operandStack = workspace.operandStack(); 
+		NotationProfiler.mark(sample, NotationProfiler.Stage.PREPARE);
 		String operand2;
 		String operand1; 
 		String combinedOperand;
@@ -323,34 +901,45 @@ public class Notation {
 			currentCharacter = postfix.charAt(index);
 			if(Character.isDigit(currentCharacter))
 				operandStack.push("" + currentCharacter);
-			else {
-				switch(currentCharacter) {
-					case '*': case '/': case '+': 
-					case '-': case '^': case '%':
-						
-						/*
-						 * if StackUnderflowException is thrown then the 
-						 * expression was invalid
-						 */
-						try {
-							operand2 = operandStack.pop();
-							operand1 = operandStack.pop();
-						} catch(StackUnderflowException e) {
-							throw new InvalidNotationFormatException("ERROR: Input is invalid");
-						}
-						combinedOperand = "(" + operand1 + 
-								currentCharacter + operand2 + ")";
-						operandStack.push(combinedOperand);
-						break;
-					case '(': case ')':
-						/*
-						 * postfix should not have any parenthesis
-						 */
-						throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
+			else if(registry.operator(currentCharacter) != null) {
+				/*
+				 * if StackUnderflowException is thrown then the 
+				 * expression was invalid
+				 */
+				try {
+					operand2 = operandStack.pop();
+					operand1 = operandStack.pop();
+				} catch(StackUnderflowException e) {
+					throw new InvalidNotationFormatException("ERROR: Input is invalid");
 				}
+				combinedOperand = "(" + operand1 + 
+						currentCharacter + operand2 + ")";
+				operandStack.push(combinedOperand);
+			}
+			else if(Character.isLetter(currentCharacter)) {
+				OperatorRegistry.Function function = functionAt(postfix, index, registry);
+				long call = readFunctionCall(postfix, index + function.getName().length(), function);
+				int arguments = (int) call;
+				if(operandStack.size() < arguments)
+					throw new InvalidNotationFormatException("ERROR: Input is invalid");
+				
+				//the arguments come off the stack last one first
+				String[] argumentTexts = new String[arguments];
+				for(int argument = arguments - 1; argument >= 0; argument--)
+					argumentTexts[argument] = operandStack.pop();
+				operandStack.push(function.getName() + "(" + String.join(",", argumentTexts) + ")");
+				index = (int) (call >>> 32);
+				continue;
+			}
+			else if(currentCharacter == '(' || currentCharacter == ')') {
+				/*
+				 * postfix should not have any parenthesis
+				 */
+				throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
 			}
 			index++;
 		}
+		NotationProfiler.mark(sample, NotationProfiler.Stage.SCAN);
 		
 		String result = operandStack.pop(); 
 		
@@ -361,8 +950,9 @@ public class Notation {
 		 */
 		if(!operandStack.isEmpty())
 			throw new InvalidNotationFormatException("ERROR: Input is invalid");
+		NotationProfiler.mark(sample, NotationProfiler.Stage.DRAIN);
 		
 		return result;
 	}
 
-}
+}
\ No newline at end of file
@@ -5,10 +5,14 @@
  */
 
 import java.text.NumberFormat;
-import javax.swing.JOptionPane;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 //import MvGuiFx.ButtonEventHandler;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -35,54 +39,126 @@ public class NotationGui extends Application {
 	private NumberFormat numFormat = NumberFormat.getNumberInstance();
 	private Button conversionBtn, evaluationBtn, exitBtn;
 	private Alert alert = new Alert(AlertType.INFORMATION);
+	//only ever touched by liveWorker
+	private IncrementalNotation liveConverter = new IncrementalNotation();
+	
+	/*
+	 * conversions and evaluations run on this thread instead of the FX 
+	 * thread so a huge expression can't freeze the window. It is a single 
+	 * thread, so a task that is cancelled before it starts never runs and 
+	 * rapid clicks collapse into the one running task plus the latest one
+	 */
+	private ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "notation-worker");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private Task<String> conversionTask;
+	private Task<Double> evaluationTask;
+	
+	/*
+	 * the live infix to postfix conversion has a thread of its own, so 
+	 * typing never waits behind a Convert task. Edits made while it is 
+	 * busy collapse into the newest text, which it picks up next, and it 
+	 * only sends the part of the postfix that changed back to the FX thread
+	 */
+	private ExecutorService liveWorker = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "notation-live");
+		thread.setDaemon(true);
+		return thread;
+	});
+	//the newest infix text liveWorker has not seen yet, null once it has
+	private final AtomicReference<String> liveText = new AtomicReference<>();
+	//set when postfixtxt was written by something else, the next live update then replaces all of it
+	private volatile boolean liveResync = true;
+	//FX thread only, true while postfixtxt holds exactly what the live updates built
+	private boolean liveShown;
+	//FX thread only, true while a live update is put in postfixtxt
+	private boolean writingPostfix;
+	//FX thread only, counts the edits of infixtxt so a Convert result older than the last one is dropped
+	private long infixEdits;
+	//FX thread only, true while a conversion result is put in infixtxt, which is not an edit
+	private boolean writingInfix;
 	 
 	
 	// Handler class.
 	private class ButtonEventHandler implements EventHandler<ActionEvent> {
 		@Override
 		public void handle(ActionEvent e) {
-			String infix,postfix,result;
-
 			if (e.getSource() == conversionBtn) {
-				try{
-					if(infixToPostfix.isSelected())
-					{
-						infix = infixtxt.getText();
-						result = Notation.convertInfixToPostfix(infix);
+				//only the newest conversion gets to touch the fields
+				if (conversionTask != null)
+					conversionTask.cancel();
+				
+				boolean toPostfix = infixToPostfix.isSelected();
+				if (!toPostfix && !postfixToInfix.isSelected())
+					return;
+				String input = toPostfix ? infixtxt.getText() : postfixtxt.getText();
+				long edits = infixEdits;
+				
+				Task<String> task = new Task<String>() {
+					@Override
+					protected String call() {
+						if (toPostfix)
+							return Notation.convertInfixToPostfix(input);
+						return Notation.convertPostfixToInfix(input);
+					}
+				};
+				task.setOnSucceeded(event -> {
+					if (task != conversionTask)
+						return;
+					if (toPostfix) {
+						//the infix was edited since, the live conversion already shows something newer
+						if (edits != infixEdits)
+							return;
 						postfixlbl.setVisible(true);
 						postfixtxt.setVisible(true);
-						postfixtxt.setText(result);
-
-					}
-					else if(postfixToInfix.isSelected())
-					{
-						postfix = postfixtxt.getText();
-						result = Notation.convertPostfixToInfix(postfix);
-						System.out.println("result "+result);
+						postfixtxt.setText(task.getValue());
+					} else {
 						infixlbl.setVisible(true);
 						infixtxt.setVisible(true);
-						infixtxt.setText(result);
+						writingInfix = true;
+						try {
+							infixtxt.setText(task.getValue());
+						} finally {
+							writingInfix = false;
+						}
 					}
-
-				}
-				catch (InvalidNotationFormatException exception)
-				{
-					JOptionPane.showMessageDialog(null, exception.getMessage());
-				}
+				});
+				task.setOnFailed(event -> {
+					if (task == conversionTask)
+						showError(task.getException());
+				});
+				conversionTask = task;
+				worker.execute(task);
 
 			} else if (e.getSource() == evaluationBtn) {
 
-				try{
-					String postfixExpr = postfixtxt2.getText();
-					double a = Notation.evaluatePostfixExpression(postfixExpr);
+				if (evaluationTask != null)
+					evaluationTask.cancel();
+				
+				String postfixExpr = postfixtxt2.getText();
+				
+				//the expression is evaluated once and the value reused for the label
+				Task<Double> task = new Task<Double>() {
+					@Override
+					protected Double call() {
+						return Notation.evaluatePostfixExpression(postfixExpr);
+					}
+				};
+				task.setOnSucceeded(event -> {
+					if (task != evaluationTask)
+						return;
 					evalanswerlbl.setVisible(true);
 					evalanswer.setVisible(true);
-					evalanswer.setText(Double.toString(Notation.evaluatePostfixExpression(postfixExpr)));
-				}
-				catch (InvalidNotationFormatException exception)
-				{
-					JOptionPane.showMessageDialog(null, exception.getMessage());
-				}
+					evalanswer.setText(Double.toString(task.getValue()));
+				});
+				task.setOnFailed(event -> {
+					if (task == evaluationTask)
+						showError(task.getException());
+				});
+				evaluationTask = task;
+				worker.execute(task);
 
 			} else if (e.getSource() == exitBtn){
 
@@ -109,6 +185,79 @@ public class NotationGui extends Application {
 		}
 	}
 
+	/**
+	 * shows the message of a failed task in the alert without blocking 
+	 * the FX thread the way a modal dialog would
+	 * @param exception the exception the task failed with
+	 */
+	private void showError(Throwable exception) {
+		if (exception instanceof InvalidNotationFormatException)
+			alert.setContentText(exception.getMessage());
+		else
+			alert.setContentText("ERROR: " + exception);
+		alert.show();
+	}
+
+	/**
+	 * hands an edit of the infix field to liveWorker. Only the first edit 
+	 * since it last looked schedules it, later ones just replace the text
+	 */
+	private void scheduleLiveUpdate(String infix) {
+		if (liveText.getAndSet(infix) == null)
+			liveWorker.execute(this::updateLivePostfix);
+	}
+
+	/**
+	 * runs on liveWorker. Brings the converter up to the newest text and 
+	 * sends the changed part of the postfix to the FX thread
+	 */
+	private void updateLivePostfix() {
+		liveConverter.setText(liveText.getAndSet(null));
+		//an invalid expression leaves the field alone, its changes are sent once it is valid again
+		if (!liveConverter.isValid())
+			return;
+		CharSequence postfix = liveConverter.getPostfixView();
+		int changeStart = liveConverter.takePostfixChangeStart();
+		if (liveResync) {
+			liveResync = false;
+			changeStart = 0;
+		}
+		int start = changeStart;
+		String tail = postfix.subSequence(start, postfix.length()).toString();
+		Platform.runLater(() -> showLivePostfix(start, tail));
+	}
+
+	/**
+	 * runs on the FX thread. Puts tail in postfixtxt from start on, unless 
+	 * the field was written by something else since the last live update, 
+	 * in which case the whole postfix is asked for again
+	 */
+	private void showLivePostfix(int start, String tail) {
+		if (!infixToPostfix.isSelected() || !postfixtxt.isVisible()) {
+			liveShown = false;
+			liveResync = true;
+			return;
+		}
+		if (start > 0 && (!liveShown || start > postfixtxt.getLength())) {
+			liveResync = true;
+			scheduleLiveUpdate(infixtxt.getText());
+			return;
+		}
+		writingPostfix = true;
+		try {
+			postfixtxt.replaceText(start, postfixtxt.getLength(), tail);
+		} finally {
+			writingPostfix = false;
+		}
+		liveShown = true;
+	}
+
+	@Override
+	public void stop() {
+		worker.shutdownNow();
+		liveWorker.shutdownNow();
+	}
+
 	@Override
 	public void start(Stage stage) {
 		
@@ -122,8 +271,29 @@ public class NotationGui extends Application {
 		// create notation text fields
 		infixtxt = new TextField();
 		infixtxt.setMaxWidth(150);
+		
+		/*
+		 * keep the postfix field up to date while the infix expression is 
+		 * typed, once it has been shown by a conversion. The conversion runs 
+		 * on liveWorker, and the converter only redoes the part of the 
+		 * expression after the edit
+		 */
+		infixtxt.textProperty().addListener((observable, oldText, newText) -> {
+			if (writingInfix)
+				return;
+			infixEdits++;
+			if (infixToPostfix.isSelected() && postfixtxt.isVisible())
+				scheduleLiveUpdate(newText);
+		});
 		postfixtxt = new TextField();
 		postfixtxt.setMaxWidth(150);
+		//anything but a live update, a Convert result or typing, means the live updates start over
+		postfixtxt.textProperty().addListener((observable, oldText, newText) -> {
+			if (!writingPostfix) {
+				liveShown = false;
+				liveResync = true;
+			}
+		});
 		postfixtxt2 = new TextField();
 		postfixtxt2.setMaxWidth(150);
 		
@@ -0,0 +1,405 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * a Flow.Processor stage that runs each item it receives through a
+ * Notation method and publishes a NotationResult for every item.
+ *
+ * The stage never holds more than 2 * batchSize items. It asks its
+ * upstream for batchSize items at a time and only asks again once
+ * enough of the buffer has been handed to the downstream subscriber,
+ * so a slow sink slows the whole pipeline down instead of letting
+ * it buffer without bound. Up to parallelism items are computed at
+ * once on the given executor, results are published in the same
+ * order the items arrived.
+ *
+ * An exception thrown for one item is published as a failed result
+ * for that item, the stream keeps going. So is an item the executor
+ * rejects. An Error thrown by the function is not an item's result, it
+ * cancels upstream and fails the stream with onError instead.
+ * @author Christopher Perez Lebron
+ *
+ * @param <T> the type of item received from upstream
+ * @param <R> the type of value computed for each item
+ */
+public final class NotationProcessor<T, R> implements Flow.Processor<T, NotationResult<R>> {
+	private static final int DEFAULT_BATCH_SIZE = 64;
+
+	private final Function<? super T, ? extends R> function;
+	private final Executor executor;
+	private final int parallelism;
+	private final int batchSize;
+
+	//items in arrival order, waiting to be computed or published
+	private final MyQueue<Slot<R>> pending;
+	//items that have not been handed to the executor yet
+	private final MyQueue<Slot<R>> waiting;
+
+	private Flow.Subscription upstream;
+	private Flow.Subscriber<? super NotationResult<R>> downstream;
+	private long demand;
+	private int outstanding;
+	private int running;
+	private boolean upstreamDone;
+	private Throwable upstreamError;
+	//a failure of the stage itself, signalled by the drain
+	private Throwable failure;
+	private boolean cancelled;
+	private boolean terminated;
+	private boolean draining;
+	private boolean missed;
+
+	/**
+	 * a single item travelling through the stage
+	 */
+	private static final class Slot<R> {
+		private final Object input;
+		private NotationResult<R> result;
+
+		private Slot(Object input) {
+			this.input = input;
+		}
+	}
+
+	public NotationProcessor(Function<? super T, ? extends R> function) {
+		this(function, ForkJoinPool.commonPool(), 1, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param function the computation to run for each item
+	 * @param executor the executor computations run on
+	 * @param parallelism the max number of items computed at once
+	 * @param batchSize the number of items requested from upstream at a time
+	 * @throws IllegalArgumentException if parallelism or batchSize is
+	 * less than one, batchSize is more than half of MyQueue.MAX_CAPACITY,
+	 * or any argument is null
+	 */
+	public NotationProcessor(Function<? super T, ? extends R> function, Executor executor,
+			int parallelism, int batchSize) {
+		if(function == null || executor == null || parallelism < 1 || batchSize < 1)
+			throw new IllegalArgumentException();
+		//the buffers hold two batches
+		if(batchSize > MyQueue.MAX_CAPACITY / 2)
+			throw new IllegalArgumentException("ERROR: batchSize can be at most " + MyQueue.MAX_CAPACITY / 2);
+		this.function = function;
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.batchSize = batchSize;
+		pending = new MyQueue<>(2 * batchSize);
+		waiting = new MyQueue<>(2 * batchSize);
+	}
+
+	/**
+	 * creates a stage that converts infix strings into postfix strings
+	 * @param executor the executor conversions run on
+	 * @param parallelism the max number of conversions running at once
+	 * @param batchSize the number of items requested from upstream at a time
+	 * @return a stage wrapping Notation.convertInfixToPostfix
+	 */
+	public static NotationProcessor<String, String> infixToPostfix(Executor executor,
+			int parallelism, int batchSize) {
+		return new NotationProcessor<>(Notation::convertInfixToPostfix, executor, parallelism, batchSize);
+	}
+
+	/**
+	 * creates a stage that evaluates postfix strings
+	 * @param executor the executor evaluations run on
+	 * @param parallelism the max number of evaluations running at once
+	 * @param batchSize the number of items requested from upstream at a time
+	 * @return a stage wrapping Notation.evaluatePostfixExpression
+	 */
+	public static NotationProcessor<String, Double> postfixEvaluator(Executor executor,
+			int parallelism, int batchSize) {
+		return new NotationProcessor<>(Notation::evaluatePostfixExpression, executor, parallelism, batchSize);
+	}
+
+	/**
+	 * creates a stage that evaluates the results of an infixToPostfix stage.
+	 * An item that already failed upstream fails again with the same
+	 * exception, so the error still reaches the sink for that item
+	 * @param executor the executor evaluations run on
+	 * @param parallelism the max number of evaluations running at once
+	 * @param batchSize the number of items requested from upstream at a time
+	 * @return a stage that can be subscribed to an infixToPostfix stage
+	 */
+	public static NotationProcessor<NotationResult<String>, Double> resultEvaluator(Executor executor,
+			int parallelism, int batchSize) {
+		return new NotationProcessor<>(
+				result -> Notation.evaluatePostfixExpression(result.getValue()),
+				executor, parallelism, batchSize);
+	}
+
+	/**
+	 * subscribes the single downstream subscriber of this stage
+	 * @param subscriber the subscriber that receives the results
+	 */
+	public void subscribe(Flow.Subscriber<? super NotationResult<R>> subscriber) {
+		if(subscriber == null)
+			throw new NullPointerException();
+
+		boolean accepted;
+		synchronized(this) {
+			accepted = downstream == null;
+			if(accepted)
+				downstream = subscriber;
+		}
+
+		if(accepted) {
+			subscriber.onSubscribe(new Downstream());
+			drain();
+			return;
+		}
+
+		//only one subscriber is supported, reject the rest the way the Flow spec describes
+		subscriber.onSubscribe(new Flow.Subscription() {
+			public void request(long n) {}
+			public void cancel() {}
+		});
+		subscriber.onError(new IllegalStateException("ERROR: stage already has a subscriber"));
+	}
+
+	public void onSubscribe(Flow.Subscription subscription) {
+		boolean reject;
+		synchronized(this) {
+			reject = upstream != null || cancelled;
+			if(!reject)
+				upstream = subscription;
+		}
+
+		if(reject) {
+			subscription.cancel();
+			return;
+		}
+		drain();
+	}
+
+	public void onNext(T item) {
+		Slot<R> slot = new Slot<>(item);
+		synchronized(this) {
+			if(cancelled || terminated || failure != null)
+				return;
+			outstanding--;
+			/*
+			 * upstream never sends more than we requested so the
+			 * queues can never be full here. If it does, it broke
+			 * the Flow contract and QueueOverflowException is as
+			 * good a signal as any
+			 */
+			pending.enqueue(slot);
+			waiting.enqueue(slot);
+		}
+		dispatch();
+	}
+
+	public void onError(Throwable throwable) {
+		synchronized(this) {
+			upstreamError = throwable;
+			upstreamDone = true;
+		}
+		drain();
+	}
+
+	public void onComplete() {
+		synchronized(this) {
+			upstreamDone = true;
+		}
+		drain();
+	}
+
+	/**
+	 * hands waiting items to the executor while fewer than
+	 * parallelism items are running. An item the executor rejects
+	 * fails with the RejectedExecutionException
+	 */
+	private void dispatch() {
+		boolean rejected = false;
+		while(true) {
+			Slot<R> slot;
+			synchronized(this) {
+				if(cancelled || running >= parallelism || waiting.isEmpty())
+					break;
+				slot = waiting.dequeue();
+				running++;
+			}
+			try {
+				executor.execute(() -> compute(slot));
+			} catch(RejectedExecutionException e) {
+				synchronized(this) {
+					slot.result = NotationResult.failure(slot.input, e);
+					running--;
+				}
+				rejected = true;
+			}
+		}
+		if(rejected)
+			drain();
+	}
+
+	/**
+	 * runs the function for a single item, an exception is caught
+	 * and stored as that item's result. An Error fails the whole
+	 * stream and is rethrown to the executor
+	 */
+	@SuppressWarnings("unchecked")
+	private void compute(Slot<R> slot) {
+		NotationResult<R> result = null;
+		Error fatal = null;
+		try {
+			result = NotationResult.success(slot.input, function.apply((T) slot.input));
+		} catch(RuntimeException e) {
+			result = NotationResult.failure(slot.input, e);
+		} catch(Error e) {
+			fatal = e;
+		}
+
+		synchronized(this) {
+			slot.result = result;
+			running--;
+		}
+		if(fatal != null) {
+			fail(fatal);
+			throw fatal;
+		}
+		dispatch();
+		drain();
+	}
+
+	/**
+	 * stops the stage, cancels upstream and has the drain send error
+	 * downstream in place of any further results
+	 */
+	private void fail(Throwable error) {
+		Flow.Subscription source;
+		synchronized(this) {
+			if(cancelled || terminated || failure != null)
+				return;
+			failure = error;
+			source = upstream;
+			pending.clear();
+			waiting.clear();
+		}
+		if(source != null)
+			source.cancel();
+		drain();
+	}
+
+	/**
+	 * publishes finished results in arrival order while downstream has
+	 * demand, refills the buffer from upstream and signals completion.
+	 * Only one thread drains at a time; a thread that finds another
+	 * one draining sets missed so the drainer loops once more
+	 */
+	private void drain() {
+		synchronized(this) {
+			if(draining) {
+				missed = true;
+				return;
+			}
+			draining = true;
+		}
+
+		while(true) {
+			NotationResult<R> next = null;
+			int toRequest = 0;
+			boolean complete = false;
+			Throwable error = null;
+			Flow.Subscription source;
+			Flow.Subscriber<? super NotationResult<R>> sink;
+
+			synchronized(this) {
+				source = upstream;
+				sink = downstream;
+
+				if(failure != null && !terminated && sink != null) {
+					terminated = true;
+					complete = true;
+					error = failure;
+				}
+				else if(cancelled || terminated || sink == null) {
+					if(!missed) {
+						draining = false;
+						return;
+					}
+					missed = false;
+					continue;
+				}
+				else if(demand > 0 && !pending.isEmpty() && pending.getFront().result != null) {
+					next = pending.dequeue().result;
+					demand--;
+				}
+				else if(upstreamDone && pending.isEmpty()) {
+					terminated = true;
+					complete = true;
+					error = upstreamError;
+				}
+				else {
+					//ask for another batch once a whole batch worth of room is free
+					if(source != null && !upstreamDone
+							&& outstanding + pending.size() <= batchSize) {
+						toRequest = 2 * batchSize - outstanding - pending.size();
+						outstanding += toRequest;
+					}
+
+					if(toRequest == 0) {
+						if(!missed) {
+							draining = false;
+							return;
+						}
+						missed = false;
+						continue;
+					}
+				}
+			}
+
+			//signals are sent outside the lock so subscribers can call back in
+			if(next != null)
+				sink.onNext(next);
+			else if(complete) {
+				if(error != null)
+					sink.onError(error);
+				else
+					sink.onComplete();
+			}
+			else
+				source.request(toRequest);
+		}
+	}
+
+	/**
+	 * the subscription handed to the downstream subscriber
+	 */
+	private final class Downstream implements Flow.Subscription {
+		public void request(long n) {
+			if(n <= 0) {
+				//the error goes through the drain so it never overlaps an onNext
+				fail(new IllegalArgumentException("ERROR: request must be positive"));
+				return;
+			}
+
+			synchronized(NotationProcessor.this) {
+				demand += n;
+				//demand that overflows is treated as unbounded
+				if(demand < 0)
+					demand = Long.MAX_VALUE;
+			}
+			drain();
+		}
+
+		public void cancel() {
+			Flow.Subscription source;
+			synchronized(NotationProcessor.this) {
+				if(cancelled)
+					return;
+				cancelled = true;
+				source = upstream;
+				pending.clear();
+				waiting.clear();
+			}
+			if(source != null)
+				source.cancel();
+		}
+	}
+}
@@ -0,0 +1,289 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class NotationProcessorTest {
+
+	/**
+	 * an upstream driven by hand that remembers what it was asked for
+	 */
+	private static final class Source implements Flow.Subscription {
+		private long requested;
+		private boolean cancelled;
+
+		public synchronized void request(long n) {
+			requested += n;
+		}
+
+		public synchronized void cancel() {
+			cancelled = true;
+		}
+	}
+
+	/**
+	 * a downstream that records every signal and requests nothing on its own
+	 */
+	private static final class Sink<R> implements Flow.Subscriber<NotationResult<R>> {
+		private final ArrayList<NotationResult<R>> results = new ArrayList<>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final long initialRequest;
+		private Flow.Subscription subscription;
+		private boolean completed;
+		private Throwable error;
+
+		private Sink(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if(initialRequest > 0)
+				subscription.request(initialRequest);
+		}
+
+		public synchronized void onNext(NotationResult<R> item) {
+			results.add(item);
+		}
+
+		public synchronized void onError(Throwable throwable) {
+			error = throwable;
+			done.countDown();
+		}
+
+		public synchronized void onComplete() {
+			completed = true;
+			done.countDown();
+		}
+
+		private synchronized String values() {
+			StringBuilder values = new StringBuilder();
+			for(NotationResult<R> result : results)
+				values.append(result).append(' ');
+			return values.toString().trim();
+		}
+	}
+
+	@Test
+	public void testOrderIsKept() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			NotationProcessor<String, String> stage = NotationProcessor.infixToPostfix(executor, 4, 8);
+			Sink<String> sink = new Sink<>(Long.MAX_VALUE);
+			StringBuilder expected = new StringBuilder();
+			//closing the publisher completes the stream
+			try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>()) {
+				publisher.subscribe(stage);
+				stage.subscribe(sink);
+				for(int count = 0; count < 200; count++) {
+					String infix = "(" + count % 10 + "+" + (count + 3) % 10 + ")*" + count % 7;
+					publisher.submit(infix);
+					expected.append(Notation.convertInfixToPostfix(infix)).append(' ');
+				}
+			}
+
+			assertTrue(sink.done.await(10, TimeUnit.SECONDS));
+			assertTrue(sink.completed);
+			assertEquals(expected.toString().trim(), sink.values());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testDemandAndBackpressure() {
+		NotationProcessor<String, Double> stage = NotationProcessor.postfixEvaluator(Runnable::run, 1, 4);
+		Source source = new Source();
+		Sink<Double> sink = new Sink<>(0);
+		stage.onSubscribe(source);
+		stage.subscribe(sink);
+
+		//the stage fills its buffer of two batches no matter what downstream asked for
+		assertEquals(8, source.requested);
+		for(int count = 0; count < 8; count++)
+			stage.onNext(count + "1+");
+		assertEquals(8, source.requested);
+		assertEquals(0, sink.results.size());
+
+		sink.subscription.request(3);
+		assertEquals("1.0 2.0 3.0", sink.values());
+		//not a whole batch of room yet
+		assertEquals(8, source.requested);
+
+		sink.subscription.request(1);
+		assertEquals(4, sink.results.size());
+		assertEquals(12, source.requested);
+
+		sink.subscription.request(Long.MAX_VALUE);
+		sink.subscription.request(Long.MAX_VALUE);
+		assertEquals("1.0 2.0 3.0 4.0 5.0 6.0 7.0 8.0", sink.values());
+		assertEquals(16, source.requested);
+	}
+
+	@Test
+	public void testItemErrors() {
+		NotationProcessor<String, Double> stage = NotationProcessor.postfixEvaluator(Runnable::run, 1, 4);
+		Source source = new Source();
+		Sink<Double> sink = new Sink<>(Long.MAX_VALUE);
+		stage.onSubscribe(source);
+		stage.subscribe(sink);
+
+		stage.onNext("12+");
+		stage.onNext("1+");
+		stage.onNext("34*");
+		stage.onComplete();
+
+		assertEquals(3, sink.results.size());
+		assertTrue(sink.results.get(0).isSuccess());
+		assertFalse(sink.results.get(1).isSuccess());
+		assertTrue(sink.results.get(1).getError() instanceof InvalidNotationFormatException);
+		assertEquals("1+", sink.results.get(1).getInput());
+		assertEquals(Double.valueOf(12.0), sink.results.get(2).getValue());
+		assertTrue(sink.completed);
+		assertNull(sink.error);
+	}
+
+	@Test
+	public void testRejectedItems() {
+		NotationProcessor<String, Double> stage = new NotationProcessor<>(Notation::evaluatePostfixExpression,
+				command -> { throw new RejectedExecutionException(); }, 2, 4);
+		Source source = new Source();
+		Sink<Double> sink = new Sink<>(Long.MAX_VALUE);
+		stage.onSubscribe(source);
+		stage.subscribe(sink);
+
+		stage.onNext("12+");
+		stage.onNext("34+");
+		stage.onNext("56+");
+		stage.onComplete();
+
+		//nothing is left running, so the stream still completes
+		assertEquals(3, sink.results.size());
+		for(NotationResult<Double> result : sink.results)
+			assertTrue(result.getError() instanceof RejectedExecutionException);
+		assertTrue(sink.completed);
+	}
+
+	@Test
+	public void testErrorFailsStream() {
+		NotationProcessor<String, String> stage = new NotationProcessor<>(item -> {
+			if(item.equals("fatal"))
+				throw new AssertionError("fatal");
+			return item;
+		}, Runnable::run, 1, 4);
+		Source source = new Source();
+		Sink<String> sink = new Sink<>(Long.MAX_VALUE);
+		stage.onSubscribe(source);
+		stage.subscribe(sink);
+
+		stage.onNext("a");
+		try {
+			stage.onNext("fatal");
+			fail("the Error should be rethrown to the executor");
+		} catch(AssertionError e) {
+			assertEquals("fatal", e.getMessage());
+		}
+		stage.onNext("b");
+
+		assertEquals("a", sink.values());
+		assertTrue(sink.error instanceof AssertionError);
+		assertTrue(source.cancelled);
+		assertFalse(sink.completed);
+	}
+
+	@Test
+	public void testInvalidRequest() {
+		NotationProcessor<String, Double> stage = NotationProcessor.postfixEvaluator(Runnable::run, 1, 4);
+		Source source = new Source();
+		Sink<Double> sink = new Sink<>(0);
+		stage.onSubscribe(source);
+		stage.subscribe(sink);
+		stage.onNext("12+");
+
+		sink.subscription.request(0);
+		assertTrue(sink.error instanceof IllegalArgumentException);
+		assertTrue(source.cancelled);
+
+		//nothing is signalled after the error
+		sink.subscription.request(5);
+		stage.onComplete();
+		assertEquals(0, sink.results.size());
+		assertFalse(sink.completed);
+	}
+
+	@Test
+	public void testCancel() {
+		NotationProcessor<String, Double> stage = NotationProcessor.postfixEvaluator(Runnable::run, 1, 4);
+		Source source = new Source();
+		Sink<Double> sink = new Sink<>(1);
+		stage.onSubscribe(source);
+		stage.subscribe(sink);
+
+		stage.onNext("12+");
+		stage.onNext("34+");
+		assertEquals("3.0", sink.values());
+
+		sink.subscription.cancel();
+		assertTrue(source.cancelled);
+		sink.subscription.request(1);
+		stage.onNext("56+");
+		stage.onComplete();
+		assertEquals("3.0", sink.values());
+		assertFalse(sink.completed);
+		assertNull(sink.error);
+	}
+
+	@Test
+	public void testCompletion() {
+		NotationProcessor<String, Double> stage = NotationProcessor.postfixEvaluator(Runnable::run, 1, 4);
+		Source source = new Source();
+		Sink<Double> sink = new Sink<>(0);
+		stage.onSubscribe(source);
+		stage.subscribe(sink);
+
+		//completion waits until every result has been delivered
+		stage.onNext("12+");
+		stage.onComplete();
+		assertFalse(sink.completed);
+		sink.subscription.request(1);
+		assertEquals("3.0", sink.values());
+		assertTrue(sink.completed);
+
+		//an upstream error is passed on after the results before it
+		stage = NotationProcessor.postfixEvaluator(Runnable::run, 1, 4);
+		Sink<Double> failing = new Sink<>(Long.MAX_VALUE);
+		stage.onSubscribe(new Source());
+		stage.subscribe(failing);
+		stage.onNext("22*");
+		IllegalStateException error = new IllegalStateException();
+		stage.onError(error);
+		assertEquals("4.0", failing.values());
+		assertSame(error, failing.error);
+
+		//only one subscriber is allowed
+		Sink<Double> second = new Sink<>(1);
+		stage.subscribe(second);
+		assertTrue(second.error instanceof IllegalStateException);
+	}
+
+	@Test
+	public void testBatchSize() {
+		new NotationProcessor<String, String>(Notation::convertInfixToPostfix, Runnable::run, 1,
+				MyQueue.MAX_CAPACITY / 2);
+		try {
+			new NotationProcessor<String, String>(Notation::convertInfixToPostfix, Runnable::run, 1,
+					MyQueue.MAX_CAPACITY / 2 + 1);
+			fail("This should have caused an IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("batchSize"));
+		}
+	}
+}
@@ -0,0 +1,291 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * a class that times the stages of the public Notation methods, so a
+ * slow call can be traced to the part of the algorithm it was spent in.
+ *
+ * Profiling is off until setSampleInterval is called with N > 0, or the
+ * system property notation.profiler.sampleInterval is set, after which
+ * each thread times one in every N of its calls. A call that isn't timed
+ * costs a counter decrement, and with profiling off it costs one
+ * volatile read.
+ *
+ * Each thread adds its times to its own arrays, so timing a call takes
+ * no lock and shares no cache line with other threads. Reading the
+ * totals merges every thread's arrays. They are written with opaque
+ * stores so a reader never sees half of a long, and the totals of a
+ * thread that has ended are kept. reset records the current totals as a
+ * baseline instead of clearing the arrays under the threads using them.
+ *
+ * The totals are reported through the NotationProfilerMXBean returned by
+ * mbean, and in JConsole or any JMX client once registerMBean has been
+ * called, under the name Notation:type=Profiler.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class NotationProfiler implements NotationProfilerMXBean {
+	/**
+	 * the public Notation methods, overloads are counted together
+	 */
+	public enum Method {
+		CONVERT_INFIX_TO_POSTFIX("convertInfixToPostfix"),
+		EVALUATE_POSTFIX_EXPRESSION("evaluatePostfixExpression"),
+		EVALUATE_POSTFIX_EXPRESSION_EXACT("evaluatePostfixExpressionExact"),
+		CONVERT_POSTFIX_TO_INFIX("convertPostfixToInfix");
+
+		private final String methodName;
+
+		Method(String methodName) {
+			this.methodName = methodName;
+		}
+
+		public String getMethodName() {
+			return methodName;
+		}
+	}
+
+	/**
+	 * the stages of a Notation method, in the order they run. Tokenizing
+	 * is done one character at a time in the same pass as the shunting
+	 * yard algorithm or the evaluation, so the two are timed together as
+	 * SCAN
+	 */
+	public enum Stage {
+		//getting the workspace structures ready for the input
+		PREPARE,
+		//the pass over the input, tokenizing it and running the shunting yard or evaluating
+		SCAN,
+		//popping what is left on the stack and checking the counts
+		DRAIN,
+		//building the result string out of the MyQueue
+		OUTPUT
+	}
+
+	private static final String OBJECT_NAME = "Notation:type=Profiler";
+	private static final int STAGES = Stage.values().length;
+	private static final int SLOTS = Method.values().length * STAGES;
+	private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private static final NotationProfiler INSTANCE = new NotationProfiler();
+	private static final ThreadLocal<Sample> SAMPLES = ThreadLocal.withInitial(NotationProfiler::newSample);
+	//every thread's sample, so their totals can be merged
+	private static final ArrayList<Sample> ALL_SAMPLES = new ArrayList<>();
+
+	private static volatile int sampleInterval;
+
+	//the totals at the last reset, guarded by ALL_SAMPLES
+	private static final long[] BASE_NANOS = new long[SLOTS];
+	private static final long[] BASE_COUNTS = new long[SLOTS];
+	private static final long[] BASE_CALLS = new long[Method.values().length];
+
+	static {
+		int interval = Integer.getInteger("notation.profiler.sampleInterval", 0);
+		if(interval > 0) {
+			sampleInterval = interval;
+			registerMBean();
+		}
+	}
+
+	/**
+	 * one thread's totals, and the call that thread is timing
+	 */
+	static final class Sample {
+		private final long[] nanos = new long[SLOTS];
+		private final long[] counts = new long[SLOTS];
+		private final long[] calls = new long[Method.values().length];
+		private int countdown;
+		private boolean inUse;
+		private int method;
+		private long last;
+	}
+
+	private NotationProfiler() {
+	}
+
+	private static Sample newSample() {
+		Sample sample = new Sample();
+		synchronized(ALL_SAMPLES) {
+			ALL_SAMPLES.add(sample);
+		}
+		return sample;
+	}
+
+	/**
+	 * Returns the profiler's JMX interface, for reading it from inside the program
+	 * @return the profiler
+	 */
+	public static NotationProfilerMXBean mbean() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the profiler with the platform MBean server, if it isn't already
+	 * @throws IllegalStateException if it can't be registered
+	 */
+	public static void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			synchronized(INSTANCE) {
+				if(!server.isRegistered(name))
+					server.registerMBean(INSTANCE, name);
+			}
+		} catch(JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * decides whether this call is timed
+	 * @param method the method being called
+	 * @return the sample to pass to mark and end, or null if the call is
+	 * not timed
+	 */
+	static Sample start(Method method) {
+		int interval = sampleInterval;
+		if(interval == 0)
+			return null;
+
+		Sample sample = SAMPLES.get();
+		//a call made from inside a timed call, by a registered function for example, is not timed
+		if(sample.inUse || --sample.countdown > 0)
+			return null;
+		sample.countdown = interval;
+		sample.inUse = true;
+		sample.method = method.ordinal();
+		sample.last = System.nanoTime();
+		return sample;
+	}
+
+	/**
+	 * adds the time since the last mark, or since start, to stage
+	 * @param sample the sample start returned, nothing happens if it is null
+	 * @param stage the stage that just finished
+	 */
+	static void mark(Sample sample, Stage stage) {
+		if(sample == null)
+			return;
+		long now = System.nanoTime();
+		int slot = sample.method * STAGES + stage.ordinal();
+		LONGS.setOpaque(sample.nanos, slot, sample.nanos[slot] + (now - sample.last));
+		LONGS.setOpaque(sample.counts, slot, sample.counts[slot] + 1);
+		sample.last = now;
+	}
+
+	/**
+	 * counts the call and frees the sample, call it in a finally block
+	 * so a call that throws still frees it
+	 * @param sample the sample start returned, nothing happens if it is null
+	 */
+	static void end(Sample sample) {
+		if(sample == null)
+			return;
+		LONGS.setOpaque(sample.calls, sample.method, sample.calls[sample.method] + 1);
+		sample.inUse = false;
+	}
+
+	public int getSampleInterval() {
+		return sampleInterval;
+	}
+
+	public void setSampleInterval(int sampleInterval) {
+		if(sampleInterval < 0)
+			throw new IllegalArgumentException();
+		NotationProfiler.sampleInterval = sampleInterval;
+	}
+
+	/**
+	 * @return the sum of one of the arrays of every thread's Sample, minus
+	 * its baseline
+	 */
+	private static long[] merge(Function<Sample, long[]> array, long[] base) {
+		synchronized(ALL_SAMPLES) {
+			long[] totals = new long[base.length];
+			for(Sample sample : ALL_SAMPLES) {
+				long[] values = array.apply(sample);
+				for(int slot = 0; slot < totals.length; slot++)
+					totals[slot] += (long) LONGS.getOpaque(values, slot);
+			}
+			for(int slot = 0; slot < totals.length; slot++)
+				totals[slot] -= base[slot];
+			return totals;
+		}
+	}
+
+	public Map<String, Long> getSampledCalls() {
+		long[] calls = merge(sample -> sample.calls, BASE_CALLS);
+		Map<String, Long> sampledCalls = new LinkedHashMap<>();
+		for(Method method : Method.values())
+			sampledCalls.put(method.getMethodName(), calls[method.ordinal()]);
+		return sampledCalls;
+	}
+
+	public Map<String, Long> getStageNanos() {
+		return byStage(merge(sample -> sample.nanos, BASE_NANOS), merge(sample -> sample.counts, BASE_COUNTS));
+	}
+
+	public Map<String, Long> getStageCounts() {
+		long[] counts = merge(sample -> sample.counts, BASE_COUNTS);
+		return byStage(counts, counts);
+	}
+
+	/**
+	 * @return values keyed by method.STAGE, leaving out the stages a
+	 * method doesn't have
+	 */
+	private static Map<String, Long> byStage(long[] values, long[] counts) {
+		Map<String, Long> byStage = new LinkedHashMap<>();
+		for(Method method : Method.values()) {
+			for(Stage stage : Stage.values()) {
+				int slot = method.ordinal() * STAGES + stage.ordinal();
+				if(counts[slot] > 0)
+					byStage.put(method.getMethodName() + "." + stage, values[slot]);
+			}
+		}
+		return byStage;
+	}
+
+	public String getReport() {
+		long[] nanos = merge(sample -> sample.nanos, BASE_NANOS);
+		long[] counts = merge(sample -> sample.counts, BASE_COUNTS);
+		long[] calls = merge(sample -> sample.calls, BASE_CALLS);
+		StringBuilder report = new StringBuilder();
+		for(Method method : Method.values()) {
+			if(calls[method.ordinal()] == 0)
+				continue;
+			report.append(method.getMethodName()).append(": ").append(calls[method.ordinal()]).append(" sampled calls\n");
+			for(Stage stage : Stage.values()) {
+				int slot = method.ordinal() * STAGES + stage.ordinal();
+				if(counts[slot] == 0)
+					continue;
+				report.append(String.format("  %-8s %12d runs %16d ns total %12.1f ns average%n",
+						stage, counts[slot], nanos[slot], (double) nanos[slot] / counts[slot]));
+			}
+		}
+		return report.toString();
+	}
+
+	public void reset() {
+		synchronized(ALL_SAMPLES) {
+			long[] nanos = merge(sample -> sample.nanos, BASE_NANOS);
+			long[] counts = merge(sample -> sample.counts, BASE_COUNTS);
+			long[] calls = merge(sample -> sample.calls, BASE_CALLS);
+			for(int slot = 0; slot < SLOTS; slot++) {
+				BASE_NANOS[slot] += nanos[slot];
+				BASE_COUNTS[slot] += counts[slot];
+			}
+			for(int slot = 0; slot < calls.length; slot++)
+				BASE_CALLS[slot] += calls[slot];
+		}
+	}
+}
@@ -0,0 +1,49 @@
+import java.util.Map;
+
+/**
+ * the JMX view of NotationProfiler. Times are in nanoseconds and cover
+ * only the sampled calls, keys are method.STAGE, for example
+ * convertInfixToPostfix.SCAN
+ * @author Christopher Perez Lebron
+ *
+ */
+public interface NotationProfilerMXBean {
+
+	/**
+	 * @return N if one in every N calls is timed on each thread, 0 if
+	 * profiling is off
+	 */
+	public int getSampleInterval();
+
+	/**
+	 * @param sampleInterval time one in every sampleInterval calls, or
+	 * none if it is 0
+	 * @throws IllegalArgumentException if sampleInterval is negative
+	 */
+	public void setSampleInterval(int sampleInterval);
+
+	/**
+	 * @return the number of sampled calls of each Notation method
+	 */
+	public Map<String, Long> getSampledCalls();
+
+	/**
+	 * @return the total time spent in each stage of each method
+	 */
+	public Map<String, Long> getStageNanos();
+
+	/**
+	 * @return the number of times each stage of each method ran to its end
+	 */
+	public Map<String, Long> getStageCounts();
+
+	/**
+	 * @return a table of the counts, totals and averages, one line per stage
+	 */
+	public String getReport();
+
+	/**
+	 * starts every count and total over from zero
+	 */
+	public void reset();
+}
@@ -0,0 +1,89 @@
+/**
+ * a class that holds the outcome of running a single item through
+ * a Notation stage. It either holds a value or the exception that
+ * was thrown while computing it. This lets a pipeline deliver
+ * errors per item instead of tearing down the whole stream
+ * @author Christopher Perez Lebron
+ *
+ * @param <R> a generic type representing the type of the value
+ */
+public final class NotationResult<R> {
+	private final Object input;
+	private final R value;
+	private final RuntimeException error;
+
+	private NotationResult(Object input, R value, RuntimeException error) {
+		this.input = input;
+		this.value = value;
+		this.error = error;
+	}
+
+	/**
+	 * creates a successful result
+	 * @param input the item that produced the value
+	 * @param value the computed value
+	 * @return a result holding value
+	 */
+	public static <R> NotationResult<R> success(Object input, R value) {
+		return new NotationResult<>(input, value, null);
+	}
+
+	/**
+	 * creates a failed result
+	 * @param input the item that failed
+	 * @param error the exception that was thrown
+	 * @return a result holding error
+	 */
+	public static <R> NotationResult<R> failure(Object input, RuntimeException error) {
+		if(error == null)
+			throw new IllegalArgumentException();
+		return new NotationResult<>(input, null, error);
+	}
+
+	/**
+	 * Determines if this result holds a value
+	 * @return true if the computation succeeded, false if not
+	 */
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	/**
+	 * Returns the item that was fed into the stage
+	 * @return the original input item
+	 */
+	public Object getInput() {
+		return input;
+	}
+
+	/**
+	 * Returns the computed value. If the computation failed the
+	 * original exception is rethrown so that a later stage which
+	 * unwraps this result fails the same way for the same item
+	 * @return the computed value
+	 * @throws RuntimeException the exception the computation threw
+	 */
+	public R getValue() {
+		if(error != null)
+			throw error;
+		return value;
+	}
+
+	/**
+	 * Returns the exception that was thrown
+	 * @return the exception, or null if the computation succeeded
+	 */
+	public RuntimeException getError() {
+		return error;
+	}
+
+	/**
+	 * Returns the value or the error message of this result
+	 * @return a string representation of this result
+	 */
+	public String toString() {
+		if(error != null)
+			return "ERROR(" + error.getMessage() + ")";
+		return String.valueOf(value);
+	}
+}
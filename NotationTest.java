@@ -1,6 +1,17 @@
  
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -117,4 +128,486 @@ public class NotationTest {
 			assertTrue("This should have thrown an InvalidNotationFormatException",true);
 		}
 	}
-}
\ No newline at end of file
+	
+	@Test
+	public void testReusedWorkspace() {
+		NotationWorkspace workspace = new NotationWorkspace(4);
+		assertEquals(easyPostfix, Notation.convertInfixToPostfix(easyInfix, workspace));
+		assertEquals(complexPostfix, Notation.convertInfixToPostfix(complexInfix, workspace));
+		assertTrue(workspace.capacity() >= complexInfix.length());
+		
+		//an invalid expression must not leave anything behind for the next call
+		try {
+			Notation.convertInfixToPostfix(invalidInfixExpression, workspace);
+			assertTrue("This should have thrown an InvalidNotationFormatException",false);
+		}
+		catch (InvalidNotationFormatException e)
+		{
+			assertTrue("This should have thrown an InvalidNotationFormatException",true);
+		}
+		assertEquals(intermediatePostfix, Notation.convertInfixToPostfix(intermediateInfix, workspace));
+		assertEquals(evalComplexPostfix, Notation.evaluatePostfixExpression(complexPostfix, workspace), .001);
+		assertEquals(complexInfix, Notation.convertPostfixToInfix(complexPostfix, workspace));
+	}
+	
+	@Test
+	public void testAdaptiveWorkspace() {
+		NotationWorkspace workspace = new NotationWorkspace();
+		StringBuilder flat = new StringBuilder("1");
+		for(int count = 0; count < 2000; count++)
+			flat.append("+1");
+		String flatInfix = flat.toString();
+		
+		//a flat expression never stacks more than one operator, so after a window the stack shrinks
+		for(int count = 0; count < 130; count++)
+			Notation.convertInfixToPostfix(flatInfix, workspace);
+		assertTrue(workspace.capacity() >= flatInfix.length());
+		assertTrue(workspace.operatorStack().capacity() < flatInfix.length() / 4);
+		
+		//a deeply nested one grows it again on the spot instead of overflowing
+		StringBuilder nested = new StringBuilder();
+		for(int count = 0; count < 1000; count++)
+			nested.append("(1+");
+		nested.append('1');
+		for(int count = 0; count < 1000; count++)
+			nested.append(')');
+		assertEquals(2001, Notation.convertInfixToPostfix(nested.toString(), workspace).length());
+		assertEquals(flatInfix.length(), Notation.convertInfixToPostfix(flatInfix, workspace).length());
+		assertTrue(workspace.operatorStack().capacity() >= 2000);
+	}
+	
+	@Test
+	public void testProfiler() throws Exception {
+		NotationProfilerMXBean profiler = NotationProfiler.mbean();
+		try {
+			profiler.setSampleInterval(1);
+			profiler.reset();
+			assertEquals(complexPostfix, Notation.convertInfixToPostfix(complexInfix));
+			assertEquals(evalComplexPostfix, Notation.evaluatePostfixExpression(complexPostfix), .001);
+			assertEquals(complexInfix, Notation.convertPostfixToInfix(complexPostfix));
+			try {
+				Notation.convertInfixToPostfix(invalidInfixExpression);
+				assertTrue("This should have thrown an InvalidNotationFormatException",false);
+			}
+			catch (InvalidNotationFormatException e)
+			{
+				assertTrue("This should have thrown an InvalidNotationFormatException",true);
+			}
+			
+			//the failed call is counted but never got to its last stages
+			assertEquals(Long.valueOf(2), profiler.getSampledCalls().get("convertInfixToPostfix"));
+			assertEquals(Long.valueOf(2), profiler.getStageCounts().get("convertInfixToPostfix.PREPARE"));
+			assertEquals(Long.valueOf(1), profiler.getStageCounts().get("convertInfixToPostfix.OUTPUT"));
+			assertEquals(Long.valueOf(1), profiler.getStageCounts().get("evaluatePostfixExpression.DRAIN"));
+			assertNull(profiler.getStageCounts().get("evaluatePostfixExpression.OUTPUT"));
+			assertTrue(profiler.getStageNanos().get("convertPostfixToInfix.SCAN") > 0);
+			assertTrue(profiler.getReport().contains("convertInfixToPostfix: 2 sampled calls"));
+			
+			//one in four calls on this thread is timed
+			profiler.setSampleInterval(4);
+			profiler.reset();
+			for(int count = 0; count < 40; count++)
+				Notation.evaluatePostfixExpressionExact(complexPostfix);
+			assertEquals(Long.valueOf(10), profiler.getSampledCalls().get("evaluatePostfixExpressionExact"));
+			
+			NotationProfiler.registerMBean();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(4, server.getAttribute(new ObjectName("Notation:type=Profiler"), "SampleInterval"));
+		} finally {
+			profiler.setSampleInterval(0);
+		}
+		profiler.reset();
+		Notation.convertInfixToPostfix(complexInfix);
+		assertEquals(Long.valueOf(0), profiler.getSampledCalls().get("convertInfixToPostfix"));
+	}
+	
+	@Test
+	public void testIncrementalConversion() {
+		IncrementalNotation incremental = new IncrementalNotation();
+		incremental.append(complexInfix);
+		assertEquals(complexPostfix, incremental.getPostfix());
+		assertEquals(evalComplexPostfix, incremental.getValue(), .001);
+		
+		//type the intermediate expression over the complex one one edit at a time
+		incremental.setText(intermediateInfix);
+		assertEquals(intermediatePostfix, incremental.getPostfix());
+		assertEquals(evalIntermediatePostfix, incremental.getValue(), .001);
+		
+		incremental.append(')');
+		assertFalse(incremental.isValid());
+		incremental.deleteLast();
+		assertEquals(intermediatePostfix, incremental.getPostfix());
+		
+		incremental.setText(invalidInfixExpression);
+		try{
+			incremental.getPostfix();
+			assertTrue("This should have thrown an InvalidNotationFormatException",false);
+		}
+		catch (InvalidNotationFormatException e)
+		{
+			assertTrue("This should have thrown an InvalidNotationFormatException",true);
+		}
+		
+		//only the postfix after the change start has to be copied again
+		incremental.setText("1+2*3");
+		CharSequence view = incremental.getPostfixView();
+		String shown = view.toString();
+		assertEquals("123*+", shown);
+		incremental.takePostfixChangeStart();
+		incremental.append("-4");
+		int changeStart = incremental.takePostfixChangeStart();
+		shown = shown.substring(0, changeStart) + view.subSequence(changeStart, view.length());
+		assertEquals("123*+4-", shown);
+		assertEquals(incremental.getPostfix(), view.toString());
+		incremental.setText("1+2-4");
+		changeStart = incremental.takePostfixChangeStart();
+		assertTrue(changeStart <= 2);
+		shown = shown.substring(0, changeStart) + view.subSequence(changeStart, view.length());
+		assertEquals("12+4-", shown);
+		
+		//function calls give what Notation gives, whether typed forwards or deleted backwards
+		incremental.setText("max(1,2)");
+		assertEquals("12max[2]", incremental.getPostfix());
+		assertEquals(2.0, incremental.getValue(), .001);
+		String[] infixes = {"sqrt(9)+1", "abs(1-2)*3", "max(max(1,3,5),min(1,2))*2^3",
+				"min(1+2, 3*4)^2", "(max(1))", "max((1),2)", "2^max(1,2)^2", "max(1,)", "foo(1)", "sqrt 9",
+				"sqrt(1,2)", "1,2", "(1,2)", "max(1,(2,3))"};
+		for(String infix : infixes) {
+			incremental.clear();
+			for(int length = 0; length <= infix.length(); length++) {
+				incremental.setText(infix.substring(0, length));
+				assertSameAsNotation(incremental);
+			}
+			for(int length = infix.length(); length > 0; length--) {
+				incremental.deleteLast();
+				assertSameAsNotation(incremental);
+			}
+		}
+	}
+	
+	/**
+	 * checks that incremental is valid exactly when Notation converts its
+	 * text, and then gives the same postfix and value
+	 */
+	private static void assertSameAsNotation(IncrementalNotation incremental) {
+		String infix = incremental.getText();
+		String postfix;
+		try {
+			postfix = Notation.convertInfixToPostfix(infix);
+		} catch(InvalidNotationFormatException e) {
+			assertFalse(infix, incremental.isValid());
+			return;
+		}
+		assertTrue(infix, incremental.isValid());
+		assertEquals(infix, postfix, incremental.getPostfix());
+		assertEquals(infix, Notation.evaluatePostfixExpression(postfix), incremental.getValue(), .001);
+	}
+	
+	@Test
+	public void testExactEvaluatePostfixExpression() {
+		assertEquals(141L, Notation.evaluatePostfixExpressionExact(complexPostfix));
+		assertEquals(29L, Notation.evaluatePostfixExpressionExact(intermediatePostfix));
+		
+		//division truncates instead of producing 3.5
+		assertEquals(3L, Notation.evaluatePostfixExpressionExact("72/"));
+		
+		//9^9^9 does not fit in a long or a double, it has to come back as a BigInteger
+		BigInteger expected = BigInteger.valueOf(9).pow(9).pow(9);
+		assertEquals(expected, Notation.evaluatePostfixExpressionExact("99^9^"));
+		
+		//9^(9^9) would have over a billion bits, it is only computed approximately
+		assertEquals(Double.POSITIVE_INFINITY, Notation.evaluatePostfixExpressionExact("999^^"));
+		//under the cap, or with a base of 1, it is still exact
+		assertEquals(BigInteger.valueOf(9).pow(59049), Notation.evaluatePostfixExpressionExact("999*9*9*9*^"));
+		assertEquals(expected.add(BigInteger.ONE), Notation.evaluatePostfixExpressionExact("99^9^199^^+"));
+		
+		//dividing by zero has no integer result so it is done in double
+		assertEquals(Double.POSITIVE_INFINITY, Notation.evaluatePostfixExpressionExact("70/"));
+		
+		//functions stay exact while their arguments and result are exact integers
+		assertEquals(8L, Notation.evaluatePostfixExpressionExact("283max[3]"));
+		assertEquals(3L, Notation.evaluatePostfixExpressionExact("9sqrt"));
+		assertEquals(Math.sqrt(2), Notation.evaluatePostfixExpressionExact("2sqrt"));
+		assertEquals(Math.sqrt(2) + 1, Notation.evaluatePostfixExpressionExact("2sqrt1+"));
+		assertEquals(expected.add(BigInteger.valueOf(3)), Notation.evaluatePostfixExpressionExact("99^9^2abs3max[2]+"));
+		
+		try{
+			Notation.evaluatePostfixExpressionExact(invalidPostfixExpression);
+			assertTrue("This should have thrown an InvalidNotationFormatException",false);
+		}
+		catch (InvalidNotationFormatException e)
+		{
+			assertTrue("This should have thrown an InvalidNotationFormatException",true);
+		}
+	}
+	
+	@Test
+	public void testCompiledExpressionLibrary() throws Exception {
+		Path file = Files.createTempFile("formulas", ".bin");
+		try {
+			CompiledExpressionLibrary.write(file, Arrays.asList(complexInfix, intermediateInfix, easyInfix));
+			CompiledExpressionLibrary library = CompiledExpressionLibrary.load(file);
+			assertEquals(3, library.size());
+			assertEquals(complexPostfix, library.getPostfix(0));
+			assertEquals(evalComplexPostfix, library.evaluate(0), .001);
+			assertEquals(evalIntermediatePostfix, library.evaluate(1), .001);
+			assertEquals(evalEasyPostfix, library.evaluate(2), .001);
+			
+			//function calls are stored the way Notation writes them
+			CompiledExpressionLibrary.write(file, Arrays.asList("sqrt(9)+1", "max(1,2)", "max(1,2,3,4,5)",
+					"min(1+2, 3*4)^2-max(max(1,3,5),min(1,2))", "abs(sqrt(9))"));
+			library = CompiledExpressionLibrary.load(file);
+			assertEquals("9sqrt1+", library.getPostfix(0));
+			assertEquals(4.0, library.evaluate(0), .001);
+			assertEquals(2.0, library.evaluate(1), .001);
+			assertEquals("12345max[5]", library.getPostfix(2));
+			assertEquals(5.0, library.evaluate(2), .001);
+			assertEquals(4.0, library.evaluate(3), .001);
+			assertEquals("9sqrt abs", library.getPostfix(4));
+			assertEquals(3.0, library.evaluate(4), .001);
+			
+			try {
+				CompiledExpressionLibrary.write(file, Arrays.asList("1+2", "foo(1)"));
+				fail("This should have caused an InvalidNotationFormatException");
+			} catch(InvalidNotationFormatException e) {
+				assertTrue(e.getMessage().contains("formula 1"));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void testExpressionInterning() {
+		ExpressionInterner interner = new ExpressionInterner();
+		ExpressionInterner.Node first = interner.internInfix("(1+2)*3-4");
+		ExpressionInterner.Node second = interner.internInfix(" 3 * ( 2 + 1 ) - 4 ");
+		
+		//same expression up to whitespace and the order of commutative operands
+		assertSame(first, second);
+		assertEquals(5.0, first.getValue(), .001);
+		
+		//the shared (1+2)*3 is reused, only the new root is created
+		int nodes = interner.size();
+		ExpressionInterner.Node third = interner.internInfix("(2+1)*3%4");
+		assertEquals(nodes + 1, interner.size());
+		assertSame(first.getLeft(), third.getLeft());
+		
+		//subtraction is not commutative so its operands keep their order
+		assertNotSame(interner.internInfix("1-2"), interner.internInfix("2-1"));
+		
+		ExpressionInterner.Node complex = interner.internInfix(complexInfix);
+		assertEquals(evalComplexPostfix, complex.getValue(), .001);
+		assertEquals(evalComplexPostfix, Notation.evaluatePostfixExpression(complex.toPostfix()), .001);
+		
+		//function calls are nodes too, with one operand per argument
+		ExpressionInterner.Node root = interner.internInfix("sqrt(9)");
+		assertTrue(root.isFunction());
+		assertEquals(1, root.getOperandCount());
+		assertEquals(3.0, root.getValue(), .001);
+		assertEquals("9sqrt", root.toPostfix());
+		assertEquals(3.0, interner.internInfix("abs(1-2)*3").getValue(), .001);
+		ExpressionInterner.Node max = interner.internInfix("max(1,2)");
+		assertEquals(2.0, max.getValue(), .001);
+		assertEquals("12max[2]", max.toPostfix());
+		assertNull(max.getLeft());
+		assertSame(max, interner.internPostfix("12max[2]"));
+		
+		//the same call is shared, different arguments are not
+		nodes = interner.size();
+		ExpressionInterner.Node call = interner.internInfix("max(1,2,3)+max(1,2,3)");
+		assertEquals(nodes + 2, interner.size());
+		assertSame(call.getLeft(), call.getRight());
+		assertNotSame(interner.internInfix("max(1,2)"), interner.internInfix("max(2,1)"));
+		
+		String infix = "min(1+2, 3*4)^2-max(max(1,3,5),min(1,2))";
+		ExpressionInterner.Node expression = interner.internInfix(infix);
+		assertEquals(Notation.evaluatePostfixExpression(Notation.convertInfixToPostfix(infix)),
+				expression.getValue(), .001);
+		assertEquals(Notation.convertInfixToPostfix(infix), expression.toPostfix());
+		
+		try {
+			interner.internPostfix("1foo");
+			fail("This should have caused an InvalidNotationFormatException");
+		} catch(InvalidNotationFormatException e) {
+		}
+		try {
+			interner.internPostfix("1max[2]");
+			fail("This should have caused an InvalidNotationFormatException");
+		} catch(InvalidNotationFormatException e) {
+		}
+	}
+	
+	@Test
+	public void testFunctions() {
+		assertEquals("123max[3]", Notation.convertInfixToPostfix("max(1,2,3)"));
+		assertEquals("9sqrt2*", Notation.convertInfixToPostfix("sqrt(9)*2"));
+		assertEquals("12+34*min[2]2^", Notation.convertInfixToPostfix("min(1+2, 3*4)^2"));
+		assertEquals("135max[3]12min[2]max[2]", Notation.convertInfixToPostfix("max(max(1,3,5),min(1,2))"));
+		
+		assertEquals(3.0, Notation.evaluatePostfixExpression("123max[3]"), .001);
+		assertEquals(6.0, Notation.evaluatePostfixExpression("9sqrt2*"), .001);
+		assertEquals(9.0, Notation.evaluatePostfixExpression("12+34*min[2]2^"), .001);
+		assertEquals(5.0, Notation.evaluatePostfixExpression("135max[3]12min[2]max[2]"), .001);
+		
+		assertEquals("max(1,2,3)", Notation.convertPostfixToInfix("123max[3]"));
+		assertEquals("(sqrt(9)*2)", Notation.convertPostfixToInfix("9sqrt2*"));
+		
+		//adjacent names are kept apart
+		assertEquals("21abs min[2]", Notation.convertInfixToPostfix("min(2,abs(1))"));
+		assertEquals("9sqrt abs", Notation.convertInfixToPostfix("abs(sqrt(9))"));
+		assertEquals(1.0, Notation.evaluatePostfixExpression("21abs min[2]"), .001);
+		assertEquals("min(2,abs(1))", Notation.convertPostfixToInfix("21abs min[2]"));
+		IncrementalNotation incremental = new IncrementalNotation();
+		incremental.append("min(2,abs(sqrt(1)))");
+		assertSameAsNotation(incremental);
+		assertEquals("21abs min[2]", new ExpressionInterner().internInfix("min(2,abs(1))").toPostfix());
+		assertEquals("21abs min[2]", ConditionalNotation.convertInfixToPostfix("min(2,abs(1))"));
+		assertEquals(1.0, ConditionalNotation.evaluatePostfixExpression("21abs min[2]"), .001);
+		
+		String[] invalidInfix = {"max()", "max(1,)", "max(1 2)", "sqrt(1,2)", "foo(1)", "max 1", "1,2", "(1,2)", "max(1,2"};
+		for(String infix : invalidInfix) {
+			try {
+				Notation.convertInfixToPostfix(infix);
+				fail(infix + " should not convert");
+			} catch(InvalidNotationFormatException e) {
+			}
+		}
+		String[] invalidPostfix = {"12max", "12max[3]", "12max#2", "12max[2", "1sqrt[1]", "sqrt", "12foo"};
+		for(String postfix : invalidPostfix) {
+			try {
+				Notation.evaluatePostfixExpression(postfix);
+				fail(postfix + " should not evaluate");
+			} catch(InvalidNotationFormatException e) {
+			}
+		}
+	}
+	
+	@Test
+	public void testOperatorRegistry() {
+		OperatorRegistry registry = OperatorRegistry.standard();
+		registry.registerOperator('&', 2, false, (left, right) -> left + 10 * right);
+		registry.registerFunction("avg", 1, Integer.MAX_VALUE, (arguments, offset, count) -> {
+			double sum = 0;
+			for(int index = offset; index < offset + count; index++)
+				sum += arguments[index];
+			return sum / count;
+		});
+		registry.registerFunction("hyp", 2, 2, (arguments, offset, count) -> Math.hypot(arguments[offset], arguments[offset + 1]));
+		
+		//& binds as tightly as * and is left associative
+		String postfix = Notation.convertInfixToPostfix("1+2&3&4", registry);
+		assertEquals("123&4&+", postfix);
+		assertEquals(1 + 72, Notation.evaluatePostfixExpression(postfix, registry), .001);
+		assertEquals("(1+((2&3)&4))", Notation.convertPostfixToInfix(postfix, registry));
+		
+		assertEquals("246avg[3]", Notation.convertInfixToPostfix("avg(2,4,6)", registry));
+		assertEquals(4.0, Notation.evaluatePostfixExpression("246avg[3]", registry), .001);
+		assertEquals(5.0, Notation.evaluatePostfixExpression(Notation.convertInfixToPostfix("hyp(3,4)", registry), registry), .001);
+		
+		//replacing an operator changes how it parses and evaluates
+		registry.registerOperator('-', 1, true, (left, right) -> left - right);
+		assertEquals("842--", Notation.convertInfixToPostfix("8-4-2", registry));
+		assertEquals(6.0, Notation.evaluatePostfixExpression("842--", registry), .001);
+		registry.registerFunction("max", 2, 2, (arguments, offset, count) -> -1);
+		assertSame(registry.function("max"), registry.function('\uE000'));
+		assertEquals(-1.0, Notation.evaluatePostfixExpression("12max", registry), .001);
+		
+		//none of it leaks into the standard operators
+		assertEquals("84-2-", Notation.convertInfixToPostfix("8-4-2"));
+		assertEquals(2.0, Notation.evaluatePostfixExpression("12max[2]"), .001);
+		try {
+			Notation.convertInfixToPostfix("1&2");
+			fail("& is not a standard operator");
+		} catch(InvalidNotationFormatException e) {
+			//& is ignored like any other unknown character, leaving too few operators
+		}
+		
+		//the shared standard registry can't be changed, standard() hands out a fresh one
+		assertTrue(Notation.STANDARD_OPERATORS.isFrozen());
+		assertFalse(OperatorRegistry.standard().isFrozen());
+		try {
+			Notation.STANDARD_OPERATORS.registerOperator('&', 2, false, (left, right) -> 0);
+			fail("the standard registry is frozen");
+		} catch(IllegalStateException e) {
+		}
+		assertNull(Notation.STANDARD_OPERATORS.operator('&'));
+		
+		try {
+			registry.registerOperator('(', 1, false, (left, right) -> 0);
+			fail("( can't be an operator");
+		} catch(IllegalArgumentException e) {
+		}
+		try {
+			registry.registerFunction("max2", 1, 1, (arguments, offset, count) -> 0);
+			fail("max2 can't be a function name");
+		} catch(IllegalArgumentException e) {
+		}
+	}
+	
+	@Test
+	public void testAsciiRuns() {
+		assertEquals(8, AsciiNotation.digitRun(0x3938373635343332L));
+		assertEquals(3, AsciiNotation.digitRun(0x393837362B333231L));
+		assertEquals(0, AsciiNotation.digitRun(0x393837363534332FL));
+		//: comes right after 9, and 0xFA must not look like a digit
+		assertEquals(1, AsciiNotation.digitRun(0x3030303030303A30L));
+		assertEquals(1, AsciiNotation.digitRun(0x303030303030FA30L));
+		assertEquals(8, AsciiNotation.spaceRun(0x2020202020202020L));
+		assertEquals(4, AsciiNotation.spaceRun(0x2020202A20202020L));
+		assertEquals(0, AsciiNotation.spaceRun(0x2020202020202021L));
+	}
+	
+	@Test
+	public void testAsciiMatchesNotation() {
+		String[] infixes = {complexInfix, intermediateInfix, easyInfix, "1+2+3+4+5+6+7+8+9", "(12345678 + 9)",
+				"        1        +        2        ", "2^3^2", "9%4*2-1", "max(1,2)+3", "1\t+\t2",
+				invalidInfixExpression, "((1+2)", "1+", "12", "1,2", "", "12345678901234567890"};
+		for(String infix : infixes) {
+			byte[] bytes = infix.getBytes(StandardCharsets.ISO_8859_1);
+			String expected;
+			try {
+				expected = Notation.convertInfixToPostfix(infix);
+			} catch(InvalidNotationFormatException e) {
+				expected = e.getMessage();
+			}
+			assertEquals(infix, expected, asciiConvert(() -> AsciiNotation.convertInfixToPostfix(bytes, 0, bytes.length)));
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 2);
+			direct.put((byte) '(').put(bytes).flip().position(1);
+			assertEquals(infix, expected, asciiConvert(() -> AsciiNotation.convertInfixToPostfix(direct)));
+			assertEquals(1, direct.position());
+		}
+		
+		String[] postfixes = {complexPostfix, intermediatePostfix, easyPostfix, "123456789++++++++", "1 2 3 4 5 6 7 8 9 ++++++++",
+				"12345678        +++++++", "12max[2]3+", "12,+", invalidPostfixExpression, "12+3", "(12+)", "1+", "12345678901234567890"};
+		for(String postfix : postfixes) {
+			byte[] bytes = ("  " + postfix).getBytes(StandardCharsets.ISO_8859_1);
+			String expected;
+			try {
+				expected = String.valueOf(Notation.evaluatePostfixExpression(postfix));
+			} catch(InvalidNotationFormatException e) {
+				expected = e.getMessage();
+			}
+			assertEquals(postfix, expected, asciiEvaluate(() -> AsciiNotation.evaluatePostfixExpression(bytes, 2, bytes.length - 2)));
+			assertEquals(postfix, expected, asciiEvaluate(() -> AsciiNotation.evaluatePostfixExpression(ByteBuffer.wrap(bytes, 2, bytes.length - 2))));
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+			assertEquals(postfix, expected, asciiEvaluate(() -> AsciiNotation.evaluatePostfixExpression(direct)));
+		}
+	}
+	
+	private static String asciiConvert(java.util.function.Supplier<byte[]> conversion) {
+		try {
+			return new String(conversion.get(), StandardCharsets.ISO_8859_1);
+		} catch(InvalidNotationFormatException e) {
+			return e.getMessage();
+		}
+	}
+	
+	private static String asciiEvaluate(java.util.function.DoubleSupplier evaluation) {
+		try {
+			return String.valueOf(evaluation.getAsDouble());
+		} catch(InvalidNotationFormatException e) {
+			return e.getMessage();
+		}
+	}
+}
@@ -0,0 +1,301 @@
+/**
+ * a class that owns the stacks and queue the Notation methods work in,
+ * so they can be reused from call to call instead of allocated for
+ * every expression.
+ *
+ * Each thread gets its own workspace through acquire, or a caller can
+ * create one and pass it to the Notation overloads that take one. The
+ * structures are emptied with the constant time reset methods and only
+ * reallocated when a call needs more room than they have, or when they
+ * have been far bigger than anything recent calls needed.
+ *
+ * The operator stack, postfix queue and operand stack are not sized to
+ * the whole input. Each one remembers how deep it got, as a fraction of
+ * the input length, and is sized for that fraction of the next input.
+ * A deeper call raises the fraction right away, and every SHRINK_WINDOW
+ * calls it falls back to the deepest one seen in the window. They are
+ * growable, so the rare input that goes past its estimate just grows
+ * the structure instead of failing.
+ *
+ * A workspace must not be used by two threads at once.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class NotationWorkspace {
+	private static final int INITIAL_CAPACITY = 16;
+	//number of calls a size is remembered for when deciding to shrink
+	private static final int SHRINK_WINDOW = 64;
+	//structures bigger than this many times the recent max are shrunk
+	private static final int SHRINK_FACTOR = 4;
+	//room kept on top of the estimated depth, as a fraction and a fixed amount
+	private static final double HEADROOM = 1.25;
+	private static final int SLACK = 8;
+
+	private static final ThreadLocal<NotationWorkspace> CURRENT =
+			ThreadLocal.withInitial(NotationWorkspace::new);
+
+	private MyStack<Character> operatorStack;
+	private MyQueue<Character> postfixQueue;
+	private MyStack<String> operandStack;
+	//primitive value stacks for evaluation, so values are never boxed
+	private double[] doubleValues;
+	private long[] longValues;
+	//byte buffers for the ASCII path, the input copy, the output and the operator stack
+	private byte[] byteInput;
+	private byte[] byteOutput;
+	private byte[] byteOperators;
+
+	private final DepthEstimate operatorDepth = new DepthEstimate();
+	private final DepthEstimate postfixDepth = new DepthEstimate();
+	private final DepthEstimate operandDepth = new DepthEstimate();
+
+	private int capacity;
+	private int recentMax;
+	private int callsInWindow;
+	//the length passed to the last prepare, which the high-water marks are measured against
+	private int lastLength;
+	private boolean inUse;
+
+	/**
+	 * the deepest a structure has been, as a fraction of the input length
+	 */
+	private static final class DepthEstimate {
+		//starts at the worst case until a call has been seen
+		private double ratio = 1.0;
+		private double windowMax;
+		private boolean used;
+
+		void observe(int highWaterMark, int length) {
+			double observed = (double) highWaterMark / length;
+			windowMax = Math.max(windowMax, observed);
+			ratio = Math.max(ratio, observed);
+			used = false;
+		}
+
+		void endWindow() {
+			if(windowMax > 0)
+				ratio = windowMax;
+			windowMax = 0;
+		}
+
+		/**
+		 * @return how many elements to make room for when the input is length long
+		 */
+		int estimate(int length) {
+			return (int) Math.min(length, Math.ceil(length * ratio * HEADROOM) + SLACK);
+		}
+	}
+
+	public NotationWorkspace() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public NotationWorkspace(int initialCapacity) {
+		allocate(initialCapacity);
+		operatorStack = fitStack(null, initialCapacity, false);
+		postfixQueue = fitQueue(null, initialCapacity, false);
+		operandStack = fitStack(null, initialCapacity, false);
+	}
+
+	/**
+	 * Returns the calling thread's workspace and marks it in use. If it
+	 * is already in use, because a Notation call on this thread led to
+	 * another one, a fresh workspace is returned instead so the two calls
+	 * never share structures
+	 * @return a workspace the caller must hand back with release
+	 */
+	public static NotationWorkspace acquire() {
+		NotationWorkspace workspace = CURRENT.get();
+		if(workspace.inUse)
+			workspace = new NotationWorkspace();
+		workspace.inUse = true;
+		return workspace;
+	}
+
+	/**
+	 * marks this workspace as free to be acquired again
+	 */
+	public void release() {
+		inUse = false;
+	}
+
+	/**
+	 * makes sure the arrays can hold length elements and the stacks and
+	 * queue can hold their estimated depth, after recording how deep the
+	 * last call's structures got. Growth at least doubles the capacity
+	 * so a run of slowly growing inputs reallocates only a logarithmic
+	 * number of times
+	 * @param length the number of elements the next call may need
+	 */
+	void prepare(int length) {
+		recordDepths();
+		lastLength = length;
+		recentMax = Math.max(recentMax, length);
+		callsInWindow++;
+
+		boolean endOfWindow = callsInWindow >= SHRINK_WINDOW;
+		if(endOfWindow) {
+			operatorDepth.endWindow();
+			postfixDepth.endWindow();
+			operandDepth.endWindow();
+		}
+
+		if(length > capacity)
+			allocate(Math.max(length, Math.min(2 * capacity, MyStack.MAX_CAPACITY)));
+		else if(endOfWindow && capacity > SHRINK_FACTOR * Math.max(recentMax, INITIAL_CAPACITY))
+			allocate(2 * Math.max(recentMax, INITIAL_CAPACITY));
+
+		operatorStack = fitStack(operatorStack, operatorDepth.estimate(length), endOfWindow);
+		postfixQueue = fitQueue(postfixQueue, postfixDepth.estimate(length), endOfWindow);
+		operandStack = fitStack(operandStack, operandDepth.estimate(length), endOfWindow);
+
+		if(endOfWindow) {
+			recentMax = 0;
+			callsInWindow = 0;
+		}
+	}
+
+	/**
+	 * feeds the high-water marks of the structures the last call used into
+	 * their estimates. Done at the start of the next prepare rather than in
+	 * release so the hot path only pays for it once per call
+	 */
+	private void recordDepths() {
+		if(lastLength == 0)
+			return;
+		if(operatorDepth.used)
+			operatorDepth.observe(operatorStack.highWaterMark(), lastLength);
+		if(postfixDepth.used)
+			postfixDepth.observe(postfixQueue.highWaterMark(), lastLength);
+		if(operandDepth.used)
+			operandDepth.observe(operandStack.highWaterMark(), lastLength);
+	}
+
+	/**
+	 * @return stack if its capacity suits estimate, otherwise a new growable
+	 * stack sized for it. A stack is only shrunk at the end of a window
+	 */
+	private static <T> MyStack<T> fitStack(MyStack<T> stack, int estimate, boolean mayShrink) {
+		int target = Math.max(estimate, INITIAL_CAPACITY);
+		if(stack != null && stack.capacity() >= target
+				&& !(mayShrink && stack.capacity() > SHRINK_FACTOR * target))
+			return stack;
+		int newCapacity = stack == null || stack.capacity() >= target ? target
+				: Math.max(target, Math.min(2 * stack.capacity(), MyStack.MAX_CAPACITY));
+		MyStack<T> fitted = new MyStack<>(newCapacity);
+		fitted.setGrowable(true);
+		return fitted;
+	}
+
+	/**
+	 * @return queue if its capacity suits estimate, otherwise a new growable
+	 * queue sized for it. A queue is only shrunk at the end of a window
+	 */
+	private static <T> MyQueue<T> fitQueue(MyQueue<T> queue, int estimate, boolean mayShrink) {
+		int target = Math.max(estimate, INITIAL_CAPACITY);
+		if(queue != null && queue.capacity() >= target
+				&& !(mayShrink && queue.capacity() > SHRINK_FACTOR * target))
+			return queue;
+		int newCapacity = queue == null || queue.capacity() >= target ? target
+				: Math.max(target, Math.min(2 * queue.capacity(), MyQueue.MAX_CAPACITY));
+		MyQueue<T> fitted = new MyQueue<>(newCapacity);
+		fitted.setGrowable(true);
+		return fitted;
+	}
+
+	/**
+	 * replaces every array with one of the given capacity.
+	 * Allocating past MAX_CAPACITY throws IllegalStateException,
+	 * the same way allocating the structures directly in Notation does
+	 */
+	private void allocate(int newCapacity) {
+		if(newCapacity > MyStack.MAX_CAPACITY)
+			throw new IllegalStateException();
+		doubleValues = new double[newCapacity];
+		longValues = new long[newCapacity];
+		byteInput = new byte[newCapacity];
+		byteOutput = new byte[newCapacity];
+		byteOperators = new byte[newCapacity];
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Returns the number of elements each array can hold, the length 
+	 * of the longest input the workspace is ready for. The stacks and 
+	 * queue are usually smaller and grow when they need to
+	 * @return the current capacity of the workspace
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return an empty operator stack for infix to postfix conversion
+	 */
+	MyStack<Character> operatorStack() {
+		operatorStack.reset();
+		operatorStack.resetHighWaterMark();
+		operatorDepth.used = true;
+		return operatorStack;
+	}
+
+	/**
+	 * @return an empty output queue for infix to postfix conversion
+	 */
+	MyQueue<Character> postfixQueue() {
+		postfixQueue.reset();
+		postfixQueue.resetHighWaterMark();
+		postfixDepth.used = true;
+		return postfixQueue;
+	}
+
+	/**
+	 * @return a value stack for postfix evaluation, it holds 
+	 * at least capacity() values and its contents are garbage
+	 */
+	double[] doubleValues() {
+		return doubleValues;
+	}
+
+	/**
+	 * @return an empty operand stack for postfix to infix conversion
+	 */
+	MyStack<String> operandStack() {
+		operandStack.reset();
+		operandStack.resetHighWaterMark();
+		operandDepth.used = true;
+		return operandStack;
+	}
+	
+	/**
+	 * @return a value stack for exact integer evaluation, it holds 
+	 * at least capacity() values and its contents are garbage
+	 */
+	long[] longValues() {
+		return longValues;
+	}
+	
+	/**
+	 * @return a buffer to copy bytes into when they can't be read where 
+	 * they are, it holds at least capacity() bytes
+	 */
+	byte[] byteInput() {
+		return byteInput;
+	}
+	
+	/**
+	 * @return a buffer to write postfix bytes into, it holds at least 
+	 * capacity() bytes and its contents are garbage
+	 */
+	byte[] byteOutput() {
+		return byteOutput;
+	}
+	
+	/**
+	 * @return an operator stack for the ASCII conversion, it holds at 
+	 * least capacity() bytes and its contents are garbage
+	 */
+	byte[] byteOperators() {
+		return byteOperators;
+	}
+}
@@ -0,0 +1,317 @@
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A table of the binary operators and named functions Notation understands.
+ * Each operator has a precedence, an associativity and an implementation,
+ * and is found in O(1) by indexing a dense array with its character.
+ * Functions are written name(argument, argument, ...) in infix. They are
+ * found through a dense array indexed by the first letter of the name, and
+ * by a token char, again through a dense array, once parsed. A name can be
+ * looked up where it sits in the text, without cutting it out first.
+ *
+ * Both kinds of implementation take and return primitive doubles, so
+ * evaluating an operator or a function boxes nothing.
+ *
+ * standard() has + - * / % ^ with the precedences Notation has always used,
+ * and the functions max, min, abs and sqrt. A registry can be changed
+ * freely before it is used, but is not thread safe while it is changing.
+ * freeze makes it read only, a frozen registry can be shared by any
+ * number of threads.
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class OperatorRegistry {
+	//operators are ASCII characters, so 128 slots cover every one of them
+	private static final int OPERATOR_SLOTS = 128;
+	//function tokens are handed out from the Unicode private use area
+	private static final char FIRST_FUNCTION_TOKEN = '\uE000';
+	private static final int MAX_FUNCTIONS = 0x1900;
+
+	private final Operator[] operators = new Operator[OPERATOR_SLOTS];
+	//the functions whose names start with each letter, chained through Function.next
+	private final Function[] functionsByLetter = new Function[OPERATOR_SLOTS];
+	private Function[] functions = new Function[8];
+	private int numFunctions;
+	private boolean frozen;
+
+	/**
+	 * the implementation of a function, called with the function's
+	 * arguments in arguments[offset] to arguments[offset + count - 1]
+	 */
+	@FunctionalInterface
+	public interface FunctionImplementation {
+		double apply(double[] arguments, int offset, int count);
+	}
+
+	/**
+	 * a binary operator
+	 */
+	public static final class Operator {
+		private final char symbol;
+		private final int precedence;
+		private final boolean rightAssociative;
+		private final DoubleBinaryOperator implementation;
+
+		private Operator(char symbol, int precedence, boolean rightAssociative, DoubleBinaryOperator implementation) {
+			this.symbol = symbol;
+			this.precedence = precedence;
+			this.rightAssociative = rightAssociative;
+			this.implementation = implementation;
+		}
+
+		public char getSymbol() {
+			return symbol;
+		}
+
+		/**
+		 * @return the precedence level, higher binds tighter
+		 */
+		public int getPrecedence() {
+			return precedence;
+		}
+
+		public boolean isRightAssociative() {
+			return rightAssociative;
+		}
+
+		/**
+		 * @return (left operator right)
+		 */
+		public double apply(double left, double right) {
+			return implementation.applyAsDouble(left, right);
+		}
+	}
+
+	/**
+	 * a named function taking between minArity and maxArity arguments
+	 */
+	public static final class Function {
+		private final String name;
+		private final char token;
+		private final int minArity;
+		private final int maxArity;
+		private final FunctionImplementation implementation;
+		private Function next;
+
+		private Function(String name, char token, int minArity, int maxArity, FunctionImplementation implementation) {
+			this.name = name;
+			this.token = token;
+			this.minArity = minArity;
+			this.maxArity = maxArity;
+			this.implementation = implementation;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the char that stands for this function on an operator stack
+		 */
+		public char getToken() {
+			return token;
+		}
+
+		public int getMinArity() {
+			return minArity;
+		}
+
+		public int getMaxArity() {
+			return maxArity;
+		}
+
+		/**
+		 * @return true if the number of arguments is not fixed, in which case
+		 * postfix writes it after the name
+		 */
+		public boolean isVariadic() {
+			return minArity != maxArity;
+		}
+
+		/**
+		 * @return true if count is an allowed number of arguments
+		 */
+		public boolean accepts(int count) {
+			return count >= minArity && count <= maxArity;
+		}
+
+		/**
+		 * applies the function to arguments[offset] to arguments[offset + count - 1]
+		 */
+		public double apply(double[] arguments, int offset, int count) {
+			return implementation.apply(arguments, offset, count);
+		}
+	}
+
+	/**
+	 * Returns a new registry with the operators and functions Notation
+	 * supports out of the box
+	 * @return a registry with + - * / % ^ and max, min, abs, sqrt
+	 */
+	public static OperatorRegistry standard() {
+		OperatorRegistry registry = new OperatorRegistry();
+		registry.registerOperator('+', 1, false, (left, right) -> left + right);
+		registry.registerOperator('-', 1, false, (left, right) -> left - right);
+		registry.registerOperator('%', 1, false, (left, right) -> left % right);
+		registry.registerOperator('*', 2, false, (left, right) -> left * right);
+		registry.registerOperator('/', 2, false, (left, right) -> left / right);
+		registry.registerOperator('^', 3, true, Math::pow);
+
+		registry.registerFunction("max", 1, Integer.MAX_VALUE, (arguments, offset, count) -> {
+			double max = arguments[offset];
+			for(int index = offset + 1; index < offset + count; index++)
+				max = Math.max(max, arguments[index]);
+			return max;
+		});
+		registry.registerFunction("min", 1, Integer.MAX_VALUE, (arguments, offset, count) -> {
+			double min = arguments[offset];
+			for(int index = offset + 1; index < offset + count; index++)
+				min = Math.min(min, arguments[index]);
+			return min;
+		});
+		registry.registerFunction("abs", 1, 1, (arguments, offset, count) -> Math.abs(arguments[offset]));
+		registry.registerFunction("sqrt", 1, 1, (arguments, offset, count) -> Math.sqrt(arguments[offset]));
+		return registry;
+	}
+
+	/**
+	 * Makes the registry read only, every later register call throws
+	 * @return this registry
+	 */
+	public OperatorRegistry freeze() {
+		frozen = true;
+		return this;
+	}
+
+	/**
+	 * @return true if the registry can no longer be changed
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkNotFrozen() {
+		if(frozen)
+			throw new IllegalStateException("ERROR: registry is frozen");
+	}
+
+	/**
+	 * Adds a binary operator, or replaces the one with the same symbol
+	 * @param symbol the ASCII character the operator is written as
+	 * @param precedence the precedence level, higher binds tighter. Must be
+	 * at least one, zero is the level of an open parenthesis
+	 * @param rightAssociative true if a op b op c means a op (b op c)
+	 * @param implementation computes (left symbol right)
+	 * @throws IllegalArgumentException if symbol can't be an operator or
+	 * precedence is less than one
+	 * @throws IllegalStateException if the registry is frozen
+	 */
+	public void registerOperator(char symbol, int precedence, boolean rightAssociative, DoubleBinaryOperator implementation) {
+		checkNotFrozen();
+		if(symbol >= OPERATOR_SLOTS || Character.isLetterOrDigit(symbol) || Character.isWhitespace(symbol)
+				|| Character.isISOControl(symbol) || symbol == '(' || symbol == ')' || symbol == ',' || symbol == '[' || symbol == ']')
+			throw new IllegalArgumentException("ERROR: " + symbol + " can't be an operator");
+		if(precedence < 1)
+			throw new IllegalArgumentException("ERROR: precedence must be at least 1");
+		if(implementation == null)
+			throw new NullPointerException();
+		operators[symbol] = new Operator(symbol, precedence, rightAssociative, implementation);
+	}
+
+	/**
+	 * Adds a function, or replaces the one with the same name
+	 * @param name the name the function is called by, ASCII letters only
+	 * @param minArity the fewest arguments it takes, at least one
+	 * @param maxArity the most arguments it takes
+	 * @param implementation computes the function's value from its arguments
+	 * @throws IllegalArgumentException if name is not a name or the arities
+	 * are out of order
+	 * @throws IllegalStateException if the registry is frozen
+	 */
+	public void registerFunction(String name, int minArity, int maxArity, FunctionImplementation implementation) {
+		checkNotFrozen();
+		if(name.isEmpty() || !name.chars().allMatch(letter -> letter < OPERATOR_SLOTS && Character.isLetter(letter)))
+			throw new IllegalArgumentException("ERROR: " + name + " can't be a function name");
+		if(minArity < 1 || maxArity < minArity)
+			throw new IllegalArgumentException("ERROR: invalid number of arguments");
+		if(implementation == null)
+			throw new NullPointerException();
+
+		Function existing = function(name);
+		int id = existing != null ? existing.token - FIRST_FUNCTION_TOKEN : numFunctions;
+		if(id >= MAX_FUNCTIONS)
+			throw new IllegalStateException();
+		if(id == functions.length)
+			functions = Arrays.copyOf(functions, 2 * functions.length);
+
+		Function function = new Function(name, (char) (FIRST_FUNCTION_TOKEN + id), minArity, maxArity, implementation);
+		functions[id] = function;
+		if(existing == null)
+			numFunctions++;
+
+		//put it at the front of its letter's chain, unlinking the function it replaces
+		char letter = name.charAt(0);
+		if(existing != null) {
+			if(functionsByLetter[letter] == existing)
+				functionsByLetter[letter] = existing.next;
+			else {
+				Function previous = functionsByLetter[letter];
+				while(previous.next != existing)
+					previous = previous.next;
+				previous.next = existing.next;
+			}
+		}
+		function.next = functionsByLetter[letter];
+		functionsByLetter[letter] = function;
+	}
+
+	/**
+	 * @param symbol a character
+	 * @return the operator written as symbol, or null if there isn't one
+	 */
+	public Operator operator(char symbol) {
+		return symbol < OPERATOR_SLOTS ? operators[symbol] : null;
+	}
+
+	/**
+	 * @param name a function name
+	 * @return the function called name, or null if there isn't one
+	 */
+	public Function function(String name) {
+		return function(name, 0, name.length());
+	}
+
+	/**
+	 * @param text text containing a function name
+	 * @param start the index of the name's first letter
+	 * @param end the index just past the name's last letter
+	 * @return the function called text[start, end), or null if there isn't one
+	 */
+	public Function function(CharSequence text, int start, int end) {
+		if(start >= end || text.charAt(start) >= OPERATOR_SLOTS)
+			return null;
+		for(Function function = functionsByLetter[text.charAt(start)]; function != null; function = function.next) {
+			if(function.name.length() == end - start && regionMatches(function.name, text, start))
+				return function;
+		}
+		return null;
+	}
+
+	private static boolean regionMatches(String name, CharSequence text, int start) {
+		for(int index = 0; index < name.length(); index++) {
+			if(name.charAt(index) != text.charAt(start + index))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param token a char that may be a function's token
+	 * @return the function whose token is token, or null if there isn't one
+	 */
+	public Function function(char token) {
+		int id = token - FIRST_FUNCTION_TOKEN;
+		return id >= 0 && id < numFunctions ? functions[id] : null;
+	}
+}
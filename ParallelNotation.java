@@ -0,0 +1,850 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A static utility class that converts very large infix expressions to
+ * postfix on a fork/join pool.
+ *
+ * The conversion works in two parallel passes. The first is a parallel
+ * prefix sum over fixed size chunks that finds the parenthesis depth and
+ * the number of operands and operators before every chunk. That is enough
+ * to validate the whole expression, and to know exactly where in the
+ * output every part of the input will end up, because postfix is the
+ * operands and operators of the infix in another order.
+ *
+ * The second pass splits the expression at its top level operators of
+ * the lowest precedence. Each piece between them is converted on its
+ * own, recursively, straight into its place in the output, and the
+ * split operators are put where the sequential algorithm would have
+ * popped them. Nothing has to be stitched together afterwards.
+ *
+ * evaluatePostfixExpression builds the expression tree of a postfix
+ * expression, where a function call is a node with one child per
+ * argument, and evaluates subtrees bigger than a threshold as separate
+ * fork/join tasks. Smaller subtrees are evaluated sequentially, which is
+ * cheap because the tokens of a subtree are a contiguous part of the
+ * postfix. Wide expressions, with many big independent subtrees, spread
+ * over every thread of the pool.
+ *
+ * The results, and the exceptions for invalid input, are exactly the ones
+ * Notation gives, down to the last bit of the doubles, since every
+ * operation is done on the same operands. Expressions short enough for
+ * Notation are handed to it. An infix expression with function calls is
+ * converted sequentially by IncrementalNotation, which has no capacity
+ * limit, since a call's postfix form does not take the place of its
+ * characters that the second pass counts on.
+ *
+ * THIS CLASS ONLY WORKS WITH SINGLE DIGIT OPERANDS
+ * @author Christopher Perez Lebron
+ *
+ */
+public final class ParallelNotation {
+	//ranges this short are converted sequentially
+	private static final int LEAF_SIZE = 1 << 14;
+	//ranges nested deeper than this are converted sequentially, however long
+	private static final int MAX_LEVELS = 32;
+	//subtrees with this many tokens or fewer are evaluated sequentially
+	private static final int SUBTREE_THRESHOLD = 1 << 13;
+
+	private static final byte SKIP = 0;
+	private static final byte DIGIT = 1;
+	private static final byte OPERATOR = 2;
+	private static final byte OPEN = 3;
+	private static final byte CLOSE = 4;
+	private static final byte FUNCTION = 5;
+
+	private ParallelNotation() {
+	}
+
+	/**
+	 * converts a infix expression into postfix expression using the
+	 * common fork/join pool
+	 * @param infix a string representing a infix algebraic expression
+	 * @return a string representing infix's postfix form
+	 * @throws InvalidNotationFormatException if the infix expression is
+	 * invalid in anyway.
+	 */
+	public static String convertInfixToPostfix(String infix) {
+		return convertInfixToPostfix(infix, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * converts a infix expression into postfix expression using the
+	 * threads of pool
+	 * @param infix a string representing a infix algebraic expression
+	 * @param pool the pool to run the conversion on
+	 * @return a string representing infix's postfix form
+	 * @throws InvalidNotationFormatException if the infix expression is
+	 * invalid in anyway.
+	 */
+	public static String convertInfixToPostfix(String infix, ForkJoinPool pool) {
+		if(infix.length() <= MyStack.MAX_CAPACITY)
+			return Notation.convertInfixToPostfix(infix);
+		return convertInfixToPostfix(infix, pool, LEAF_SIZE);
+	}
+
+	/**
+	 * the parallel conversion, with the size of the sequential ranges
+	 * given so small inputs can be made to split too
+	 */
+	static String convertInfixToPostfix(String infix, ForkJoinPool pool, int leafSize) {
+		Converter converter = new Converter(infix, leafSize, pool.getParallelism());
+		Summary summary = pool.invoke(converter.new SummaryTask(0, infix.length()));
+
+		//function calls are beyond this parser, and infix is too long for Notation
+		if(summary.functions) {
+			IncrementalNotation incremental = new IncrementalNotation();
+			incremental.append(infix);
+			return incremental.getPostfix();
+		}
+
+		//the same checks, in the same order, as the sequential algorithm
+		if(summary.minDepth < 0 || summary.delta > 0)
+			throw new InvalidNotationFormatException("ERROR: Unbalanced Parentheses");
+
+		if(summary.operators > summary.operands - 1)
+			throw new InvalidNotationFormatException("ERROR: Too many operators");
+
+		if(summary.operators < summary.operands - 1)
+			throw new InvalidNotationFormatException("ERROR: not enough operators");
+
+		char[] postfix = new char[summary.operands + summary.operators];
+		pool.invoke(converter.new ConvertTask(0, infix.length(), 0, 0, postfix));
+		return new String(postfix);
+	}
+
+	/**
+	 * what the first pass learns about a range of the input
+	 */
+	private static final class Summary {
+		//the change in depth across the range
+		private int delta;
+		//the lowest depth reached, relative to the start of the range
+		private int minDepth;
+		private int operands;
+		private int operators;
+		private boolean functions;
+
+		/**
+		 * @return this range followed by next
+		 */
+		private Summary then(Summary next) {
+			Summary combined = new Summary();
+			combined.delta = delta + next.delta;
+			combined.minDepth = Math.min(minDepth, delta + next.minDepth);
+			combined.operands = operands + next.operands;
+			combined.operators = operators + next.operators;
+			combined.functions = functions || next.functions;
+			return combined;
+		}
+	}
+
+	/**
+	 * the operators of the lowest precedence found at depth 0 of a range,
+	 * each with the number of operands and operators before it in the range
+	 */
+	private static final class Splits {
+		private int precedence = Integer.MAX_VALUE;
+		private boolean rightAssociative;
+		private int[] positions = new int[8];
+		private int[] countsBefore = new int[8];
+		private int size;
+		//the number of operands and operators before the end of the range
+		private int total;
+
+		private void add(int position, int countBefore) {
+			if(size == positions.length) {
+				positions = Arrays.copyOf(positions, 2 * size);
+				countsBefore = Arrays.copyOf(countsBefore, 2 * size);
+			}
+			positions[size] = position;
+			countsBefore[size] = countBefore;
+			size++;
+		}
+
+		/**
+		 * @return the splits of this range followed by the ones of next,
+		 * whose counts are already relative to the start of this range
+		 */
+		private Splits then(Splits next) {
+			if(next.precedence < precedence)
+				return next;
+			if(next.precedence == precedence) {
+				for(int index = 0; index < next.size; index++)
+					add(next.positions[index], next.countsBefore[index]);
+			}
+			total = next.total;
+			return this;
+		}
+	}
+
+	/**
+	 * the state shared by every task of one conversion
+	 */
+	private static final class Converter {
+		private final String infix;
+		private final int leafSize;
+		private final int parallelism;
+
+		private Converter(String infix, int leafSize, int parallelism) {
+			this.infix = infix;
+			this.leafSize = leafSize;
+			this.parallelism = parallelism;
+		}
+
+		private byte classOf(char character) {
+			if(Character.isDigit(character))
+				return DIGIT;
+			if(Notation.STANDARD_OPERATORS.operator(character) != null)
+				return OPERATOR;
+			if(character == '(')
+				return OPEN;
+			if(character == ')')
+				return CLOSE;
+			if(character == ',' || Character.isLetter(character))
+				return FUNCTION;
+			return SKIP;
+		}
+
+		private OperatorRegistry.Operator operatorAt(int index) {
+			return Notation.STANDARD_OPERATORS.operator(infix.charAt(index));
+		}
+
+		/**
+		 * @return the summary of [start, end), worked out sequentially
+		 */
+		private Summary summarize(int start, int end) {
+			Summary summary = new Summary();
+			int depth = 0;
+			for(int index = start; index < end; index++) {
+				switch(classOf(infix.charAt(index))) {
+					case DIGIT:
+						summary.operands++;
+						break;
+					case OPERATOR:
+						summary.operators++;
+						break;
+					case OPEN:
+						depth++;
+						break;
+					case CLOSE:
+						depth--;
+						summary.minDepth = Math.min(summary.minDepth, depth);
+						break;
+					case FUNCTION:
+						summary.functions = true;
+						break;
+					default:
+						break;
+				}
+			}
+			summary.delta = depth;
+			return summary;
+		}
+
+		/**
+		 * summarizes a range by halving it until the halves are short
+		 */
+		private final class SummaryTask extends RecursiveTask<Summary> {
+			private static final long serialVersionUID = 1L;
+			private final int start;
+			private final int end;
+
+			private SummaryTask(int start, int end) {
+				this.start = start;
+				this.end = end;
+			}
+
+			protected Summary compute() {
+				if(end - start <= leafSize)
+					return summarize(start, end);
+				int middle = (start + end) >>> 1;
+				SummaryTask right = new SummaryTask(middle, end);
+				right.fork();
+				Summary left = new SummaryTask(start, middle).compute();
+				return left.then(right.join());
+			}
+		}
+
+		/**
+		 * finds the splits of one chunk of a range
+		 */
+		private final class SplitsTask extends RecursiveTask<Splits> {
+			private static final long serialVersionUID = 1L;
+			private final int start;
+			private final int end;
+			private final int startDepth;
+			private final int startCount;
+
+			private SplitsTask(int start, int end, int startDepth, int startCount) {
+				this.start = start;
+				this.end = end;
+				this.startDepth = startDepth;
+				this.startCount = startCount;
+			}
+
+			protected Splits compute() {
+				return findSplits(start, end, startDepth, startCount);
+			}
+		}
+
+		/**
+		 * @return the splits of [start, end) as seen from a range that is at
+		 * depth startDepth and has startCount operands and operators before it
+		 * at the start of this one
+		 */
+		private Splits findSplits(int start, int end, int startDepth, int startCount) {
+			Splits splits = new Splits();
+			int depth = startDepth;
+			int count = startCount;
+			for(int index = start; index < end; index++) {
+				switch(classOf(infix.charAt(index))) {
+					case DIGIT:
+						count++;
+						break;
+					case OPERATOR:
+						if(depth == 0) {
+							OperatorRegistry.Operator operator = operatorAt(index);
+							if(operator.getPrecedence() < splits.precedence) {
+								splits.precedence = operator.getPrecedence();
+								splits.rightAssociative = operator.isRightAssociative();
+								splits.size = 0;
+							}
+							if(operator.getPrecedence() == splits.precedence)
+								splits.add(index, count);
+						}
+						count++;
+						break;
+					case OPEN:
+						depth++;
+						break;
+					case CLOSE:
+						depth--;
+						break;
+					default:
+						break;
+				}
+			}
+			splits.total = count;
+			return splits;
+		}
+
+		/**
+		 * finds the splits of a long range in parallel. The range is cut into
+		 * chunks, a parallel pass summarizes every chunk, a prefix sum over the
+		 * summaries gives the depth and count at the start of each chunk, and a
+		 * second parallel pass finds the splits of every chunk from there
+		 */
+		private Splits findSplitsInParallel(int start, int end) {
+			int numChunks = (int) Math.min(4L * parallelism, (end - start + (long) leafSize - 1) / leafSize);
+			if(numChunks <= 1)
+				return findSplits(start, end, 0, 0);
+
+			int[] bounds = new int[numChunks + 1];
+			for(int chunk = 0; chunk <= numChunks; chunk++)
+				bounds[chunk] = (int) (start + (long) (end - start) * chunk / numChunks);
+
+			SummaryTask[] summaries = new SummaryTask[numChunks];
+			for(int chunk = 0; chunk < numChunks; chunk++)
+				summaries[chunk] = new SummaryTask(bounds[chunk], bounds[chunk + 1]);
+			ForkJoinTask.invokeAll(summaries);
+
+			int[] startDepths = new int[numChunks];
+			int[] startCounts = new int[numChunks];
+			for(int chunk = 1; chunk < numChunks; chunk++) {
+				Summary previous = summaries[chunk - 1].join();
+				startDepths[chunk] = startDepths[chunk - 1] + previous.delta;
+				startCounts[chunk] = startCounts[chunk - 1] + previous.operands + previous.operators;
+			}
+
+			SplitsTask[] chunkSplits = new SplitsTask[numChunks];
+			for(int chunk = 0; chunk < numChunks; chunk++)
+				chunkSplits[chunk] = new SplitsTask(bounds[chunk], bounds[chunk + 1], startDepths[chunk], startCounts[chunk]);
+			ForkJoinTask.invokeAll(chunkSplits);
+
+			Splits splits = chunkSplits[0].join();
+			for(int chunk = 1; chunk < numChunks; chunk++)
+				splits = splits.then(chunkSplits[chunk].join());
+			return splits;
+		}
+
+		/**
+		 * the sequential algorithm on [start, end), which must be balanced,
+		 * writing to postfix from outStart. It does no validation, the
+		 * whole expression has been validated already
+		 */
+		private void convertSequentially(int start, int end, char[] postfix, int outStart) {
+			char[] operatorStack = new char[end - start];
+			int operatorTop = -1;
+			int out = outStart;
+			for(int index = start; index < end; index++) {
+				char nextCharacter = infix.charAt(index);
+				switch(classOf(nextCharacter)) {
+					case DIGIT:
+						postfix[out++] = nextCharacter;
+						break;
+					case OPERATOR:
+						OperatorRegistry.Operator operator = operatorAt(index);
+						while(operatorTop >= 0) {
+							char topOperator = operatorStack[operatorTop];
+							int topPrecedence = topOperator == '(' ? 0
+									: Notation.STANDARD_OPERATORS.operator(topOperator).getPrecedence();
+							if(topPrecedence < operator.getPrecedence()
+									|| (topPrecedence == operator.getPrecedence() && operator.isRightAssociative()))
+								break;
+							postfix[out++] = operatorStack[operatorTop--];
+						}
+						operatorStack[++operatorTop] = nextCharacter;
+						break;
+					case OPEN:
+						operatorStack[++operatorTop] = nextCharacter;
+						break;
+					case CLOSE:
+						char topOperator = operatorStack[operatorTop--];
+						while(topOperator != '(') {
+							postfix[out++] = topOperator;
+							topOperator = operatorStack[operatorTop--];
+						}
+						break;
+					default:
+						break;
+				}
+			}
+			while(operatorTop >= 0)
+				postfix[out++] = operatorStack[operatorTop--];
+		}
+
+		/**
+		 * converts a balanced range of the input into postfix[outStart, ...),
+		 * it writes exactly the range's operands and operators
+		 */
+		private final class ConvertTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private final int start;
+			private final int end;
+			private final int outStart;
+			private final int level;
+			private final char[] postfix;
+
+			private ConvertTask(int start, int end, int outStart, int level, char[] postfix) {
+				this.start = start;
+				this.end = end;
+				this.outStart = outStart;
+				this.level = level;
+				this.postfix = postfix;
+			}
+
+			protected void compute() {
+				if(end - start <= leafSize || level >= MAX_LEVELS) {
+					convertSequentially(start, end, postfix, outStart);
+					return;
+				}
+
+				Splits splits = end - start > 4L * leafSize ? findSplitsInParallel(start, end) : findSplits(start, end, 0, 0);
+				if(splits.size == 0)
+					convertGroups();
+				else
+					invokeAll(new PiecesTask(this, splits, 0, splits.size + 1));
+			}
+
+			/**
+			 * a range with no operators at depth 0 is a row of operands and
+			 * parenthesized groups, each group is converted as a range of its own
+			 */
+			private void convertGroups() {
+				ArrayList<ConvertTask> groups = new ArrayList<>();
+				int depth = 0;
+				int groupStart = 0;
+				int groupOut = 0;
+				int out = outStart;
+				for(int index = start; index < end; index++) {
+					char nextCharacter = infix.charAt(index);
+					switch(classOf(nextCharacter)) {
+						case DIGIT:
+							if(depth == 0)
+								postfix[out] = nextCharacter;
+							out++;
+							break;
+						case OPERATOR:
+							out++;
+							break;
+						case OPEN:
+							if(depth++ == 0) {
+								groupStart = index + 1;
+								groupOut = out;
+							}
+							break;
+						case CLOSE:
+							if(--depth == 0)
+								groups.add(new ConvertTask(groupStart, index, groupOut, level + 1, postfix));
+							break;
+						default:
+							break;
+					}
+				}
+				invokeAll(groups);
+			}
+		}
+
+		/**
+		 * converts pieces from to to - 1 of a range split at splits, and
+		 * writes the split operators that belong after them
+		 */
+		private final class PiecesTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private final ConvertTask range;
+			private final Splits splits;
+			private final int from;
+			private final int to;
+
+			private PiecesTask(ConvertTask range, Splits splits, int from, int to) {
+				this.range = range;
+				this.splits = splits;
+				this.from = from;
+				this.to = to;
+			}
+
+			private int pieceStart(int piece) {
+				return piece == 0 ? range.start : splits.positions[piece - 1] + 1;
+			}
+
+			private int pieceEnd(int piece) {
+				return piece == splits.size ? range.end : splits.positions[piece];
+			}
+
+			/**
+			 * @return the number of operands and operators in the range before the end of a piece
+			 */
+			private int countBeforeEnd(int piece) {
+				return piece == splits.size ? splits.total : splits.countsBefore[piece];
+			}
+
+			protected void compute() {
+				if(to - from > 1 && pieceEnd(to - 1) - pieceStart(from) > leafSize) {
+					int middle = (from + to) >>> 1;
+					invokeAll(new PiecesTask(range, splits, from, middle), new PiecesTask(range, splits, middle, to));
+					return;
+				}
+
+				for(int piece = from; piece < to; piece++) {
+					int pieceOut;
+					if(splits.rightAssociative) {
+						/*
+						 * a right associative operator never pops one of its own
+						 * precedence, so every split operator comes out at the end,
+						 * the last one first. Each piece moves forward by the number
+						 * of operators before it
+						 */
+						pieceOut = piece == 0 ? 0 : splits.countsBefore[piece - 1] + 1 - piece;
+						if(piece > 0)
+							range.postfix[range.outStart + splits.total - piece] = infix.charAt(splits.positions[piece - 1]);
+					}
+					else {
+						/*
+						 * a left associative operator is popped by the next one of its
+						 * precedence, or at the end, so it comes out right after the
+						 * piece that follows it, which moves forward by one
+						 */
+						pieceOut = piece == 0 ? 0 : splits.countsBefore[piece - 1];
+						if(piece > 0)
+							range.postfix[range.outStart + countBeforeEnd(piece) - 1] = infix.charAt(splits.positions[piece - 1]);
+					}
+					new ConvertTask(pieceStart(piece), pieceEnd(piece), range.outStart + pieceOut, range.level + 1, range.postfix).compute();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evaluates a postfix expression using the common fork/join pool
+	 * @param postfixExpr a string representing a postfix expression
+	 * @return a double representing the postfix expression's value
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public static double evaluatePostfixExpression(String postfixExpr) {
+		return evaluatePostfixExpression(postfixExpr, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates a postfix expression using the threads of pool
+	 * @param postfixExpr a string representing a postfix expression
+	 * @param pool the pool to run the evaluation on
+	 * @return a double representing the postfix expression's value
+	 * @throws InvalidNotationFormatException if the postfix expression is
+	 * invalid in anyway.
+	 */
+	public static double evaluatePostfixExpression(String postfixExpr, ForkJoinPool pool) {
+		if(postfixExpr.length() <= MyStack.MAX_CAPACITY)
+			return Notation.evaluatePostfixExpression(postfixExpr);
+		return evaluatePostfixExpression(postfixExpr, pool, SUBTREE_THRESHOLD);
+	}
+
+	/**
+	 * the parallel evaluation, with the subtree threshold given so small
+	 * inputs can be made to fork too
+	 */
+	static double evaluatePostfixExpression(String postfixExpr, ForkJoinPool pool, int threshold) {
+		ExpressionTree tree = new ExpressionTree(postfixExpr.length());
+		int index = 0;
+		while(index < postfixExpr.length()) {
+			char nextCharacter = postfixExpr.charAt(index);
+			if(Character.isDigit(nextCharacter))
+				tree.addOperand(Character.digit(nextCharacter, 10));
+			else if(Notation.STANDARD_OPERATORS.operator(nextCharacter) != null)
+				tree.addOperator(nextCharacter);
+			else if(nextCharacter == '(' || nextCharacter == ')')
+				throw new InvalidNotationFormatException("ERROR: postfix should not have any parentheses");
+			else if(Character.isLetter(nextCharacter)) {
+				OperatorRegistry.Function function = Notation.functionAt(postfixExpr, index, Notation.STANDARD_OPERATORS);
+				long call = Notation.readFunctionCall(postfixExpr, index + function.getName().length(), function);
+				tree.addCall(function, (int) call);
+				index = (int) (call >>> 32);
+				continue;
+			}
+			index++;
+		}
+
+		//an empty expression underflows the stack, the same as in Notation
+		if(tree.depth == 0)
+			throw new StackUnderflowException();
+		if(tree.depth > 1)
+			throw new InvalidNotationFormatException("ERROR: Too many operands");
+
+		return pool.invoke(tree.new EvaluationTask(tree.size - 1, threshold));
+	}
+
+	/**
+	 * an expression tree stored as its postfix tokens. The subtree rooted
+	 * at a token is the tokens from start[token] up to it. The last child
+	 * of an operator or call is the token just before it, and every other
+	 * child is the token just before the subtree of the child after it
+	 */
+	private static final class ExpressionTree {
+		private final char[] operators;
+		private final double[] operands;
+		//the function and number of arguments of each call token, null and 0 for the rest
+		private final OperatorRegistry.Function[] functions;
+		private final int[] arguments;
+		private final int[] start;
+		private int size;
+		//the number of values a sequential evaluation would have on its stack
+		private int depth;
+
+		private ExpressionTree(int capacity) {
+			operators = new char[capacity];
+			operands = new double[capacity];
+			functions = new OperatorRegistry.Function[capacity];
+			arguments = new int[capacity];
+			start = new int[capacity];
+		}
+
+		private void addOperand(double value) {
+			operands[size] = value;
+			start[size] = size;
+			size++;
+			depth++;
+		}
+
+		/**
+		 * @throws InvalidNotationFormatException if there aren't two subtrees
+		 * for the operator, the same place Notation finds too few operands
+		 */
+		private void addOperator(char operator) {
+			if(depth < 2)
+				throw new InvalidNotationFormatException("ERROR: too few operands");
+			operators[size] = operator;
+			arguments[size] = 2;
+			start[size] = start[start[size - 1] - 1];
+			size++;
+			depth--;
+		}
+
+		/**
+		 * @throws InvalidNotationFormatException if there aren't enough
+		 * subtrees for the call's arguments, the same place Notation finds
+		 * too few operands
+		 */
+		private void addCall(OperatorRegistry.Function function, int count) {
+			if(depth < count)
+				throw new InvalidNotationFormatException("ERROR: too few operands");
+			int first = size - 1;
+			for(int argument = 1; argument < count; argument++)
+				first = start[first] - 1;
+			functions[size] = function;
+			arguments[size] = count;
+			start[size] = start[first];
+			size++;
+			depth -= count - 1;
+		}
+
+		private int sizeOf(int node) {
+			return node - start[node] + 1;
+		}
+
+		private boolean isOperand(int node) {
+			return arguments[node] == 0;
+		}
+
+		/**
+		 * puts the roots of a node's children into children, first child first
+		 * @return children, grown if it was too short
+		 */
+		private int[] childrenOf(int node, int[] children) {
+			int count = arguments[node];
+			if(children.length < count)
+				children = new int[Math.max(count, 2 * children.length)];
+			int child = node - 1;
+			for(int index = count - 1; index >= 0; index--) {
+				children[index] = child;
+				child = start[child] - 1;
+			}
+			return children;
+		}
+
+		/**
+		 * applies the operator or call at node to its children's values
+		 */
+		private double apply(int node, double[] values, int offset) {
+			if(functions[node] != null)
+				return functions[node].apply(values, offset, arguments[node]);
+			return Notation.calculate(values[offset], operators[node], values[offset + 1]);
+		}
+
+		/**
+		 * evaluates a subtree the way Notation would, on values, which must
+		 * have room for the subtree's tokens
+		 */
+		private double evaluateSequentially(int node, double[] values) {
+			int topIndex = -1;
+			for(int token = start[node]; token <= node; token++) {
+				if(isOperand(token))
+					values[++topIndex] = operands[token];
+				else {
+					topIndex -= arguments[token] - 1;
+					values[topIndex] = apply(token, values, topIndex);
+				}
+			}
+			return values[0];
+		}
+
+		/**
+		 * evaluates a subtree, forking where more than one child is big
+		 */
+		private final class EvaluationTask extends RecursiveTask<Double> {
+			private static final long serialVersionUID = 1L;
+			private final int root;
+			private final int threshold;
+
+			private EvaluationTask(int root, int threshold) {
+				this.root = root;
+				this.threshold = threshold;
+			}
+
+			protected Double compute() {
+				//every small subtree of this task is evaluated on this one stack
+				double[] buffer = new double[Math.min(threshold, sizeOf(root))];
+				int[] children = new int[2];
+
+				/*
+				 * walk down while at most one child is big, evaluating the small
+				 * ones sequentially. The walk is a loop, not recursion, so a long
+				 * chain like 1+2+3+... can't overflow the call stack. It remembers
+				 * each node, the child it went on to and the small values to apply
+				 * them on the way back up
+				 */
+				int[] spine = new int[8];
+				int[] taken = new int[8];
+				int[] smallStart = new int[8];
+				double[] smallValues = new double[8];
+				int spineLength = 0;
+				int numSmall = 0;
+				int node = root;
+				double value;
+				while(true) {
+					if(sizeOf(node) <= threshold) {
+						value = evaluateSequentially(node, buffer);
+						break;
+					}
+					children = childrenOf(node, children);
+					int count = arguments[node];
+					int big = -1;
+					int numBig = 0;
+					for(int child = 0; child < count; child++) {
+						if(sizeOf(children[child]) > threshold) {
+							big = child;
+							numBig++;
+						}
+					}
+					if(numBig > 1) {
+						value = evaluateForking(node, children, buffer);
+						break;
+					}
+
+					//with no big child any one will do, the last is as good as the rest
+					if(big < 0)
+						big = count - 1;
+					if(spineLength == spine.length) {
+						spine = Arrays.copyOf(spine, 2 * spineLength);
+						taken = Arrays.copyOf(taken, 2 * spineLength);
+						smallStart = Arrays.copyOf(smallStart, 2 * spineLength);
+					}
+					if(numSmall + count > smallValues.length)
+						smallValues = Arrays.copyOf(smallValues, Math.max(numSmall + count, 2 * smallValues.length));
+					spine[spineLength] = node;
+					taken[spineLength] = big;
+					smallStart[spineLength] = numSmall;
+					spineLength++;
+					//the small values are kept in argument order with a gap for the big one
+					for(int child = 0; child < count; child++) {
+						if(child != big)
+							smallValues[numSmall] = evaluateSequentially(children[child], buffer);
+						numSmall++;
+					}
+					node = children[big];
+				}
+
+				while(spineLength > 0) {
+					spineLength--;
+					int parent = spine[spineLength];
+					numSmall = smallStart[spineLength];
+					smallValues[numSmall + taken[spineLength]] = value;
+					value = apply(parent, smallValues, numSmall);
+				}
+				return value;
+			}
+
+			/**
+			 * evaluates a node with more than one big child, each big child
+			 * but the last in a task of its own
+			 */
+			private double evaluateForking(int node, int[] children, double[] buffer) {
+				int count = arguments[node];
+				double[] values = new double[count];
+				EvaluationTask[] tasks = new EvaluationTask[count];
+				int last = -1;
+				for(int child = 0; child < count; child++) {
+					if(sizeOf(children[child]) > threshold) {
+						if(last >= 0) {
+							tasks[last] = new EvaluationTask(children[last], threshold);
+							tasks[last].fork();
+						}
+						last = child;
+					}
+					else
+						values[child] = evaluateSequentially(children[child], buffer);
+				}
+				values[last] = new EvaluationTask(children[last], threshold).compute();
+				for(int child = 0; child < count; child++) {
+					if(tasks[child] != null)
+						values[child] = tasks[child].join();
+				}
+				return apply(node, values, 0);
+			}
+		}
+	}
+}
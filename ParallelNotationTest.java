@@ -0,0 +1,233 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelNotationTest {
+	private static ForkJoinPool pool;
+
+	@BeforeClass
+	public static void setUpClass() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		pool.shutdown();
+	}
+
+	private static String outcome(java.util.function.Supplier<String> conversion) {
+		try {
+			return conversion.get();
+		} catch(InvalidNotationFormatException e) {
+			return e.getMessage();
+		}
+	}
+
+	/**
+	 * builds a random valid expression of about size characters
+	 */
+	private static void randomExpression(Random random, StringBuilder infix, int size) {
+		randomExpression(random, infix, size, false);
+	}
+
+	/**
+	 * builds a random valid expression of about size characters, with
+	 * function calls in it if calls is true
+	 */
+	private static void randomExpression(Random random, StringBuilder infix, int size, boolean calls) {
+		if(size <= 1) {
+			infix.append((char) ('0' + random.nextInt(10)));
+			return;
+		}
+		if(calls && random.nextInt(4) == 0) {
+			//a call of one to three arguments that share the size
+			String[] names = {"max", "min", "abs", "sqrt"};
+			String name = names[random.nextInt(names.length)];
+			int count = name.length() == 3 && name.charAt(0) == 'm' ? 1 + random.nextInt(Math.min(3, size)) : 1;
+			infix.append(name).append('(');
+			for(int argument = 0; argument < count; argument++) {
+				if(argument > 0)
+					infix.append(',');
+				randomExpression(random, infix, Math.max(1, (size - 1) / count), calls);
+			}
+			infix.append(')');
+			return;
+		}
+		boolean parenthesized = random.nextInt(3) == 0;
+		if(parenthesized)
+			infix.append('(');
+		int left = 1 + random.nextInt(size - 1);
+		randomExpression(random, infix, left, calls);
+		infix.append("+-*/%^".charAt(random.nextInt(6)));
+		if(random.nextInt(8) == 0)
+			infix.append(' ');
+		randomExpression(random, infix, size - left, calls);
+		if(parenthesized)
+			infix.append(')');
+	}
+
+	@Test
+	public void testMatchesNotation() {
+		Random random = new Random(42);
+		String alphabet = "0123456789+-*/%^()  ";
+		String callAlphabet = "0123456789+*^(),max ";
+		for(int round = 0; round < 20000; round++) {
+			String infix;
+			if(round % 4 == 3) {
+				//function calls, which are converted another way
+				StringBuilder builder = new StringBuilder();
+				int length = random.nextInt(40);
+				for(int index = 0; index < length; index++)
+					builder.append(callAlphabet.charAt(random.nextInt(callAlphabet.length())));
+				infix = random.nextBoolean() ? builder.toString() : "max(" + builder + ",2)";
+			}
+			else if(round % 2 == 0) {
+				StringBuilder builder = new StringBuilder();
+				randomExpression(random, builder, 1 + random.nextInt(60));
+				infix = builder.toString();
+			}
+			else {
+				//mostly invalid text, to compare the validation
+				StringBuilder builder = new StringBuilder();
+				int length = random.nextInt(40);
+				for(int index = 0; index < length; index++)
+					builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+				infix = builder.toString();
+			}
+			String expected = outcome(() -> Notation.convertInfixToPostfix(infix));
+			for(int leafSize : new int[] {1, 3, 16}) {
+				String actual = outcome(() -> ParallelNotation.convertInfixToPostfix(infix, pool, leafSize));
+				assertEquals(infix, expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void testLargeExpression() {
+		Random random = new Random(7);
+		StringBuilder builder = new StringBuilder();
+		randomExpression(random, builder, 200000);
+		String infix = builder.toString();
+		assertTrue(infix.length() > MyStack.MAX_CAPACITY);
+
+		//a leaf as big as the whole input is the plain sequential algorithm
+		String sequential = ParallelNotation.convertInfixToPostfix(infix, pool, Integer.MAX_VALUE);
+		assertEquals(sequential, ParallelNotation.convertInfixToPostfix(infix, pool));
+		assertEquals(sequential, ParallelNotation.convertInfixToPostfix(infix, pool, 64));
+
+		//a long flat chain and one deep nest
+		String chain = "1" + "+2*3".repeat(50000);
+		assertEquals("1" + "23*+".repeat(50000), ParallelNotation.convertInfixToPostfix(chain, pool));
+		String nest = "(".repeat(30000) + "1" + "^2)".repeat(30000);
+		assertEquals("1" + "2^".repeat(30000), ParallelNotation.convertInfixToPostfix(nest, pool));
+		String power = "2" + "^1".repeat(30000);
+		assertEquals("2" + "1".repeat(30000) + "^".repeat(30000), ParallelNotation.convertInfixToPostfix(power, pool));
+
+		//function calls in an expression too long for Notation
+		String call = "max(1,2)" + "+1".repeat(6000);
+		assertTrue(call.length() > MyStack.MAX_CAPACITY);
+		assertEquals("12max[2]" + "1+".repeat(6000), ParallelNotation.convertInfixToPostfix(call, pool));
+		try {
+			ParallelNotation.convertInfixToPostfix(call + "+foo(1)", pool);
+			fail("unknown function");
+		} catch(InvalidNotationFormatException e) {
+			assertEquals("ERROR: unknown function foo", e.getMessage());
+		}
+
+		try {
+			ParallelNotation.convertInfixToPostfix(infix + ")", pool);
+			fail("unbalanced");
+		} catch(InvalidNotationFormatException e) {
+			assertEquals("ERROR: Unbalanced Parentheses", e.getMessage());
+		}
+		try {
+			ParallelNotation.convertInfixToPostfix(infix + "+", pool);
+			fail("too many operators");
+		} catch(InvalidNotationFormatException e) {
+			assertEquals("ERROR: Too many operators", e.getMessage());
+		}
+	}
+
+	private static String evaluation(String postfix, java.util.function.DoubleSupplier evaluation) {
+		try {
+			return String.valueOf(evaluation.getAsDouble());
+		} catch(InvalidNotationFormatException | StackUnderflowException e) {
+			return e.getClass().getSimpleName() + e.getMessage();
+		}
+	}
+
+	@Test
+	public void testEvaluationMatchesNotation() {
+		Random random = new Random(11);
+		String alphabet = "0123456789+-*/%^  ";
+		for(int round = 0; round < 20000; round++) {
+			String postfix;
+			if(round % 2 == 0) {
+				StringBuilder builder = new StringBuilder();
+				randomExpression(random, builder, 1 + random.nextInt(60), random.nextBoolean());
+				postfix = Notation.convertInfixToPostfix(builder.toString());
+			}
+			else {
+				StringBuilder builder = new StringBuilder();
+				int length = random.nextInt(30);
+				for(int index = 0; index < length; index++)
+					builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+				postfix = builder.toString();
+			}
+			String expected = evaluation(postfix, () -> Notation.evaluatePostfixExpression(postfix));
+			for(int threshold : new int[] {1, 3, 16}) {
+				String actual = evaluation(postfix, () -> ParallelNotation.evaluatePostfixExpression(postfix, pool, threshold));
+				assertEquals(postfix, expected, actual);
+			}
+		}
+		assertEquals(evaluation("(12+)", () -> Notation.evaluatePostfixExpression("(12+)")),
+				evaluation("(12+)", () -> ParallelNotation.evaluatePostfixExpression("(12+)", pool, 1)));
+	}
+
+	@Test
+	public void testLargeEvaluation() {
+		Random random = new Random(13);
+		StringBuilder builder = new StringBuilder();
+		randomExpression(random, builder, 200000);
+		String postfix = ParallelNotation.convertInfixToPostfix(builder.toString(), pool);
+
+		//a threshold as big as the whole expression is the plain sequential algorithm
+		double sequential = ParallelNotation.evaluatePostfixExpression(postfix, pool, Integer.MAX_VALUE);
+		assertEquals(Double.doubleToLongBits(sequential), Double.doubleToLongBits(ParallelNotation.evaluatePostfixExpression(postfix, pool)));
+		assertEquals(Double.doubleToLongBits(sequential), Double.doubleToLongBits(ParallelNotation.evaluatePostfixExpression(postfix, pool, 64)));
+
+		//a long chain in both directions
+		assertEquals(1 + 50000 * 6, ParallelNotation.evaluatePostfixExpression("1" + "23*+".repeat(50000), pool, 16), .001);
+		assertEquals(1, ParallelNotation.evaluatePostfixExpression("1".repeat(50001) + "*".repeat(50000), pool, 16), .001);
+
+		//function calls in an expression too long for Notation
+		String call = "12max[2]" + "1+".repeat(6000);
+		assertTrue(call.length() > MyStack.MAX_CAPACITY);
+		assertEquals(6002, ParallelNotation.evaluatePostfixExpression(call, pool), .001);
+		assertEquals(6002, ParallelNotation.evaluatePostfixExpression(call, pool, 16), .001);
+		try {
+			ParallelNotation.evaluatePostfixExpression(call + "1max[3]", pool);
+			fail("too few operands");
+		} catch(InvalidNotationFormatException e) {
+			assertEquals("ERROR: too few operands", e.getMessage());
+		}
+
+		//calls whose arguments are big enough to be forked, and long chains of calls
+		builder.setLength(0);
+		randomExpression(new Random(17), builder, 200000, true);
+		postfix = ParallelNotation.convertInfixToPostfix(builder.toString(), pool);
+		sequential = ParallelNotation.evaluatePostfixExpression(postfix, pool, Integer.MAX_VALUE);
+		assertEquals(Double.doubleToLongBits(sequential), Double.doubleToLongBits(ParallelNotation.evaluatePostfixExpression(postfix, pool)));
+		assertEquals(Double.doubleToLongBits(sequential), Double.doubleToLongBits(ParallelNotation.evaluatePostfixExpression(postfix, pool, 64)));
+		String big = "1+".repeat(20000) + "1";
+		String calls = "max(" + big + "," + big + "," + big + ")";
+		assertEquals(20001, ParallelNotation.evaluatePostfixExpression(ParallelNotation.convertInfixToPostfix(calls, pool), pool, 64), .001);
+		String nested = "sqrt(".repeat(20000) + "1" + ")".repeat(20000);
+		assertEquals(1, ParallelNotation.evaluatePostfixExpression(ParallelNotation.convertInfixToPostfix(nested, pool), pool, 64), .001);
+	}
+}
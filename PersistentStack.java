@@ -0,0 +1,141 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * a class that implements a generic immutable Stack. push and pop never
+ * change a stack, they return a new one that shares every node below the
+ * top with the old one, so both are O(1) and keeping an old version around
+ * (a snapshot) costs nothing. Memory only grows with the number of pushes
+ * that are still reachable from some version.
+ *
+ * It has the same operations as StackInterface but can't implement it,
+ * since StackInterface changes the stack in place. SnapshotStack wraps it
+ * for code that needs a StackInterface.
+ * @author Christopher Perez Lebron
+ *
+ * @param <T> a generic type representing any object type
+ */
+public final class PersistentStack<T> implements Iterable<T> {
+	private static final PersistentStack<Object> EMPTY = new PersistentStack<>(null, null, 0);
+
+	private final T top;
+	private final PersistentStack<T> rest;
+	private final int size;
+
+	private PersistentStack(T top, PersistentStack<T> rest, int size) {
+		this.top = top;
+		this.rest = rest;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the empty stack, every empty stack is the same object
+	 * @return an empty stack
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> PersistentStack<T> empty() {
+		return (PersistentStack<T>) EMPTY;
+	}
+
+	/**
+	 * Returns a stack with newEntry on top of this one. This stack is not changed
+	 * @param newEntry the element to add to the top
+	 * @return the new stack
+	 */
+	public PersistentStack<T> push(T newEntry) {
+		return new PersistentStack<>(newEntry, this, size + 1);
+	}
+
+	/**
+	 * Returns this stack without its top element. This stack is not changed
+	 * @return the stack below the top element
+	 * @throws StackUnderflowException if stack is empty
+	 */
+	public PersistentStack<T> pop() throws StackUnderflowException {
+		if(isEmpty())
+			throw new StackUnderflowException();
+		return rest;
+	}
+
+	/**
+	 * Returns the element at the top of the Stack
+	 * @return the element at the top of the Stack
+	 * @throws StackUnderflowException if stack is empty
+	 */
+	public T top() throws StackUnderflowException {
+		if(isEmpty())
+			throw new StackUnderflowException();
+		return top;
+	}
+
+	/**
+	 * Determines if Stack is empty
+	 * @return true if Stack is empty, false if not
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Number of elements in the Stack
+	 * @return the number of elements in the Stack
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the elements of the Stack in a string from bottom to top, the beginning
+	 * of the String is the bottom of the stack
+	 * @return an string which represent the Objects in the Stack from bottom to top
+	 */
+	public String toString() {
+		return toString("");
+	}
+
+	/**
+	 * Returns the string representation of the elements in the Stack, the beginning of the
+	 * string is the bottom of the stack
+	 * Place the delimiter between all elements of the Stack
+	 * @return string representation of the Stack from bottom to top with elements
+	 * separated with the delimiter
+	 */
+	public String toString(String delimiter) {
+		//the nodes are linked from the top down, so collect them before printing bottom up
+		Object[] elements = new Object[size];
+		int index = size - 1;
+		for(T element : this)
+			elements[index--] = element;
+
+		StringBuilder stackStr = new StringBuilder();
+		for(int count = 0; count < size; count++) {
+			if(count != 0)
+				stackStr.append(delimiter);
+			stackStr.append(elements[count]);
+		}
+		return stackStr.toString();
+	}
+
+	/**
+	 * Returns an iterator over the Stack from top to bottom. The stack can't
+	 * change, so the iterator never needs to check for modification
+	 * @return an iterator over the Stack from top to bottom
+	 */
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private PersistentStack<T> current = PersistentStack.this;
+
+			public boolean hasNext() {
+				return !current.isEmpty();
+			}
+
+			public T next() {
+				if(current.isEmpty())
+					throw new NoSuchElementException();
+				T element = current.top;
+				current = current.rest;
+				return element;
+			}
+		};
+	}
+}
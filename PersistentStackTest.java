@@ -0,0 +1,67 @@
+ 
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistentStackTest {
+	public PersistentStack<String> stringS;
+	public String a="a", b="b", c="c", d="d";
+
+	@Before
+	public void setUp() throws Exception {
+		stringS = PersistentStack.<String>empty().push(a).push(b).push(c);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stringS = null;
+	}
+
+	@Test
+	public void testPushAndPopLeaveOldVersions() {
+		PersistentStack<String> pushed = stringS.push(d);
+		PersistentStack<String> popped = stringS.pop();
+		assertEquals("abc", stringS.toString());
+		assertEquals("abcd", pushed.toString());
+		assertEquals("a,b", popped.toString(","));
+		
+		//both new versions share the nodes below them with the original
+		assertSame(stringS, pushed.pop());
+		assertSame(popped, stringS.pop());
+		assertEquals(3, stringS.size());
+	}
+
+	@Test
+	public void testPopUnderflow() {
+		try {
+			PersistentStack.empty().pop();
+			assertTrue("This should have caused an StackUnderflowException", false);
+		}
+		catch (StackUnderflowException e){
+			assertTrue("This should have caused an StackUnderflowException", true);
+		}
+	}
+
+	@Test
+	public void testSnapshotStack() {
+		SnapshotStack<String> undo = new SnapshotStack<String>();
+		ArrayList<String> fill = new ArrayList<String>();
+		fill.add(a);
+		fill.add(b);
+		undo.fill(fill);
+		PersistentStack<String> saved = undo.snapshot();
+		
+		undo.push(c);
+		undo.pop();
+		undo.pop();
+		assertEquals("a", undo.toString());
+		
+		undo.restore(saved);
+		assertEquals("ab", undo.toString());
+		assertEquals("b", undo.top());
+	}
+}
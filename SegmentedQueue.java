@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+
+/**
+ * a class that implements a generic, unbounded ADT Queue as a linked list
+ * of fixed size array segments.
+ *
+ * enqueue writes into the last segment and links a new one on when it is
+ * full, dequeue reads from the first segment and unlinks it when it has
+ * been used up. Nothing is ever copied or resized, so every operation
+ * takes the same constant time however big the Queue gets. Segments that
+ * are unlinked go into a small pool and are reused before a new one is
+ * allocated, so a Queue whose size goes up and down stays allocation free.
+ * @author Christopher Perez Lebron
+ *
+ * @param <T> a generic type representing any object type
+ */
+public final class SegmentedQueue<T> implements QueueInterface<T> {
+	private static final int DEFAULT_SEGMENT_SIZE = 1024;
+	private static final int POOL_SIZE = 4;
+
+	private final int segmentSize;
+	//released segments, all of their slots are already null
+	private final MyStack<Segment> pool = new MyStack<>(POOL_SIZE);
+
+	private Segment head;
+	private int frontIndex;
+	private Segment tail;
+	private int backIndex;
+	private int numEntries;
+
+	/**
+	 * a block of slots plus the link to the next block
+	 */
+	private static final class Segment {
+		private final Object[] slots;
+		private Segment next;
+
+		private Segment(int segmentSize) {
+			slots = new Object[segmentSize];
+		}
+	}
+
+	public SegmentedQueue() {
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param segmentSize the number of slots in each segment
+	 * @throws IllegalArgumentException if segmentSize is less than one
+	 */
+	public SegmentedQueue(int segmentSize) {
+		if(segmentSize < 1)
+			throw new IllegalArgumentException();
+		this.segmentSize = segmentSize;
+		head = tail = new Segment(segmentSize);
+		frontIndex = 0;
+		backIndex = 0;
+		numEntries = 0;
+	}
+
+	/**
+	 * takes a segment from the pool, or allocates one if the pool is empty
+	 */
+	private Segment obtainSegment() {
+		if(pool.isEmpty())
+			return new Segment(segmentSize);
+		Segment segment = pool.pop();
+		segment.next = null;
+		return segment;
+	}
+
+	/**
+	 * gives a used up segment back to the pool, if the pool is full the
+	 * segment is left for the garbage collector
+	 */
+	private void releaseSegment(Segment segment) {
+		segment.next = null;
+		if(!pool.isFull())
+			pool.push(segment);
+	}
+
+	/**
+	 * Adds a new entry to the back of this queue.
+	 * @param newEntry An object to be added.
+	 * @return true, the queue is never full
+	 */
+	public boolean enqueue(T newEntry) {
+		if(backIndex == segmentSize) {
+			Segment segment = obtainSegment();
+			tail.next = segment;
+			tail = segment;
+			backIndex = 0;
+		}
+		tail.slots[backIndex++] = newEntry;
+		numEntries++;
+		return true;
+	}
+
+	/**
+	 * Deletes and returns the element at the front of the Queue
+	 * @return the element at the front of the Queue
+	 * @throws QueueUnderflowException if queue is empty
+	 */
+	public T dequeue() throws QueueUnderflowException {
+		if(numEntries == 0)
+			throw new QueueUnderflowException();
+
+		@SuppressWarnings("unchecked")
+		T front = (T) head.slots[frontIndex];
+		head.slots[frontIndex] = null;
+		frontIndex++;
+		numEntries--;
+
+		if(frontIndex == segmentSize) {
+			//the head segment is used up, move on to the next one
+			Segment used = head;
+			if(head == tail) {
+				backIndex = 0;
+			}
+			else {
+				head = head.next;
+				releaseSegment(used);
+			}
+			frontIndex = 0;
+		}
+		else if(numEntries == 0 && head == tail) {
+			//start the segment over instead of leaving a gap at the front
+			frontIndex = 0;
+			backIndex = 0;
+		}
+		return front;
+	}
+
+	/**
+	 * Retrieves the entry at the front of this queue.
+	 * @return The object at the front of the queue.
+	 * @throws QueueUnderflowException if the queue is empty.
+	 */
+	public T getFront() throws QueueUnderflowException {
+		if(numEntries == 0)
+			throw new QueueUnderflowException();
+
+		@SuppressWarnings("unchecked")
+		T front = (T) head.slots[frontIndex];
+		return front;
+	}
+
+	/**
+	 * Determines if Queue is empty
+	 * @return true if Queue is empty, false if not
+	 */
+	public boolean isEmpty() {
+		return numEntries == 0;
+	}
+
+	/**
+	 * Determines of the Queue is Full, this Queue grows as needed so it never is
+	 * @return false
+	 */
+	public boolean isFull() {
+		return false;
+	}
+
+	/**
+	 * Returns number of elements in the Queue
+	 * @return the number of elements in the Queue
+	 */
+	public int size() {
+		return numEntries;
+	}
+
+	/**
+	 * Returns the string representation of the elements in the Queue,
+	 * the beginning of the string is the front of the queue
+	 * @return string representation of the Queue with elements
+	 */
+	public String toString() {
+		return toString("");
+	}
+
+	/**
+	 * Returns the string representation of the elements in the Queue, the beginning of the string is the front of the queue
+	 * Place the delimiter between all elements of the Queue
+	 * @return string representation of the Queue with elements separated with the delimiter
+	 */
+	public String toString(String delimiter) {
+		StringBuilder queueStr = new StringBuilder();
+		Segment segment = head;
+		int index = frontIndex;
+		for(int count = 0; count < numEntries; count++) {
+			if(index == segmentSize) {
+				segment = segment.next;
+				index = 0;
+			}
+			if(count != 0)
+				queueStr.append(delimiter);
+			queueStr.append(segment.slots[index++]);
+		}
+		return queueStr.toString();
+	}
+
+	/**
+	 * Fills the Queue with the elements of the ArrayList, First element in the ArrayList
+	 * is the first element in the Queue. The elements are copied a segment at a time
+	 * @param list elements to be added to the Queue
+	 */
+	public void fill(ArrayList<T> list) {
+		Object[] entries = list.toArray();
+		int copied = 0;
+		while(copied < entries.length) {
+			if(backIndex == segmentSize) {
+				Segment segment = obtainSegment();
+				tail.next = segment;
+				tail = segment;
+				backIndex = 0;
+			}
+			int chunk = Math.min(entries.length - copied, segmentSize - backIndex);
+			System.arraycopy(entries, copied, tail.slots, backIndex, chunk);
+			backIndex += chunk;
+			copied += chunk;
+		}
+		numEntries += entries.length;
+	}
+}
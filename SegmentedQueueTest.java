@@ -0,0 +1,71 @@
+ 
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedQueueTest {
+	public SegmentedQueue<Integer> intQ;
+
+	@Before
+	public void setUp() throws Exception {
+		//tiny segments so every test crosses segment boundaries
+		intQ = new SegmentedQueue<Integer>(3);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		intQ = null;
+	}
+
+	@Test
+	public void testFifoAcrossSegments() {
+		for(int count = 0; count < 10; count++)
+			intQ.enqueue(count);
+		assertEquals(10, intQ.size());
+		assertEquals("0123456789", intQ.toString());
+		
+		for(int count = 0; count < 7; count++)
+			assertEquals(Integer.valueOf(count), intQ.dequeue());
+		intQ.enqueue(10);
+		assertEquals("7,8,9,10", intQ.toString(","));
+		assertEquals(Integer.valueOf(7), intQ.getFront());
+	}
+
+	@Test
+	public void testInterleavedGrowAndShrink() {
+		int next = 0;
+		int expected = 0;
+		for(int round = 0; round < 50; round++) {
+			for(int count = 0; count < round % 7 + 1; count++)
+				intQ.enqueue(next++);
+			for(int count = 0; count < round % 5 + 1 && !intQ.isEmpty(); count++)
+				assertEquals(Integer.valueOf(expected++), intQ.dequeue());
+		}
+		assertEquals(next - expected, intQ.size());
+	}
+
+	@Test
+	public void testFillAndUnderflow() {
+		ArrayList<Integer> fill = new ArrayList<Integer>();
+		for(int count = 0; count < 8; count++)
+			fill.add(count);
+		intQ.enqueue(-1);
+		intQ.fill(fill);
+		assertEquals(9, intQ.size());
+		assertEquals("-1,0,1,2,3,4,5,6,7", intQ.toString(","));
+		
+		while(!intQ.isEmpty())
+			intQ.dequeue();
+		try {
+			intQ.dequeue();
+			assertTrue("This should have caused an QueueUnderflowException", false);
+		}
+		catch (QueueUnderflowException e){
+			assertTrue("This should have caused an QueueUnderflowException", true);
+		}
+	}
+}
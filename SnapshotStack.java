@@ -0,0 +1,122 @@
+import java.util.ArrayList;
+
+/**
+ * a class that implements StackInterface on top of a PersistentStack, for
+ * backtracking and undo. It is used like any other Stack, but snapshot
+ * returns the current contents in O(1) and restore goes back to any
+ * snapshot in O(1), however large the Stack is. Snapshots share their
+ * nodes with the Stack and with each other.
+ *
+ * The Stack grows as needed, so it is never full.
+ * @author Christopher Perez Lebron
+ *
+ * @param <T> a generic type representing any object type
+ */
+public final class SnapshotStack<T> implements StackInterface<T> {
+	private PersistentStack<T> stack = PersistentStack.empty();
+
+	/**
+	 * Returns the current contents of the Stack. Later pushes and pops do not
+	 * change the returned stack
+	 * @return the contents of the Stack right now
+	 */
+	public PersistentStack<T> snapshot() {
+		return stack;
+	}
+
+	/**
+	 * Replaces the contents of the Stack with a snapshot
+	 * @param snapshot the contents to go back to
+	 */
+	public void restore(PersistentStack<T> snapshot) {
+		if(snapshot == null)
+			throw new NullPointerException();
+		stack = snapshot;
+	}
+
+	/**
+	 * Determines if Stack is empty
+	 * @return true if Stack is empty, false if not
+	 */
+	public boolean isEmpty() {
+		return stack.isEmpty();
+	}
+
+	/**
+	 * Determines if Stack is full, this Stack grows as needed so it never is
+	 * @return false
+	 */
+	public boolean isFull() {
+		return false;
+	}
+
+	/**
+	 * Deletes and returns the element at the top of the Stack
+	 * @return the element at the top of the Stack
+	 * @throws StackUnderflowException if stack is empty
+	 */
+	public T pop() throws StackUnderflowException {
+		T top = stack.top();
+		stack = stack.pop();
+		return top;
+	}
+
+	/**
+	 * Returns the element at the top of the Stack, does not pop it off the Stack
+	 * @return the element at the top of the Stack
+	 * @throws StackUnderflowException if stack is empty
+	 */
+	public T top() throws StackUnderflowException {
+		return stack.top();
+	}
+
+	/**
+	 * Number of elements in the Stack
+	 * @return the number of elements in the Stack
+	 */
+	public int size() {
+		return stack.size();
+	}
+
+	/**
+	 * Adds an element to the top of the Stack
+	 * @param e the element to add to the top of the Stack
+	 * @return true, the Stack is never full
+	 */
+	public boolean push(T e) {
+		stack = stack.push(e);
+		return true;
+	}
+
+	/**
+	 * Returns the elements of the Stack in a string from bottom to top, the beginning
+	 * of the String is the bottom of the stack
+	 * @return an string which represent the Objects in the Stack from bottom to top
+	 */
+	public String toString() {
+		return stack.toString();
+	}
+
+	/**
+	 * Returns the string representation of the elements in the Stack, the beginning of the
+	 * string is the bottom of the stack
+	 * Place the delimiter between all elements of the Stack
+	 * @return string representation of the Stack from bottom to top with elements
+	 * separated with the delimiter
+	 */
+	public String toString(String delimiter) {
+		return stack.toString(delimiter);
+	}
+
+	/**
+	 * Fills the Stack with the elements of the ArrayList, First element in the ArrayList
+	 * is the first bottom element of the Stack. Only the elements are kept, not the list
+	 * @param list elements to be added to the Stack from bottom to top
+	 */
+	public void fill(ArrayList<T> list) {
+		PersistentStack<T> filled = stack;
+		for(T element : list)
+			filled = filled.push(element);
+		stack = filled;
+	}
+}
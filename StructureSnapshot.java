@@ -0,0 +1,272 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * a package private helper that writes the contents of a MyStack or MyQueue
+ * to a file and reads them back, without Java serialization.
+ *
+ * The file is a header (magic, version, kind, element type, capacity and
+ * number of elements) followed by the elements. Every element must be of
+ * the same supported type: boxed primitives are written as their raw value
+ * (an Integer is 4 bytes) and a String is its UTF-8 length followed by its
+ * UTF-8 bytes. The elements are read straight out of the backing array, as
+ * one run for a stack or the two runs on either side of the wraparound for
+ * a queue, and packed into a direct buffer that is flushed to a FileChannel
+ * whenever it fills up.
+ * @author Christopher Perez Lebron
+ *
+ */
+final class StructureSnapshot {
+	static final byte STACK = 1;
+	static final byte QUEUE = 2;
+
+	private static final int MAGIC = 0x4E54534E; // "NTSN"
+	private static final byte VERSION = 1;
+	private static final int HEADER_BYTES = 4 + 1 + 1 + 1 + 4 + 4;
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	private static final byte EMPTY = 0;
+	private static final byte INTEGER = 1;
+	private static final byte LONG = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte FLOAT = 4;
+	private static final byte SHORT = 5;
+	private static final byte BYTE = 6;
+	private static final byte CHARACTER = 7;
+	private static final byte BOOLEAN = 8;
+	private static final byte STRING = 9;
+
+	/**
+	 * the capacity and elements read back from a snapshot
+	 */
+	static final class Contents {
+		final int capacity;
+		final Object[] elements;
+
+		private Contents(int capacity, Object[] elements) {
+			this.capacity = capacity;
+			this.elements = elements;
+		}
+	}
+
+	private StructureSnapshot() {
+	}
+
+	/**
+	 * writes count elements of array, starting at head and wrapping around
+	 * the end of the array, to path
+	 * @param path the file to write, it is replaced if it exists
+	 * @param kind STACK or QUEUE, checked again when the file is read
+	 * @param capacity the capacity of the structure being written
+	 * @param array the structure's backing array
+	 * @param head the index of the first element
+	 * @param count the number of elements
+	 * @throws IllegalArgumentException if an element is null or the elements
+	 * are not all of one supported type
+	 * @throws IOException if the file can't be written
+	 */
+	static void write(Path path, byte kind, int capacity, Object[] array, int head, int count)
+			throws IOException {
+		int firstPart = Math.min(count, array.length - head);
+		byte type = typeOf(array, head, firstPart, count - firstPart);
+
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+			buffer.putInt(MAGIC).put(VERSION).put(kind).put(type).putInt(capacity).putInt(count);
+
+			writeRun(channel, buffer, type, array, head, head + firstPart);
+			writeRun(channel, buffer, type, array, 0, count - firstPart);
+			flush(channel, buffer);
+		}
+	}
+
+	/**
+	 * reads a snapshot written by write
+	 * @param path the file to read
+	 * @param kind STACK or QUEUE, the kind the caller expects
+	 * @return the capacity and elements in the file
+	 * @throws IOException if the file can't be read, is not a snapshot or
+	 * holds the other kind of structure
+	 */
+	static Contents read(Path path, byte kind) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+			buffer.flip();
+
+			fill(channel, buffer, HEADER_BYTES);
+			if(buffer.getInt() != MAGIC || buffer.get() != VERSION)
+				throw new IOException("ERROR: not a snapshot");
+			if(buffer.get() != kind)
+				throw new IOException("ERROR: snapshot is of a different structure");
+			byte type = buffer.get();
+			int capacity = buffer.getInt();
+			int count = buffer.getInt();
+			//a structure can't be restored with more room than it could have had
+			int maxCapacity = kind == STACK ? MyStack.MAX_CAPACITY : MyQueue.MAX_CAPACITY;
+			if(count < 0 || count > capacity || capacity > maxCapacity)
+				throw new IOException("ERROR: snapshot is corrupt");
+
+			Object[] elements = new Object[count];
+			for(int index = 0; index < count; index++)
+				elements[index] = readElement(channel, buffer, type);
+			return new Contents(capacity, elements);
+		}
+	}
+
+	/**
+	 * finds the one type every element has
+	 */
+	private static byte typeOf(Object[] array, int head, int firstPart, int secondPart) {
+		if(firstPart + secondPart == 0)
+			return EMPTY;
+
+		Class<?> elementClass = array[head] == null ? null : array[head].getClass();
+		for(int index = head; index < head + firstPart; index++)
+			checkElement(array[index], elementClass);
+		for(int index = 0; index < secondPart; index++)
+			checkElement(array[index], elementClass);
+
+		if(elementClass == Integer.class) return INTEGER;
+		if(elementClass == Long.class) return LONG;
+		if(elementClass == Double.class) return DOUBLE;
+		if(elementClass == Float.class) return FLOAT;
+		if(elementClass == Short.class) return SHORT;
+		if(elementClass == Byte.class) return BYTE;
+		if(elementClass == Character.class) return CHARACTER;
+		if(elementClass == Boolean.class) return BOOLEAN;
+		if(elementClass == String.class) return STRING;
+		throw new IllegalArgumentException("ERROR: can't snapshot elements of type " + elementClass.getName());
+	}
+
+	private static void checkElement(Object element, Class<?> elementClass) {
+		if(element == null)
+			throw new IllegalArgumentException("ERROR: can't snapshot null elements");
+		if(element.getClass() != elementClass)
+			throw new IllegalArgumentException("ERROR: can't snapshot elements of mixed types");
+	}
+
+	private static void writeRun(FileChannel channel, ByteBuffer buffer, byte type,
+			Object[] array, int from, int to) throws IOException {
+		for(int index = from; index < to; index++) {
+			Object element = array[index];
+			switch(type) {
+				case INTEGER:
+					room(channel, buffer, Integer.BYTES).putInt((Integer) element);
+					break;
+				case LONG:
+					room(channel, buffer, Long.BYTES).putLong((Long) element);
+					break;
+				case DOUBLE:
+					room(channel, buffer, Double.BYTES).putDouble((Double) element);
+					break;
+				case FLOAT:
+					room(channel, buffer, Float.BYTES).putFloat((Float) element);
+					break;
+				case SHORT:
+					room(channel, buffer, Short.BYTES).putShort((Short) element);
+					break;
+				case BYTE:
+					room(channel, buffer, Byte.BYTES).put((Byte) element);
+					break;
+				case CHARACTER:
+					room(channel, buffer, Character.BYTES).putChar((Character) element);
+					break;
+				case BOOLEAN:
+					room(channel, buffer, 1).put((byte) ((Boolean) element ? 1 : 0));
+					break;
+				case STRING:
+					byte[] utf8 = ((String) element).getBytes(StandardCharsets.UTF_8);
+					room(channel, buffer, Integer.BYTES).putInt(utf8.length);
+					//a string bigger than the buffer is written on its own
+					if(utf8.length > buffer.capacity()) {
+						flush(channel, buffer);
+						ByteBuffer whole = ByteBuffer.wrap(utf8);
+						while(whole.hasRemaining())
+							channel.write(whole);
+					}
+					else
+						room(channel, buffer, utf8.length).put(utf8);
+					break;
+				default:
+					throw new IllegalStateException();
+			}
+		}
+	}
+
+	private static Object readElement(FileChannel channel, ByteBuffer buffer, byte type) throws IOException {
+		switch(type) {
+			case INTEGER:
+				return fill(channel, buffer, Integer.BYTES).getInt();
+			case LONG:
+				return fill(channel, buffer, Long.BYTES).getLong();
+			case DOUBLE:
+				return fill(channel, buffer, Double.BYTES).getDouble();
+			case FLOAT:
+				return fill(channel, buffer, Float.BYTES).getFloat();
+			case SHORT:
+				return fill(channel, buffer, Short.BYTES).getShort();
+			case BYTE:
+				return fill(channel, buffer, Byte.BYTES).get();
+			case CHARACTER:
+				return fill(channel, buffer, Character.BYTES).getChar();
+			case BOOLEAN:
+				return fill(channel, buffer, 1).get() != 0;
+			case STRING:
+				int length = fill(channel, buffer, Integer.BYTES).getInt();
+				//a length past the end of the file is corrupt, not something to allocate
+				if(length < 0 || length > buffer.remaining() + channel.size() - channel.position())
+					throw new IOException("ERROR: snapshot is corrupt");
+				byte[] utf8 = new byte[length];
+				int copied = 0;
+				while(copied < length) {
+					int chunk = Math.min(length - copied, buffer.capacity());
+					fill(channel, buffer, chunk).get(utf8, copied, chunk);
+					copied += chunk;
+				}
+				return new String(utf8, StandardCharsets.UTF_8);
+			default:
+				throw new IOException("ERROR: snapshot has an unknown element type");
+		}
+	}
+
+	/**
+	 * flushes the buffer to the channel if it has less than needed bytes free
+	 * @return the buffer, so a put can be chained onto the call
+	 */
+	private static ByteBuffer room(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+		if(buffer.remaining() < needed)
+			flush(channel, buffer);
+		return buffer;
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * reads from the channel until the buffer has at least needed unread bytes
+	 * @return the buffer, so a get can be chained onto the call
+	 * @throws EOFException if the file ends first
+	 */
+	private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+		if(buffer.remaining() >= needed)
+			return buffer;
+
+		buffer.compact();
+		while(buffer.position() < needed) {
+			if(channel.read(buffer) < 0)
+				throw new EOFException("ERROR: snapshot is truncated");
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
@@ -0,0 +1,264 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+
+/**
+ * a class that implements a Chase-Lev work-stealing deque. One thread,
+ * the owner, uses it as a Stack through push and pop. Any number of
+ * other threads, the thieves, take elements from the bottom with steal.
+ *
+ * The owner's push and pop touch only the top end and take no lock.
+ * A thief claims the bottom element with a single compare and set on
+ * the bottom index, so thieves only contend with each other, and with
+ * the owner only when one element is left. The elements live in a
+ * circular array whose length is a power of two. When it is full the
+ * owner copies it into one twice as long. A thief still reading the old
+ * array reads the same elements, because the owner never writes into
+ * an array it has replaced.
+ *
+ * Only the owner may call push, pop, tryPop, top, toString and fill, and
+ * the owner is whichever single thread does. steal, size and isEmpty
+ * may be called from any thread. Null entries are not allowed, tryPop
+ * and steal use null to report that they got nothing.
+ *
+ * A stolen element's slot is not cleared, since the owner may be about
+ * to reuse it. It stays reachable until a later push overwrites it.
+ * @author Christopher Perez Lebron
+ *
+ * @param <T> a generic type representing any object type
+ */
+public final class WorkStealingDeque<T> implements StackInterface<T> {
+	private static final int DEFAULT_CAPACITY = 32;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private static final VarHandle BASE;
+	private static final VarHandle TOP;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			BASE = lookup.findVarHandle(WorkStealingDeque.class, "base", long.class);
+			TOP = lookup.findVarHandle(WorkStealingDeque.class, "top", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/*
+	 * base is the index of the bottom element, which thieves take, and top
+	 * is the index just past the top element, which the owner pushes and
+	 * pops. Both only ever grow apart from pop moving top back, and are
+	 * masked into the array. They are called top and bottom in the paper,
+	 * the names here follow the Stack instead
+	 */
+	private long base;
+	private long top;
+	private volatile Object[] array;
+
+	public WorkStealingDeque() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public WorkStealingDeque(int initialCapacity) {
+		if(initialCapacity > MAX_CAPACITY)
+			throw new IllegalStateException();
+
+		//round up to a power of two so indexes can be wrapped with a mask
+		array = new Object[Math.max(Integer.highestOneBit(Math.max(initialCapacity, 1) - 1) << 1, 1)];
+	}
+
+	/**
+	 * Adds an element to the top of the Stack. Owner only
+	 * @param newEntry the element to add
+	 * @return true, the deque grows instead of overflowing
+	 * @throws NullPointerException if newEntry is null
+	 * @throws IllegalStateException if the array would grow past MAX_CAPACITY
+	 */
+	public boolean push(T newEntry) {
+		if(newEntry == null)
+			throw new NullPointerException();
+
+		long topIndex = top;
+		long baseIndex = (long) BASE.getAcquire(this);
+		Object[] elements = array;
+		if(topIndex - baseIndex >= elements.length)
+			elements = grow(elements, baseIndex, topIndex);
+
+		elements[(int) topIndex & (elements.length - 1)] = newEntry;
+		//the element has to be visible before a thief can see the new top
+		VarHandle.releaseFence();
+		TOP.setOpaque(this, topIndex + 1);
+		return true;
+	}
+
+	/**
+	 * copies the elements between baseIndex and topIndex into an array
+	 * twice as long, at the same masked positions
+	 */
+	private Object[] grow(Object[] elements, long baseIndex, long topIndex) {
+		if(elements.length >= MAX_CAPACITY)
+			throw new IllegalStateException();
+
+		Object[] larger = new Object[2 * elements.length];
+		for(long index = baseIndex; index < topIndex; index++)
+			larger[(int) index & (larger.length - 1)] = elements[(int) index & (elements.length - 1)];
+		array = larger;
+		return larger;
+	}
+
+	/**
+	 * Deletes and returns the element at the top of the Stack. Owner only
+	 * @return the element at the top of the Stack
+	 * @throws StackUnderflowException if the deque is empty, or thieves
+	 * took the last element first
+	 */
+	public T pop() throws StackUnderflowException {
+		T topEntry = tryPop();
+		if(topEntry == null)
+			throw new StackUnderflowException();
+		return topEntry;
+	}
+
+	/**
+	 * Deletes and returns the element at the top of the Stack, without
+	 * throwing when there is none. Owner only
+	 * @return the element at the top of the Stack, or null if the deque is empty
+	 */
+	public T tryPop() {
+		long topIndex = top - 1;
+		Object[] elements = array;
+		TOP.setOpaque(this, topIndex);
+		//a thief that read the old top must either be seen here or see the new one
+		VarHandle.fullFence();
+		long baseIndex = (long) BASE.getOpaque(this);
+
+		if(baseIndex > topIndex) {
+			//empty, put top back where it was
+			TOP.setOpaque(this, topIndex + 1);
+			return null;
+		}
+
+		int slot = (int) topIndex & (elements.length - 1);
+		@SuppressWarnings("unchecked")
+		T topEntry = (T) elements[slot];
+		if(baseIndex == topIndex) {
+			//the last element, race the thieves for it
+			if(!BASE.compareAndSet(this, baseIndex, baseIndex + 1))
+				topEntry = null;
+			TOP.setOpaque(this, topIndex + 1);
+		}
+		else
+			elements[slot] = null;
+		return topEntry;
+	}
+
+	/**
+	 * Deletes and returns the element at the bottom of the deque. Any
+	 * thread may call this
+	 * @return the element at the bottom, or null if the deque is empty or
+	 * another thread took the element first
+	 */
+	public T steal() {
+		long baseIndex = (long) BASE.getAcquire(this);
+		VarHandle.fullFence();
+		long topIndex = (long) TOP.getAcquire(this);
+		if(baseIndex >= topIndex)
+			return null;
+
+		Object[] elements = array;
+		@SuppressWarnings("unchecked")
+		T bottomEntry = (T) elements[(int) baseIndex & (elements.length - 1)];
+		if(!BASE.compareAndSet(this, baseIndex, baseIndex + 1))
+			return null;
+		return bottomEntry;
+	}
+
+	/**
+	 * Returns the element at the top of the Stack without removing it.
+	 * Owner only. If thieves are stealing, the element may already be
+	 * gone by the time this returns
+	 * @return the element at the top of the Stack
+	 * @throws StackUnderflowException if the deque is empty
+	 */
+	public T top() throws StackUnderflowException {
+		long topIndex = top - 1;
+		if((long) BASE.getAcquire(this) > topIndex)
+			throw new StackUnderflowException();
+		Object[] elements = array;
+		@SuppressWarnings("unchecked")
+		T topEntry = (T) elements[(int) topIndex & (elements.length - 1)];
+		return topEntry;
+	}
+
+	/**
+	 * Determines if the deque is empty. Any thread may call this, the
+	 * answer can be out of date as soon as it is returned
+	 * @return true if the deque is empty, false if not
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Determines if the deque is full. The deque grows when it runs out
+	 * of room, so this is always false
+	 * @return false
+	 */
+	public boolean isFull() {
+		return false;
+	}
+
+	/**
+	 * Number of elements in the deque. Any thread may call this, the
+	 * answer can be out of date as soon as it is returned
+	 * @return the number of elements in the deque
+	 */
+	public int size() {
+		long baseIndex = (long) BASE.getAcquire(this);
+		long topIndex = (long) TOP.getAcquire(this);
+		//pop moves top back before it checks base, so top can briefly be below base
+		return (int) Math.max(topIndex - baseIndex, 0);
+	}
+
+	/**
+	 * Returns the elements of the deque in a string from bottom to top.
+	 * Owner only
+	 * @return a string which represents the elements from bottom to top
+	 */
+	public String toString() {
+		//call other toString method with an empty string as a delimiter
+		return toString("");
+	}
+
+	/**
+	 * Returns the string representation of the elements in the deque from
+	 * bottom to top, with the delimiter placed between all elements. Owner
+	 * only, elements stolen while it runs may still be included
+	 * @return string representation of the deque with elements separated
+	 * with the delimiter
+	 */
+	public String toString(String delimiter) {
+		Object[] elements = array;
+		long baseIndex = (long) BASE.getAcquire(this);
+		long topIndex = top;
+
+		StringBuilder dequeStr = new StringBuilder();
+		for(long index = baseIndex; index < topIndex; index++) {
+			if(index != baseIndex)
+				dequeStr.append(delimiter);
+			dequeStr.append(elements[(int) index & (elements.length - 1)]);
+		}
+		return dequeStr.toString();
+	}
+
+	/**
+	 * Pushes the elements of the ArrayList in order, the first element of
+	 * the list ends up closest to the bottom. Owner only
+	 * @param list elements to be added to the deque
+	 * @throws NullPointerException if the list holds a null
+	 */
+	public void fill(ArrayList<T> list) {
+		for(T entry : list)
+			push(entry);
+	}
+}
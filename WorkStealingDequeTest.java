@@ -0,0 +1,254 @@
+ 
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkStealingDequeTest {
+	public WorkStealingDeque<String> stringD;
+	public String a="a", b="b", c="c", d="d", e="e";
+
+	@Before
+	public void setUp() throws Exception {
+		stringD = new WorkStealingDeque<String>(2);
+		stringD.push(a);
+		stringD.push(b);
+		stringD.push(c);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stringD = null;
+	}
+
+	@Test
+	public void testStack() {
+		assertEquals("abc", stringD.toString());
+		assertEquals(3, stringD.size());
+		assertFalse(stringD.isFull());
+		assertEquals(c, stringD.top());
+		assertEquals(c, stringD.pop());
+		assertEquals(b, stringD.pop());
+		assertEquals(a, stringD.pop());
+		assertTrue(stringD.isEmpty());
+		assertNull(stringD.tryPop());
+		try {
+			stringD.pop();
+			assertTrue("This should have caused an StackUnderflowException", false);
+		}
+		catch (StackUnderflowException e){
+			assertTrue("This should have caused an StackUnderflowException", true);
+		}
+		
+		ArrayList<String> fill = new ArrayList<String>();
+		fill.add(d);
+		fill.add(e);
+		stringD.fill(fill);
+		assertEquals("d, e", stringD.toString(", "));
+	}
+
+	@Test
+	public void testSteal() {
+		//thieves take from the bottom, the owner from the top
+		assertEquals(a, stringD.steal());
+		stringD.push(d);
+		stringD.push(e);
+		assertEquals("bcde", stringD.toString());
+		assertEquals(e, stringD.pop());
+		assertEquals(b, stringD.steal());
+		assertEquals(c, stringD.steal());
+		assertEquals(d, stringD.pop());
+		assertNull(stringD.steal());
+		assertTrue(stringD.isEmpty());
+	}
+
+	@Test
+	public void testGrowthAfterWrapping() {
+		WorkStealingDeque<Integer> intD = new WorkStealingDeque<Integer>(4);
+		int next = 0;
+		int expected = 0;
+		for(int round = 0; round < 50; round++) {
+			for(int count = 0; count < 3; count++)
+				intD.push(next++);
+			for(int count = 0; count < 2; count++)
+				assertEquals(Integer.valueOf(expected++), intD.steal());
+		}
+		assertEquals(50, intD.size());
+		for(int value = next - 1; value >= expected; value--)
+			assertEquals(Integer.valueOf(value), intD.pop());
+	}
+
+	@Test
+	public void testConcurrentSteal() throws InterruptedException {
+		final int items = 200000;
+		final int thieves = 3;
+		WorkStealingDeque<Integer> intD = new WorkStealingDeque<Integer>(4);
+		AtomicIntegerArray taken = new AtomicIntegerArray(items);
+		CountDownLatch ownerDone = new CountDownLatch(1);
+
+		Thread[] threads = new Thread[thieves];
+		for(int thief = 0; thief < thieves; thief++) {
+			threads[thief] = new Thread(() -> {
+				while(ownerDone.getCount() != 0 || !intD.isEmpty()) {
+					Integer value = intD.steal();
+					if(value != null)
+						taken.incrementAndGet(value);
+				}
+			});
+			threads[thief].start();
+		}
+
+		//the owner pushes everything, popping some of it back as it goes
+		for(int value = 0; value < items; value++) {
+			intD.push(value);
+			if(value % 3 == 0) {
+				Integer popped = intD.tryPop();
+				if(popped != null)
+					taken.incrementAndGet(popped);
+			}
+		}
+		Integer popped;
+		while((popped = intD.tryPop()) != null)
+			taken.incrementAndGet(popped);
+		ownerDone.countDown();
+		for(Thread thread : threads)
+			thread.join();
+
+		//every element must be taken exactly once
+		for(int value = 0; value < items; value++)
+			assertEquals(1, taken.get(value));
+	}
+
+	@Test
+	public void testScheduler() {
+		String[] postfix = new String[5000];
+		for(int index = 0; index < postfix.length; index++)
+			postfix[index] = (index % 10) + "" + ((index / 10) % 10) + "+2*";
+
+		try(EvaluationScheduler scheduler = new EvaluationScheduler(3)) {
+			for(int round = 0; round < 20; round++) {
+				double[] values = scheduler.evaluateAll(postfix);
+				for(int index = 0; index < postfix.length; index++)
+					assertEquals(((index % 10) + (index / 10) % 10) * 2, values[index], .001);
+			}
+			assertEquals(0, scheduler.evaluateAll(new String[0]).length);
+
+			//every expression is still evaluated, the lowest failing index is reported
+			postfix[4000] = "12";
+			postfix[100] = "1+";
+			try {
+				scheduler.evaluateAll(postfix);
+				assertTrue("This should have thrown an InvalidNotationFormatException", false);
+			}
+			catch (InvalidNotationFormatException e) {
+				assertEquals("ERROR: too few operands", e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testSchedulerErrors() {
+		try(EvaluationScheduler scheduler = new EvaluationScheduler(2)) {
+			AssertionError error = new AssertionError("fatal");
+			Integer[] items = new Integer[1000];
+			for(int index = 0; index < items.length; index++)
+				items[index] = index;
+			
+			//an Error reaches the caller as it is instead of killing a worker
+			for(int round = 0; round < 4; round++) {
+				try {
+					scheduler.evaluateAll(items, item -> {
+						if(item == 2)
+							throw error;
+						return item;
+					});
+					assertTrue("This should have thrown an AssertionError", false);
+				}
+				catch (AssertionError e) {
+					assertSame(error, e);
+				}
+			}
+			
+			//the lowest index wins, whether it threw an Error or an exception
+			try {
+				scheduler.evaluateAll(items, item -> {
+					if(item == 700)
+						throw error;
+					if(item == 300)
+						throw new IllegalStateException();
+					return item;
+				});
+				assertTrue("This should have thrown an IllegalStateException", false);
+			}
+			catch (IllegalStateException e) {
+			}
+			
+			//every worker is still there for the next batch
+			double[] values = scheduler.evaluateAll(items, item -> item * 2);
+			for(int index = 0; index < items.length; index++)
+				assertEquals(index * 2, values[index], .001);
+			//two items that each wait for the other only finish if both workers are alive
+			CountDownLatch both = new CountDownLatch(2);
+			values = scheduler.evaluateAll(new Integer[] {1, 2}, item -> {
+				both.countDown();
+				try {
+					return both.await(5, TimeUnit.SECONDS) ? item : 0;
+				} catch(InterruptedException e) {
+					return 0;
+				}
+			});
+			assertEquals(1, values[0], .001);
+			assertEquals(2, values[1], .001);
+		}
+	}
+
+	@Test
+	public void testCloseWithBlockedSubmitters() throws InterruptedException {
+		EvaluationScheduler scheduler = new EvaluationScheduler(1);
+		AtomicInteger evaluated = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		AtomicInteger wrong = new AtomicInteger();
+		
+		//far more single item batches than the submission queue holds, so callers block in put
+		Thread[] callers = new Thread[64];
+		for(int number = 0; number < callers.length; number++) {
+			int value = number;
+			callers[number] = new Thread(() -> {
+				try {
+					double[] values = scheduler.evaluateAll(new Integer[] {value}, item -> {
+						LockSupport.parkNanos(200_000);
+						return item;
+					});
+					if(values[0] != value)
+						wrong.incrementAndGet();
+					evaluated.incrementAndGet();
+				} catch(IllegalStateException e) {
+					rejected.incrementAndGet();
+				}
+			});
+			callers[number].start();
+		}
+		
+		//close must not wait for callers stuck on the full queue
+		Thread.sleep(50);
+		long start = System.nanoTime();
+		scheduler.close();
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+		
+		//every caller that got its batch in is still answered
+		for(Thread caller : callers) {
+			caller.join(10_000);
+			assertFalse(caller.isAlive());
+		}
+		assertEquals(callers.length, evaluated.get() + rejected.get());
+		assertEquals(0, wrong.get());
+	}
+}